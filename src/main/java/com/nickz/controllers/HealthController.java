@@ -0,0 +1,55 @@
+package com.nickz.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nickz.util.ConnectionManager;
+import com.nickz.util.ConnectionPool;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Liveness and readiness probes. {@code /health/ready} answers 503 until the connection pool
+ * has opened its configured minimum number of connections.
+ */
+@WebServlet("/health/*")
+public class HealthController extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    private transient ObjectMapper objectMapper;
+
+    @Override
+    public void init() throws ServletException {
+        super.init();
+        this.objectMapper = new ObjectMapper();
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        String pathInfo = req.getPathInfo();
+        if ("/live".equals(pathInfo)) {
+            writeStatus(resp, HttpServletResponse.SC_OK, Map.of("status", "UP"));
+        } else if ("/ready".equals(pathInfo)) {
+            ConnectionPool.State poolState = ConnectionManager.getPoolState();
+            int status = poolState == ConnectionPool.State.READY
+                    ? HttpServletResponse.SC_OK
+                    : HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+            writeStatus(resp, status, Map.of(
+                    "status", status == HttpServletResponse.SC_OK ? "UP" : "DOWN",
+                    "pool", poolState.name()));
+        } else {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+        }
+    }
+
+    private void writeStatus(HttpServletResponse resp, int status, Map<String, String> body) throws IOException {
+        resp.setStatus(status);
+        resp.setContentType("application/json");
+        resp.getWriter().write(objectMapper.writeValueAsString(body));
+    }
+}
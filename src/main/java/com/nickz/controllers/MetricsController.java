@@ -0,0 +1,132 @@
+package com.nickz.controllers;
+
+import com.nickz.service.OrderCache;
+import com.nickz.service.OrderIdFilter;
+import com.nickz.util.ConnectionManager;
+import com.nickz.util.ConnectionPool;
+import com.nickz.util.LatencyHistogram;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Connection pool metrics in the Prometheus text exposition format, one series per pool
+ * ({@code pool="primary"}, {@code pool="replica-1"}, ...), followed by the statistics of the order cache and
+ * the order id filter once {@link OrderController} has published them.
+ */
+@WebServlet("/metrics")
+public class MetricsController extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Servlet context attribute holding the {@link OrderCache} to report on.
+     */
+    public static final String ORDER_CACHE_ATTRIBUTE = "com.nickz.orderCache";
+
+    /**
+     * Servlet context attribute holding the {@link OrderIdFilter} to report on.
+     */
+    public static final String ORDER_ID_FILTER_ATTRIBUTE = "com.nickz.orderIdFilter";
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        resp.setContentType("text/plain; version=0.0.4; charset=utf-8");
+        StringBuilder out = render(ConnectionManager.getPools());
+        Object cache = getServletContext().getAttribute(ORDER_CACHE_ATTRIBUTE);
+        if (cache instanceof OrderCache) {
+            render(out, (OrderCache) cache);
+        }
+        Object idFilter = getServletContext().getAttribute(ORDER_ID_FILTER_ATTRIBUTE);
+        if (idFilter instanceof OrderIdFilter) {
+            render(out, (OrderIdFilter) idFilter);
+        }
+        resp.getWriter().write(out.toString());
+    }
+
+    private static StringBuilder render(List<ConnectionPool> pools) {
+        StringBuilder out = new StringBuilder(8192);
+        gauge(out, pools, "db_pool_active_connections", "Connections currently borrowed", ConnectionPool::getActiveConnections);
+        gauge(out, pools, "db_pool_idle_connections", "Connections open and available", ConnectionPool::getIdleConnections);
+        gauge(out, pools, "db_pool_pending_threads", "Threads waiting for a connection", ConnectionPool::getPendingThreads);
+        gauge(out, pools, "db_pool_max_connections", "Configured maximum pool size", ConnectionPool::getMaxSize);
+        counter(out, pools, "db_pool_acquire_timeouts_total", "Borrows that timed out waiting for a connection", ConnectionPool::getAcquireTimeouts);
+        counter(out, pools, "db_pool_statement_cache_hits_total", "Prepared statements served from the cache", ConnectionPool::getStatementCacheHits);
+        counter(out, pools, "db_pool_statement_cache_misses_total", "Prepared statements that had to be parsed", ConnectionPool::getStatementCacheMisses);
+        histogram(out, pools, "db_pool_acquire_wait_seconds", "Time spent waiting for a connection", ConnectionPool::getAcquireWait);
+        histogram(out, pools, "db_pool_hold_seconds", "Time a borrowed connection was held before being returned", ConnectionPool::getHoldTime);
+        return out;
+    }
+
+    private static void render(StringBuilder out, OrderCache cache) {
+        header(out, "order_cache_size", "Orders currently cached", "gauge");
+        out.append("order_cache_size ").append(cache.size()).append('\n');
+        header(out, "order_cache_max_size", "Configured maximum number of cached orders", "gauge");
+        out.append("order_cache_max_size ").append(cache.getMaxSize()).append('\n');
+        header(out, "order_cache_bytes", "Size of the cached bodies, compressed copies included", "gauge");
+        out.append("order_cache_bytes ").append(cache.getBytes()).append('\n');
+        header(out, "order_cache_hit_ratio", "Share of lookups served from the cache", "gauge");
+        out.append("order_cache_hit_ratio ").append(cache.getHitRatio()).append('\n');
+        header(out, "order_cache_hits_total", "Lookups served from the cache", "counter");
+        out.append("order_cache_hits_total ").append(cache.getHits()).append('\n');
+        header(out, "order_cache_misses_total", "Lookups that loaded from the database", "counter");
+        out.append("order_cache_misses_total ").append(cache.getMisses()).append('\n');
+        header(out, "order_cache_evictions_total", "Entries evicted to stay within the size limit", "counter");
+        out.append("order_cache_evictions_total ").append(cache.getEvictions()).append('\n');
+        header(out, "order_cache_expirations_total", "Entries dropped after their time to live", "counter");
+        out.append("order_cache_expirations_total ").append(cache.getExpirations()).append('\n');
+        header(out, "order_cache_invalidations_total", "Invalidations caused by writes", "counter");
+        out.append("order_cache_invalidations_total ").append(cache.getInvalidations()).append('\n');
+        header(out, "order_cache_discarded_loads_total", "Loads not cached because the order changed meanwhile", "counter");
+        out.append("order_cache_discarded_loads_total ").append(cache.getDiscardedLoads()).append('\n');
+        header(out, "order_cache_coalesced_loads_total", "Misses that shared another request's load", "counter");
+        out.append("order_cache_coalesced_loads_total ").append(cache.getCoalescedLoads()).append('\n');
+    }
+
+    private static void render(StringBuilder out, OrderIdFilter filter) {
+        header(out, "order_id_filter_complete", "1 while lookups of unknown order ids are rejected", "gauge");
+        out.append("order_id_filter_complete ").append(filter.isComplete() ? 1 : 0).append('\n');
+        header(out, "order_id_filter_bytes", "Memory held by the order id bitmap", "gauge");
+        out.append("order_id_filter_bytes ").append(filter.getBytes()).append('\n');
+        header(out, "order_id_filter_rejections_total", "Lookups of missing orders answered without the database", "counter");
+        out.append("order_id_filter_rejections_total ").append(filter.getRejections()).append('\n');
+        header(out, "order_id_filter_rebuilds_total", "Full scans of the order ids", "counter");
+        out.append("order_id_filter_rebuilds_total ").append(filter.getRebuilds()).append('\n');
+    }
+
+    private static void gauge(StringBuilder out, List<ConnectionPool> pools, String name, String help,
+                              ToLongFunction<ConnectionPool> value) {
+        header(out, name, help, "gauge");
+        for (ConnectionPool pool : pools) {
+            out.append(name).append("{pool=\"").append(pool.getName()).append("\"} ").append(value.applyAsLong(pool)).append('\n');
+        }
+    }
+
+    private static void counter(StringBuilder out, List<ConnectionPool> pools, String name, String help,
+                                ToLongFunction<ConnectionPool> value) {
+        header(out, name, help, "counter");
+        for (ConnectionPool pool : pools) {
+            out.append(name).append("{pool=\"").append(pool.getName()).append("\"} ").append(value.applyAsLong(pool)).append('\n');
+        }
+    }
+
+    private static void histogram(StringBuilder out, List<ConnectionPool> pools, String name, String help,
+                                  Function<ConnectionPool, LatencyHistogram> histogram) {
+        header(out, name, help, "histogram");
+        for (ConnectionPool pool : pools) {
+            histogram.apply(pool).writePrometheus(out, name, "pool=\"" + pool.getName() + "\",");
+        }
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+}
@@ -1,16 +1,36 @@
 package com.nickz.controllers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.nickz.dto.BulkImportResultDto;
+import com.nickz.dto.OrderBatchDto;
+import com.nickz.dto.OrderBatchResultDto;
 import com.nickz.dto.OrderCreateDto;
 import com.nickz.dto.OrderDto;
+import com.nickz.dto.OrderPageDto;
+import com.nickz.dto.OrderPatchDto;
 import com.nickz.controllers.error.ErrorResponse;
 import com.nickz.exception.OrderDeletionException;
 import com.nickz.exception.OrderNotFoundException;
+import com.nickz.repository.OrderCopyRepository;
 import com.nickz.repository.OrderDetailRepository;
 import com.nickz.repository.OrderRepository;
 import com.nickz.repository.ProductRepository;
+import com.nickz.service.OrderCache;
+import com.nickz.service.OrderExportService;
+import com.nickz.service.OrderImportService;
+import com.nickz.service.OrderPartitionMaintenance;
 import com.nickz.service.OrderService;
+import com.nickz.service.Versioned;
+import com.nickz.util.AppConfig;
+import com.nickz.util.OrderChangeListener;
+import com.nickz.util.RequestExecutor;
+import com.nickz.util.RoutingContext;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
@@ -18,22 +38,76 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
-@WebServlet("/orders/*")
+@WebServlet(value = "/orders/*", asyncSupported = true)
 public class OrderController extends HttpServlet {
 
     private OrderService orderService;
+    private OrderImportService orderImportService;
+    private OrderExportService orderExportService;
     private ObjectMapper objectMapper;
+    private RequestExecutor requestExecutor;
+    private OrderChangeListener orderChangeListener;
+    private OrderPartitionMaintenance partitionMaintenance;
+    private boolean jsonPassthrough;
+    private boolean streamListing;
 
     @Override
     public void init() throws ServletException {
         super.init();
+        this.requestExecutor = RequestExecutor.fromConfig(AppConfig.get());
+        this.jsonPassthrough = AppConfig.get().getBoolean("orders.jsonPassthrough", true);
+        this.streamListing = AppConfig.get().getBoolean("orders.streamListing", true);
         this.orderService = new OrderService(new OrderRepository(), new OrderDetailRepository(), new ProductRepository());
+        getServletContext().setAttribute(MetricsController.ORDER_CACHE_ATTRIBUTE, orderService.getCache());
+        getServletContext().setAttribute(MetricsController.ORDER_ID_FILTER_ATTRIBUTE, orderService.getIdFilter());
+        if (orderService.getCache().getMaxSize() > 0 || orderService.getIdFilter().isEnabled()) {
+            this.orderChangeListener = OrderChangeListener.fromConfig(AppConfig.get());
+            if (orderChangeListener != null) {
+                if (orderService.getCache().getMaxSize() > 0) {
+                    orderChangeListener.subscribe(orderService.getCache());
+                }
+                // built on the listener thread at every connect; until then it lets every lookup through
+                orderChangeListener.subscribe(orderService.getIdFilter());
+                orderChangeListener.start();
+            }
+        }
+        this.partitionMaintenance = OrderPartitionMaintenance.fromConfig(AppConfig.get(), new OrderRepository());
+        partitionMaintenance.start();
+        this.orderImportService = new OrderImportService(new OrderCopyRepository(),
+                AppConfig.get().getInt("orders.bulk.chunkSize", 1000));
+        this.orderExportService = new OrderExportService(new OrderCopyRepository());
         this.objectMapper = new ObjectMapper();
         this.objectMapper.registerModule(new JavaTimeModule());
     }
 
+    @Override
+    public void destroy() {
+        requestExecutor.close();
+        if (orderChangeListener != null) {
+            orderChangeListener.close();
+        }
+        partitionMaintenance.close();
+        super.destroy();
+    }
+
+    @Override
+    protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        requestExecutor.dispatch(req, resp, () -> {
+            try (RoutingContext.Scope request = RoutingContext.request()) {
+                if ("PATCH".equals(req.getMethod())) {
+                    doPatch(req, resp);
+                } else {
+                    super.service(req, resp);
+                }
+            }
+        });
+    }
+
     private void sendErrorResponse(HttpServletResponse resp, int status, String message) throws IOException {
         resp.setStatus(status);
         resp.setContentType("application/json");
@@ -44,7 +118,25 @@ public class OrderController extends HttpServlet {
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
         String pathInfo = req.getPathInfo();
-        if (pathInfo == null || "/".equals(pathInfo)) {
+        if ("/export".equals(pathInfo)) {
+            exportOrders(req, resp);
+        } else if ((pathInfo == null || "/".equals(pathInfo))
+                && (req.getParameter("limit") != null || req.getParameter("after") != null)) {
+            try {
+                String limit = req.getParameter("limit");
+                OrderPageDto page = orderService.getOrdersPage(req.getParameter("after"),
+                        limit == null ? OrderService.DEFAULT_PAGE_SIZE : Integer.parseInt(limit),
+                        "estimate".equals(req.getParameter("total")));
+                resp.setContentType("application/json");
+                resp.getWriter().write(objectMapper.writeValueAsString(page));
+            } catch (NumberFormatException e) {
+                sendErrorResponse(resp, HttpServletResponse.SC_BAD_REQUEST, "Invalid limit format");
+            } catch (IllegalArgumentException e) {
+                sendErrorResponse(resp, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            }
+        } else if ((pathInfo == null || "/".equals(pathInfo)) && streamListing) {
+            streamAllOrders(resp);
+        } else if (pathInfo == null || "/".equals(pathInfo)) {
             List<OrderDto> orders = orderService.getAllOrders();
             resp.setContentType("application/json");
             resp.getWriter().write(objectMapper.writeValueAsString(orders));
@@ -55,10 +147,7 @@ public class OrderController extends HttpServlet {
                 return;
             }
             try {
-                int orderId = Integer.parseInt(splits[1]);
-                OrderDto orderDto = orderService.getOrderById(orderId);
-                resp.setContentType("application/json");
-                resp.getWriter().write(objectMapper.writeValueAsString(orderDto));
+                getOrder(req, resp, Integer.parseInt(splits[1]));
             } catch (OrderNotFoundException e) {
                 sendErrorResponse(resp, HttpServletResponse.SC_NOT_FOUND, e.getMessage());
             } catch (NumberFormatException e) {
@@ -67,8 +156,146 @@ public class OrderController extends HttpServlet {
         }
     }
 
+    /**
+     * {@code GET /orders/{id}} as a conditional request. The order's version is looked up first, from the cached
+     * entry when there is one and otherwise with one query shared by concurrent requests: if it matches the
+     * client's {@code If-None-Match} the answer is 304 without loading the order, otherwise the body comes
+     * from {@link OrderCache}, or is loaded, serialized once and cached, with concurrent requests for the same
+     * order sharing that load. Both the database-built document and the Jackson path are cached.
+     */
+    private void getOrder(HttpServletRequest req, HttpServletResponse resp, int orderId) throws IOException {
+        long version = orderService.getOrderVersion(orderId);
+        resp.setHeader("Cache-Control", "no-cache");
+        resp.setHeader("Vary", "Accept-Encoding");
+        if (etagMatches(req.getHeader("If-None-Match"), etag(version))) {
+            resp.setHeader("ETag", etag(version));
+            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        OrderCache.Entry entry = orderService.getCache().get(orderId, () -> jsonPassthrough
+                ? orderService.getVersionedOrderDocument(orderId)
+                : serialize(orderService.getVersionedOrder(orderId)));
+        // a body that changed while loading is sent without a version to revalidate against
+        if (entry.isStable()) {
+            resp.setHeader("ETag", etag(entry.getVersion()));
+        }
+        writeJson(req, resp, entry.getBody(), entry.getGzipped());
+    }
+
+    private Versioned<byte[]> serialize(Versioned<OrderDto> order) {
+        try {
+            return new Versioned<>(objectMapper.writeValueAsBytes(order.getValue()), order.getVersion(), order.isStable());
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeJson(HttpServletRequest req, HttpServletResponse resp, byte[] body, byte[] gzipped)
+            throws IOException {
+        resp.setContentType("application/json");
+        resp.setCharacterEncoding("UTF-8");
+        String acceptEncoding = req.getHeader("Accept-Encoding");
+        if (gzipped != null && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            resp.setHeader("Content-Encoding", "gzip");
+            body = gzipped;
+        }
+        resp.setContentLength(body.length);
+        resp.getOutputStream().write(body);
+    }
+
+    /**
+     * Weak, since the same version is served both plain and gzip-compressed.
+     */
+    private static String etag(long version) {
+        return "W/\"" + version + "\"";
+    }
+
+    /**
+     * {@code If-None-Match} uses weak comparison: {@code *} or any listed tag equal to ours, ignoring {@code W/}.
+     */
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaque = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*")) {
+                return true;
+            }
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * {@code GET /orders/export?format=csv|ndjson}: the database's COPY output piped to the response,
+     * gzip-compressed when the client sends {@code Accept-Encoding: gzip}.
+     */
+    private void exportOrders(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        OrderExportService.Format format;
+        try {
+            String name = req.getParameter("format");
+            format = OrderExportService.Format.of(name == null ? "csv" : name);
+        } catch (IllegalArgumentException e) {
+            sendErrorResponse(resp, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        resp.setContentType(format.getContentType());
+        resp.setCharacterEncoding("UTF-8");
+        resp.setHeader("Content-Disposition", "attachment; filename=\"orders." + format.getExtension() + "\"");
+        resp.setHeader("Vary", "Accept-Encoding");
+        String acceptEncoding = req.getHeader("Accept-Encoding");
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        if (gzip) {
+            resp.setHeader("Content-Encoding", "gzip");
+        }
+        try (OutputStream out = gzip ? new GZIPOutputStream(resp.getOutputStream(), 8192) : resp.getOutputStream()) {
+            orderExportService.exportOrders(format, out);
+        }
+    }
+
+    /**
+     * Writes the order list as a JSON array, one order at a time, straight to the response stream.
+     * If reading fails halfway the array is left unterminated, so the client sees a broken body rather
+     * than a short but valid list.
+     */
+    private void streamAllOrders(HttpServletResponse resp) throws IOException {
+        resp.setContentType("application/json");
+        resp.setCharacterEncoding("UTF-8");
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(resp.getOutputStream())) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            json.writeStartArray();
+            try {
+                orderService.streamAllOrders(order -> {
+                    try {
+                        json.writeObject(order);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            json.writeEndArray();
+        }
+    }
+
     @Override
     protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        if ("/bulk".equals(req.getPathInfo())) {
+            importOrders(req, resp);
+            return;
+        }
+        if ("/batch".equals(req.getPathInfo())) {
+            applyBatch(req, resp);
+            return;
+        }
         try {
             OrderCreateDto orderCreateDto = objectMapper.readValue(req.getReader(), OrderCreateDto.class);
             orderService.createOrder(orderCreateDto);
@@ -78,6 +305,41 @@ public class OrderController extends HttpServlet {
         }
     }
 
+    /**
+     * {@code POST /orders/batch}: a status change or delete for many orders, see {@link OrderBatchDto}.
+     */
+    private void applyBatch(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        try {
+            OrderBatchDto batch = objectMapper.readValue(req.getReader(), OrderBatchDto.class);
+            OrderBatchResultDto result = orderService.applyBatch(batch);
+            resp.setContentType("application/json");
+            resp.getWriter().write(objectMapper.writeValueAsString(result));
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            sendErrorResponse(resp, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+        } catch (Exception e) {
+            sendErrorResponse(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * {@code POST /orders/bulk}: newline-delimited JSON orders, parsed one at a time as the body arrives.
+     */
+    private void importOrders(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        try (MappingIterator<OrderDto> orders = objectMapper.readerFor(OrderDto.class).readValues(req.getInputStream())) {
+            BulkImportResultDto result = orderImportService.importOrders(orders);
+            resp.setStatus(HttpServletResponse.SC_CREATED);
+            resp.setContentType("application/json");
+            resp.getWriter().write(objectMapper.writeValueAsString(result));
+        } catch (RuntimeJsonMappingException | IllegalArgumentException e) {
+            sendErrorResponse(resp, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+        } catch (RuntimeException e) {
+            // MappingIterator wraps syntax errors in a plain RuntimeException
+            int status = e.getCause() instanceof JsonProcessingException
+                    ? HttpServletResponse.SC_BAD_REQUEST : HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+            sendErrorResponse(resp, status, e.getMessage());
+        }
+    }
+
     @Override
     protected void doPut(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
         String pathInfo = req.getPathInfo();
@@ -103,6 +365,36 @@ public class OrderController extends HttpServlet {
         }
     }
 
+    /**
+     * {@code PATCH /orders/{id}}: a merge patch of the order, see {@link OrderPatchDto}.
+     */
+    protected void doPatch(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        String pathInfo = req.getPathInfo();
+        if (pathInfo == null || "/".equals(pathInfo)) {
+            sendErrorResponse(resp, HttpServletResponse.SC_BAD_REQUEST, "URL must include order ID");
+            return;
+        }
+        String[] splits = pathInfo.split("/");
+        if (splits.length != 2) {
+            sendErrorResponse(resp, HttpServletResponse.SC_BAD_REQUEST, "Invalid URL format");
+            return;
+        }
+        try {
+            int orderId = Integer.parseInt(splits[1]);
+            JsonNode body = objectMapper.readTree(req.getReader());
+            orderService.patchOrder(orderId, OrderPatchDto.from(body, objectMapper));
+            resp.setStatus(HttpServletResponse.SC_NO_CONTENT);
+        } catch (NumberFormatException e) {
+            sendErrorResponse(resp, HttpServletResponse.SC_BAD_REQUEST, "Invalid order ID format");
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            sendErrorResponse(resp, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+        } catch (OrderNotFoundException e) {
+            sendErrorResponse(resp, HttpServletResponse.SC_NOT_FOUND, e.getMessage());
+        } catch (Exception e) {
+            sendErrorResponse(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
     @Override
     protected void doDelete(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
         String pathInfo = req.getPathInfo();
@@ -0,0 +1,19 @@
+package com.nickz.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of {@code POST /orders/bulk}: rows written per table, elapsed time and overall rows per second.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkImportResultDto {
+    private long orders;
+    private long orderDetails;
+    private long products;
+    private long elapsedMillis;
+    private long rowsPerSecond;
+}
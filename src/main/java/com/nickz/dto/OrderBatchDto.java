@@ -0,0 +1,31 @@
+package com.nickz.dto;
+
+import com.nickz.entity.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Body of {@code POST /orders/batch}: an action applied to either an explicit list of order ids or every
+ * order matching a filter.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderBatchDto {
+
+    public enum Action {
+        setStatus,
+        delete
+    }
+
+    private Action action;
+    /**
+     * New status for {@link Action#setStatus}.
+     */
+    private OrderStatus status;
+    private List<Integer> ids;
+    private OrderFilterDto filter;
+}
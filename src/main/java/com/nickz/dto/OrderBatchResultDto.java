@@ -0,0 +1,18 @@
+package com.nickz.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Rows changed by {@code POST /orders/batch}, in total and per chunk (each chunk is its own transaction).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderBatchResultDto {
+    private long total;
+    private List<Integer> chunks;
+}
@@ -0,0 +1,25 @@
+package com.nickz.dto;
+
+import com.nickz.entity.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Selects orders by status and/or order date range ({@code from} inclusive, {@code to} exclusive).
+ * Fields left {@code null} do not restrict the selection.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderFilterDto {
+    private OrderStatus status;
+    private LocalDateTime from;
+    private LocalDateTime to;
+
+    public boolean isEmpty() {
+        return status == null && from == null && to == null;
+    }
+}
@@ -0,0 +1,22 @@
+package com.nickz.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of {@code GET /orders?limit=&after=}. {@code nextCursor} is passed back as {@code after} to get the
+ * following page and is {@code null} on the last one; {@code approximateTotal} is only present when requested.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OrderPageDto {
+    private List<OrderDto> items;
+    private String nextCursor;
+    private Long approximateTotal;
+}
@@ -0,0 +1,146 @@
+package com.nickz.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nickz.entity.OrderStatus;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Body of {@code PATCH /orders/{id}} in JSON merge-patch style: only the fields present are changed, and an
+ * explicit {@code null} clears an optional field. Changes are kept as column name to value maps, with columns
+ * in a fixed order so the same set of fields always produces the same SQL.
+ * <p>
+ * Unlike RFC 7396, which replaces arrays wholesale, {@code products} is a list of patches for existing
+ * products identified by {@code productId}; products that are not listed are left alone.
+ */
+@Getter
+public class OrderPatchDto {
+
+    private static final String[][] ORDER_FIELDS = {{"orderDate", "order_date"}, {"status", "status"}};
+    private static final String[][] DETAIL_FIELDS = {{"customerName", "customer_name"},
+            {"orderDescription", "order_description"}, {"customerContact", "customer_contact"}};
+    private static final String[][] PRODUCT_FIELDS = {{"name", "name"}, {"description", "description"},
+            {"price", "price"}, {"quantity", "quantity"}};
+
+    private final Map<String, Object> orderChanges = new LinkedHashMap<>();
+    private final Map<String, Object> detailChanges = new LinkedHashMap<>();
+    /**
+     * Keyed by product id.
+     */
+    private final Map<Integer, Map<String, Object>> productChanges = new LinkedHashMap<>();
+
+    private OrderPatchDto() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if the patch is not an object, names an unknown field, has a value of
+     *                                  the wrong type or tries to clear a required field
+     */
+    public static OrderPatchDto from(JsonNode patch, ObjectMapper objectMapper) {
+        if (patch == null || !patch.isObject()) {
+            throw new IllegalArgumentException("Patch must be a JSON object");
+        }
+        OrderPatchDto result = new OrderPatchDto();
+        checkKnown(patch, "", ORDER_FIELDS, "orderId", "orderDetail", "products");
+        collect(patch, ORDER_FIELDS, result.orderChanges, objectMapper, "");
+        if (result.orderChanges.containsKey("status") && result.orderChanges.get("status") == null
+                || result.orderChanges.containsKey("order_date") && result.orderChanges.get("order_date") == null) {
+            throw new IllegalArgumentException("orderDate and status cannot be removed");
+        }
+        if (patch.has("orderDetail")) {
+            JsonNode detail = patch.get("orderDetail");
+            if (!detail.isObject()) {
+                throw new IllegalArgumentException("orderDetail must be an object");
+            }
+            checkKnown(detail, "orderDetail.", DETAIL_FIELDS, "detailId", "orderId");
+            collect(detail, DETAIL_FIELDS, result.detailChanges, objectMapper, "orderDetail.");
+            if (result.detailChanges.containsKey("customer_name") && result.detailChanges.get("customer_name") == null) {
+                throw new IllegalArgumentException("orderDetail.customerName cannot be removed");
+            }
+        }
+        if (patch.has("products")) {
+            JsonNode products = patch.get("products");
+            if (!products.isArray()) {
+                throw new IllegalArgumentException("products must be an array of product patches");
+            }
+            for (JsonNode product : products) {
+                if (!product.isObject() || !product.path("productId").canConvertToInt()) {
+                    throw new IllegalArgumentException("Every product patch needs a numeric productId");
+                }
+                checkKnown(product, "products.", PRODUCT_FIELDS, "productId", "orderId");
+                Map<String, Object> changes = new LinkedHashMap<>();
+                collect(product, PRODUCT_FIELDS, changes, objectMapper, "products.");
+                for (String required : List.of("name", "price", "quantity")) {
+                    if (changes.containsKey(required) && changes.get(required) == null) {
+                        throw new IllegalArgumentException("products." + required + " cannot be removed");
+                    }
+                }
+                if (!changes.isEmpty()) {
+                    result.productChanges.merge(product.get("productId").asInt(), changes, (a, b) -> {
+                        a.putAll(b);
+                        return a;
+                    });
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void checkKnown(JsonNode node, String prefix, String[][] fields, String... ignored) {
+        List<String> known = new ArrayList<>(List.of(ignored));
+        for (String[] field : fields) {
+            known.add(field[0]);
+        }
+        for (Iterator<String> names = node.fieldNames(); names.hasNext(); ) {
+            String name = names.next();
+            if (!known.contains(name)) {
+                throw new IllegalArgumentException("Unknown field: " + prefix + name);
+            }
+        }
+    }
+
+    private static void collect(JsonNode node, String[][] fields, Map<String, Object> into,
+                                ObjectMapper objectMapper, String prefix) {
+        for (String[] field : fields) {
+            if (node.has(field[0])) {
+                into.put(field[1], convert(node.get(field[0]), field[1], objectMapper, prefix + field[0]));
+            }
+        }
+    }
+
+    private static Object convert(JsonNode value, String column, ObjectMapper objectMapper, String path) {
+        if (value.isNull()) {
+            return null;
+        }
+        try {
+            return switch (column) {
+                case "order_date" -> objectMapper.treeToValue(value, LocalDateTime.class);
+                case "status" -> objectMapper.treeToValue(value, OrderStatus.class).name();
+                case "price" -> objectMapper.treeToValue(value, BigDecimal.class);
+                case "quantity" -> {
+                    if (!value.canConvertToInt()) {
+                        throw new IllegalArgumentException("Invalid value for " + path);
+                    }
+                    yield value.asInt();
+                }
+                default -> {
+                    if (!value.isTextual()) {
+                        throw new IllegalArgumentException("Invalid value for " + path);
+                    }
+                    yield value.asText();
+                }
+            };
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid value for " + path, e);
+        }
+    }
+}
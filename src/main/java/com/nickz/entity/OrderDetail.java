@@ -1,7 +1,10 @@
 package com.nickz.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 
+import java.time.LocalDateTime;
+
 @Data
 public class OrderDetail {
     private int detailId;
@@ -9,4 +12,9 @@ public class OrderDetail {
     private String customerName;
     private String orderDescription;
     private String customerContact;
-}
\ No newline at end of file
+    /**
+     * Copy of the order's date, the partition key of the table. Not part of the API.
+     */
+    @JsonIgnore
+    private LocalDateTime orderDate;
+}
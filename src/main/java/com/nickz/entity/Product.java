@@ -1,7 +1,9 @@
 package com.nickz.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @Data
 public class Product {
@@ -11,4 +13,9 @@ public class Product {
     private String description;
     private BigDecimal price;
     private int quantity;
-}
\ No newline at end of file
+    /**
+     * Copy of the order's date, the partition key of the table. Not part of the API.
+     */
+    @JsonIgnore
+    private LocalDateTime orderDate;
+}
@@ -0,0 +1,7 @@
+package com.nickz.exception;
+
+public class ConnectionPoolTimeoutException extends DatabaseOperationException {
+    public ConnectionPoolTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,118 @@
+package com.nickz.repository;
+
+import com.nickz.util.ConnectionManager;
+import com.nickz.util.RoutingContext;
+import org.postgresql.PGConnection;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bulk loading and export of orders through PostgreSQL {@code COPY}. Rows are loaded in COPY text format
+ * (tab-separated, {@code \N} for null). Order ids are reserved up front so details and products can reference
+ * them; detail and product ids are left to their column defaults. Exports stream the server's output bytes
+ * to the caller's {@link OutputStream} as they arrive.
+ */
+public class OrderCopyRepository {
+
+    private static final String COPY_ORDERS = "COPY orders (order_id, order_date, status) FROM STDIN";
+    private static final String COPY_ORDER_DETAILS =
+            "COPY order_details (order_id, order_date, customer_name, order_description, customer_contact) FROM STDIN";
+    private static final String COPY_PRODUCTS =
+            "COPY products (order_id, order_date, name, description, price, quantity) FROM STDIN";
+
+    /**
+     * One CSV line per product (or per order without products), with the order and its detail repeated.
+     */
+    private static final String EXPORT_CSV = """
+            COPY (SELECT o.order_id, o.order_date, o.status,
+                         d.customer_name, d.order_description, d.customer_contact,
+                         p.product_id, p.name, p.description, p.price, p.quantity
+                  FROM orders o
+                  LEFT JOIN order_details d ON d.order_id = o.order_id AND d.order_date = o.order_date
+                  LEFT JOIN products p ON p.order_id = o.order_id AND p.order_date = o.order_date
+                  ORDER BY o.order_id, p.product_id)
+            TO STDOUT WITH (FORMAT csv, HEADER)
+            """;
+
+    /**
+     * One order document per line. CSV format with a quote and delimiter that cannot occur in JSON text
+     * (control characters are always escaped there) writes each document as-is; text format would double
+     * every backslash.
+     */
+    private static final String EXPORT_NDJSON = "COPY (" + OrderRepository.ORDER_DOCUMENT_SELECT
+            + "ORDER BY o.order_id) TO STDOUT WITH (FORMAT csv, QUOTE E'\\x01', DELIMITER E'\\x02')";
+
+    /**
+     * Takes {@code count} values from the {@code orders.order_id} sequence in one round trip.
+     */
+    public List<Integer> reserveOrderIds(int count) throws SQLException {
+        String sql = "SELECT nextval(pg_get_serial_sequence('orders', 'order_id')) FROM generate_series(1, ?)";
+        List<Integer> ids = new ArrayList<>(count);
+        try (Connection conn = ConnectionManager.getConnect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, count);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Rows of {@code order_id, order_date, status}.
+     */
+    public long copyOrders(Reader rows) throws SQLException {
+        return copyIn(COPY_ORDERS, rows);
+    }
+
+    /**
+     * Rows of {@code order_id, order_date, customer_name, order_description, customer_contact}, with the date of
+     * the order.
+     */
+    public long copyOrderDetails(Reader rows) throws SQLException {
+        return copyIn(COPY_ORDER_DETAILS, rows);
+    }
+
+    /**
+     * Rows of {@code order_id, order_date, name, description, price, quantity}, with the date of the order.
+     */
+    public long copyProducts(Reader rows) throws SQLException {
+        return copyIn(COPY_PRODUCTS, rows);
+    }
+
+    /**
+     * Writes every order as CSV with a header row and returns the number of rows.
+     */
+    public long exportCsv(OutputStream out) throws SQLException, IOException {
+        return copyOut(EXPORT_CSV, out);
+    }
+
+    /**
+     * Writes every order as newline-delimited JSON in the {@code OrderDto} layout accepted by the bulk import.
+     */
+    public long exportNdjson(OutputStream out) throws SQLException, IOException {
+        return copyOut(EXPORT_NDJSON, out);
+    }
+
+    private long copyOut(String sql, OutputStream out) throws SQLException, IOException {
+        try (RoutingContext.Scope readOnly = RoutingContext.readOnly();
+             Connection conn = ConnectionManager.getConnect()) {
+            return conn.unwrap(PGConnection.class).getCopyAPI().copyOut(sql, out);
+        }
+    }
+
+    private long copyIn(String sql, Reader rows) throws SQLException {
+        try (Connection conn = ConnectionManager.getConnect()) {
+            return conn.unwrap(PGConnection.class).getCopyAPI().copyIn(sql, rows);
+        } catch (IOException e) {
+            throw new SQLException("Failed to stream rows for: " + sql, e);
+        }
+    }
+}
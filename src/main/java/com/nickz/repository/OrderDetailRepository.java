@@ -2,20 +2,28 @@ package com.nickz.repository;
 
 import com.nickz.entity.OrderDetail;
 import com.nickz.exception.DatabaseOperationException;
+import com.nickz.exception.OrderNotFoundException;
+import com.nickz.exception.OrderUpdateException;
 import com.nickz.util.ConnectionManager;
+import com.nickz.util.RoutingContext;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public class OrderDetailRepository {
 
     public OrderDetail findById(int detailId) throws SQLException {
         String sql = "SELECT * FROM order_details WHERE detail_id = ?";
-        try (Connection conn = ConnectionManager.getConnect();
+        try (RoutingContext.Scope readOnly = RoutingContext.readOnly();
+             Connection conn = ConnectionManager.getConnect();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, detailId);
             ResultSet rs = stmt.executeQuery();
@@ -29,7 +37,8 @@ public class OrderDetailRepository {
     public List<OrderDetail> findAll() throws SQLException {
         List<OrderDetail> details = new ArrayList<>();
         String sql = "SELECT * FROM order_details";
-        try (Connection conn = ConnectionManager.getConnect();
+        try (RoutingContext.Scope readOnly = RoutingContext.readOnly();
+             Connection conn = ConnectionManager.getConnect();
              PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
@@ -39,28 +48,81 @@ public class OrderDetailRepository {
         return details;
     }
 
+    /**
+     * Details are partitioned by the date of their order, so the detail must carry it, see
+     * {@link OrderDetail#getOrderDate()}.
+     */
     public void create(OrderDetail detail) throws SQLException {
-        String sql = "INSERT INTO order_details (order_id, customer_name, order_description, customer_contact) VALUES (?, ?, ?, ?)";
+        String sql = "INSERT INTO order_details (order_id, customer_name, order_description, customer_contact, order_date)"
+                + " VALUES (?, ?, ?, ?, ?)";
         try (Connection conn = ConnectionManager.getConnect();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, detail.getOrderId());
             stmt.setString(2, detail.getCustomerName());
             stmt.setString(3, detail.getOrderDescription());
             stmt.setString(4, detail.getCustomerContact());
+            stmt.setTimestamp(5, Timestamp.valueOf(detail.getOrderDate()));
             stmt.executeUpdate();
         }
     }
 
+    /**
+     * Sets the given columns on the order's detail unless they already hold those values. {@code orderDate} is
+     * the order's current date, which the detail shares.
+     *
+     * @return 1 if the row was changed, 0 if it was already up to date
+     * @throws OrderNotFoundException if the order has no detail
+     */
+    public int patchByOrderId(int orderId, LocalDateTime orderDate, Map<String, Object> changes) throws SQLException {
+        String sql = "UPDATE order_details SET " + PatchSql.assignments(changes.keySet())
+                + " WHERE order_id = ? AND order_date = ? AND " + PatchSql.anyDistinct(changes.keySet());
+        try (Connection conn = ConnectionManager.getConnect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int index = PatchSql.bind(stmt, 1, changes.values());
+            stmt.setInt(index++, orderId);
+            stmt.setTimestamp(index++, Timestamp.valueOf(orderDate));
+            PatchSql.bind(stmt, index, changes.values());
+            if (stmt.executeUpdate() > 0) {
+                return 1;
+            }
+        }
+        requireDetail(orderId, orderDate);
+        return 0;
+    }
+
+    private void requireDetail(int orderId, LocalDateTime orderDate) throws SQLException {
+        String sql = "SELECT 1 FROM order_details WHERE order_id = ? AND order_date = ?";
+        try (Connection conn = ConnectionManager.getConnect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, orderId);
+            stmt.setTimestamp(2, Timestamp.valueOf(orderDate));
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new OrderNotFoundException("Order detail not found for order with ID: " + orderId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes all fields of the detail; its {@code order_date} is taken from the order it belongs to.
+     *
+     * @throws OrderUpdateException if the detail or its order does not exist
+     */
     public void update(OrderDetail detail) throws SQLException {
-        String sql = "UPDATE order_details SET order_id = ?, customer_name = ?, order_description = ?, customer_contact = ? WHERE detail_id = ?";
+        String sql = "UPDATE order_details d SET order_id = o.order_id, order_date = o.order_date, customer_name = ?,"
+                + " order_description = ?, customer_contact = ? FROM orders o WHERE o.order_id = ? AND d.detail_id = ?";
         try (Connection conn = ConnectionManager.getConnect();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, detail.getOrderId());
-            stmt.setString(2, detail.getCustomerName());
-            stmt.setString(3, detail.getOrderDescription());
-            stmt.setString(4, detail.getCustomerContact());
+            stmt.setString(1, detail.getCustomerName());
+            stmt.setString(2, detail.getOrderDescription());
+            stmt.setString(3, detail.getCustomerContact());
+            stmt.setInt(4, detail.getOrderId());
             stmt.setInt(5, detail.getDetailId());
-            stmt.executeUpdate();
+            if (stmt.executeUpdate() == 0) {
+                throw new OrderUpdateException("Order detail " + detail.getDetailId() + " or order " + detail.getOrderId()
+                        + " not found");
+            }
         }
     }
 
@@ -73,11 +135,16 @@ public class OrderDetailRepository {
         }
     }
 
-    public OrderDetail findByOrderId(int orderId) throws SQLException {
-        String sql = "SELECT * FROM order_details WHERE order_id = ?";
-        try (Connection conn = ConnectionManager.getConnect();
+    /**
+     * The detail of the order with the given id and current date; the date limits the search to one partition.
+     */
+    public OrderDetail findByOrderId(int orderId, LocalDateTime orderDate) throws SQLException {
+        String sql = "SELECT * FROM order_details WHERE order_id = ? AND order_date = ?";
+        try (RoutingContext.Scope readOnly = RoutingContext.readOnly();
+             Connection conn = ConnectionManager.getConnect();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, orderId);
+            stmt.setTimestamp(2, Timestamp.valueOf(orderDate));
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
                 return mapToOrderDetail(rs);
@@ -86,11 +153,33 @@ public class OrderDetailRepository {
         return null;
     }
 
-    public void deleteByOrderId(int orderId) throws DatabaseOperationException {
-        String sql = "DELETE FROM order_details WHERE order_id = ?";
+    /**
+     * Details of all the given orders in one round trip.
+     */
+    public List<OrderDetail> findByOrderIds(Collection<Integer> orderIds) throws SQLException {
+        List<OrderDetail> details = new ArrayList<>();
+        if (orderIds.isEmpty()) {
+            return details;
+        }
+        String sql = "SELECT * FROM order_details WHERE order_id = ANY(?)";
+        try (RoutingContext.Scope readOnly = RoutingContext.readOnly();
+             Connection conn = ConnectionManager.getConnect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("integer", orderIds.toArray()));
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                details.add(mapToOrderDetail(rs));
+            }
+        }
+        return details;
+    }
+
+    public void deleteByOrderId(int orderId, LocalDateTime orderDate) throws DatabaseOperationException {
+        String sql = "DELETE FROM order_details WHERE order_id = ? AND order_date = ?";
         try (Connection conn = ConnectionManager.getConnect();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, orderId);
+            stmt.setTimestamp(2, Timestamp.valueOf(orderDate));
             int affectedRows = stmt.executeUpdate();
             if (affectedRows == 0) {
                 throw new DatabaseOperationException("No order details found with order_id: " + orderId);
@@ -107,6 +196,7 @@ public class OrderDetailRepository {
         detail.setCustomerName(rs.getString("customer_name"));
         detail.setOrderDescription(rs.getString("order_description"));
         detail.setCustomerContact(rs.getString("customer_contact"));
+        detail.setOrderDate(rs.getObject("order_date", LocalDateTime.class));
         return detail;
     }
 }
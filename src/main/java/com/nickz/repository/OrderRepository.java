@@ -1,25 +1,132 @@
 package com.nickz.repository;
 
 import com.nickz.dto.OrderCreateDto;
+import com.nickz.dto.OrderFilterDto;
 import com.nickz.entity.Order;
 import com.nickz.entity.OrderStatus;
 import com.nickz.exception.DatabaseOperationException;
 import com.nickz.util.ConnectionManager;
+import com.nickz.util.RoutingContext;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
+/**
+ * Orders are keyed by {@code (order_id, order_date)}, the date being the partition key, but an order id is unique
+ * across all dates: ids come from {@code orders_order_id_seq} and only {@code move_order} inserts an existing one.
+ * Every id is also registered in {@code order_ids}, whose primary key rejects any other insert of an id already
+ * stored under another date, concurrent ones included.
+ * <p>
+ * {@code order_ids} also keeps each order's current date. Queries for one order take that date from
+ * {@link #findDate} or {@link #lockDate} (or from the row already in hand) and bind it next to the id, so only the
+ * partition of the order's month is searched instead of every partition's index.
+ */
 public class OrderRepository {
 
+    /**
+     * Whole order document built by Postgres, with the same field names and layout Jackson produces for
+     * {@code OrderDto}, including {@code LocalDateTime} as a {@code [y,M,d,H,m(,s(,nanos))]} array.
+     * Selects from {@code orders o}; callers add the filter. The detail and products are matched on the order's
+     * date as well, so each subquery is pruned to the partition of the order's month.
+     */
+    static final String ORDER_DOCUMENT_SELECT = """
+            SELECT json_build_object(
+                'orderId', o.order_id,
+                'orderDate', CASE
+                    WHEN date_part('microseconds', o.order_date) = 0 THEN json_build_array(
+                        date_part('year', o.order_date)::int, date_part('month', o.order_date)::int,
+                        date_part('day', o.order_date)::int, date_part('hour', o.order_date)::int,
+                        date_part('minute', o.order_date)::int)
+                    WHEN date_part('microseconds', o.order_date)::bigint % 1000000 = 0 THEN json_build_array(
+                        date_part('year', o.order_date)::int, date_part('month', o.order_date)::int,
+                        date_part('day', o.order_date)::int, date_part('hour', o.order_date)::int,
+                        date_part('minute', o.order_date)::int,
+                        date_part('microseconds', o.order_date)::bigint / 1000000)
+                    ELSE json_build_array(
+                        date_part('year', o.order_date)::int, date_part('month', o.order_date)::int,
+                        date_part('day', o.order_date)::int, date_part('hour', o.order_date)::int,
+                        date_part('minute', o.order_date)::int,
+                        date_part('microseconds', o.order_date)::bigint / 1000000,
+                        date_part('microseconds', o.order_date)::bigint % 1000000 * 1000)
+                    END,
+                'status', o.status,
+                'orderDetail', (SELECT json_build_object(
+                        'detailId', d.detail_id,
+                        'orderId', d.order_id,
+                        'customerName', d.customer_name,
+                        'orderDescription', d.order_description,
+                        'customerContact', d.customer_contact)
+                    FROM order_details d WHERE d.order_id = o.order_id AND d.order_date = o.order_date),
+                'products', COALESCE((SELECT json_agg(json_build_object(
+                        'productId', p.product_id,
+                        'orderId', p.order_id,
+                        'name', p.name,
+                        'description', p.description,
+                        'price', p.price,
+                        'quantity', p.quantity) ORDER BY p.product_id)
+                    FROM products p WHERE p.order_id = o.order_id AND p.order_date = o.order_date), '[]'::json))
+            FROM orders o
+            """;
 
-    public Optional<Order> findById(int orderId) {
-        String sql = "SELECT * FROM orders WHERE order_id = ?";
+    private static final String ORDER_DOCUMENT_SQL = ORDER_DOCUMENT_SELECT + "WHERE o.order_id = ? AND o.order_date = ?";
+
+
+    /**
+     * The order's current date, looked up in {@code order_ids} by primary key. Empty if there is no such order.
+     */
+    public Optional<LocalDateTime> findDate(int orderId) {
+        String sql = "SELECT order_date FROM order_ids WHERE order_id = ?";
+        try (RoutingContext.Scope readOnly = RoutingContext.readOnly();
+             Connection conn = ConnectionManager.getConnect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, orderId);
+            return readDate(stmt);
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Error fetching date of order with ID: " + orderId, e);
+        }
+    }
+
+    /**
+     * Same as {@link #findDate}, but locks the order's {@code order_ids} row until the end of the transaction, as
+     * {@code move_order} does before changing the date, so the date stays current for the rest of a write.
+     */
+    public Optional<LocalDateTime> lockDate(int orderId) throws SQLException {
+        String sql = "SELECT order_date FROM order_ids WHERE order_id = ? FOR NO KEY UPDATE";
         try (Connection conn = ConnectionManager.getConnect();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, orderId);
+            return readDate(stmt);
+        }
+    }
+
+    private static Optional<LocalDateTime> readDate(PreparedStatement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery()) {
+            if (rs.next()) {
+                Timestamp date = rs.getTimestamp(1);
+                return date == null ? Optional.empty() : Optional.of(date.toLocalDateTime());
+            }
+        }
+        return Optional.empty();
+    }
+
+    public Optional<Order> findById(int orderId, LocalDateTime orderDate) {
+        String sql = "SELECT * FROM orders WHERE order_id = ? AND order_date = ?";
+        try (RoutingContext.Scope readOnly = RoutingContext.readOnly();
+             Connection conn = ConnectionManager.getConnect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, orderId);
+            stmt.setTimestamp(2, Timestamp.valueOf(orderDate));
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
                 return Optional.of(mapToOrder(rs));
@@ -30,10 +137,32 @@ public class OrderRepository {
         return Optional.empty();
     }
 
+    /**
+     * The order with its detail and products as UTF-8 JSON, assembled in a single query and returned as the
+     * driver's raw bytes, without materialising entities or strings.
+     */
+    public Optional<byte[]> findDocumentById(int orderId, LocalDateTime orderDate) {
+        try (RoutingContext.Scope readOnly = RoutingContext.readOnly();
+             Connection conn = ConnectionManager.getConnect();
+             PreparedStatement stmt = conn.prepareStatement(ORDER_DOCUMENT_SQL)) {
+            stmt.setInt(1, orderId);
+            stmt.setTimestamp(2, Timestamp.valueOf(orderDate));
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(rs.getBytes(1));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Error fetching order document with ID: " + orderId, e);
+        }
+        return Optional.empty();
+    }
+
     public List<Order> findAll() throws SQLException {
         List<Order> orders = new ArrayList<>();
         String sql = "SELECT * FROM orders";
-        try (Connection conn = ConnectionManager.getConnect();
+        try (RoutingContext.Scope readOnly = RoutingContext.readOnly();
+             Connection conn = ConnectionManager.getConnect();
              PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
@@ -43,8 +172,115 @@ public class OrderRepository {
         return orders;
     }
 
-    public int create(OrderCreateDto order) throws SQLException {
-        String sql = "INSERT INTO orders (order_date, status) VALUES (?, ?::order_status) RETURNING order_id";
+    /**
+     * Passes every order to {@code action} in id order while the rows are still being read. With auto-commit
+     * off (as inside a {@code UnitOfWork}) the driver keeps a server-side cursor and holds only
+     * {@code fetchSize} rows at a time; with auto-commit on it falls back to reading the whole result.
+     */
+    public void streamAll(int fetchSize, Consumer<Order> action) throws SQLException {
+        String sql = "SELECT * FROM orders ORDER BY order_id";
+        try (RoutingContext.Scope readOnly = RoutingContext.readOnly();
+             Connection conn = ConnectionManager.getConnect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setFetchSize(fetchSize);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(mapToOrder(rs));
+                }
+            }
+        }
+    }
+
+    /**
+     * Passes the id of every order to {@code action}, reading {@code fetchSize} rows at a time when auto-commit
+     * is off. Uses whatever connection the caller's unit of work routes to.
+     */
+    public void streamIds(int fetchSize, IntConsumer action) throws SQLException {
+        String sql = "SELECT order_id FROM orders";
+        try (Connection conn = ConnectionManager.getConnect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setFetchSize(fetchSize);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(rs.getInt(1));
+                }
+            }
+        }
+    }
+
+    /**
+     * Up to {@code limit} orders with an id greater than {@code afterId}, in id order. Seeks through the
+     * primary key index, so the cost does not grow with how deep the page is.
+     */
+    public List<Order> findPage(int afterId, int limit) throws SQLException {
+        List<Order> orders = new ArrayList<>(limit);
+        String sql = "SELECT * FROM orders WHERE order_id > ? ORDER BY order_id LIMIT ?";
+        try (RoutingContext.Scope readOnly = RoutingContext.readOnly();
+             Connection conn = ConnectionManager.getConnect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, afterId);
+            stmt.setInt(2, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    orders.add(mapToOrder(rs));
+                }
+            }
+        }
+        return orders;
+    }
+
+    /**
+     * The order's version, which database triggers raise on every change to the order, its detail or its
+     * products. Empty if there is no such order.
+     */
+    public OptionalLong findVersion(int orderId, LocalDateTime orderDate) {
+        String sql = "SELECT version FROM orders WHERE order_id = ? AND order_date = ?";
+        try (RoutingContext.Scope readOnly = RoutingContext.readOnly();
+             Connection conn = ConnectionManager.getConnect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, orderId);
+            stmt.setTimestamp(2, Timestamp.valueOf(orderDate));
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return OptionalLong.of(rs.getLong(1));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Error fetching version of order with ID: " + orderId, e);
+        }
+        return OptionalLong.empty();
+    }
+
+    /**
+     * Row count of {@code orders} as last estimated by ANALYZE/autovacuum, read from {@code pg_class} instead
+     * of scanning the table. The partitioned parent has no estimate of its own, so the partitions' estimates
+     * are summed. Empty if no partition has been analyzed yet.
+     */
+    public OptionalLong estimateCount() {
+        String sql = """
+                SELECT coalesce(sum(c.reltuples), -1)::bigint
+                FROM pg_partition_tree('orders') t JOIN pg_class c ON c.oid = t.relid
+                WHERE t.isleaf AND c.reltuples >= 0
+                """;
+        try (RoutingContext.Scope readOnly = RoutingContext.readOnly();
+             Connection conn = ConnectionManager.getConnect();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            if (rs.next() && rs.getLong(1) >= 0) {
+                return OptionalLong.of(rs.getLong(1));
+            }
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Error estimating order count", e);
+        }
+        return OptionalLong.empty();
+    }
+
+    /**
+     * Inserts the order dated now and returns it with its id and stored date, which its details and products
+     * must carry. The id comes from the sequence, never from the caller.
+     */
+    public Order create(OrderCreateDto order) throws SQLException {
+        String sql = "INSERT INTO orders (order_date, status) VALUES (?, ?::order_status) RETURNING order_id, order_date";
         try (Connection conn = ConnectionManager.getConnect();
              PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
@@ -58,7 +294,11 @@ public class OrderRepository {
 
             try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
-                    return generatedKeys.getInt(1);
+                    Order created = new Order();
+                    created.setOrderId(generatedKeys.getInt(1));
+                    created.setOrderDate(generatedKeys.getTimestamp(2).toLocalDateTime());
+                    created.setStatus(order.getStatus());
+                    return created;
                 } else {
                     throw new SQLException("Creating order failed, no ID obtained.");
                 }
@@ -66,13 +306,19 @@ public class OrderRepository {
         }
     }
 
+    /**
+     * Writes the order's date and status. The date must be the one stored: the database rejects changing it in
+     * place, see {@link #patch}. The stored date also selects the partition to update.
+     */
     public void update(Order order) throws DatabaseOperationException {
-        String sql = "UPDATE orders SET order_date = ?, status = ?::order_status WHERE order_id = ?";
+        String sql = "UPDATE orders SET order_date = ?, status = ?::order_status WHERE order_id = ? AND order_date = ?";
         try (Connection conn = ConnectionManager.getConnect();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setTimestamp(1, Timestamp.valueOf(order.getOrderDate()));
+            Timestamp orderDate = Timestamp.valueOf(order.getOrderDate());
+            stmt.setTimestamp(1, orderDate);
             stmt.setString(2, order.getStatus().name());
             stmt.setInt(3, order.getOrderId());
+            stmt.setTimestamp(4, orderDate);
 
             int affectedRows = stmt.executeUpdate();
             if (affectedRows == 0) {
@@ -83,11 +329,185 @@ public class OrderRepository {
         }
     }
 
-    public void delete(int orderId) throws DatabaseOperationException {
-        String sql = "DELETE FROM orders WHERE order_id = ?";
+    /**
+     * Sets only the given columns and reports whether the order exists, using {@code RETURNING} instead of
+     * reading the row first. {@code orderDate} is the order's current date. A new {@code order_date} is applied
+     * first with {@link #move}, since it can move the order to another partition; the other columns are then
+     * set in that partition.
+     */
+    public boolean patch(int orderId, LocalDateTime orderDate, Map<String, Object> changes) throws SQLException {
+        if (changes.containsKey("order_date")) {
+            orderDate = (LocalDateTime) changes.get("order_date");
+            if (!move(orderId, orderDate)) {
+                return false;
+            }
+            changes = new LinkedHashMap<>(changes);
+            changes.remove("order_date");
+            if (changes.isEmpty()) {
+                return true;
+            }
+        }
+        String sql = "UPDATE orders SET " + PatchSql.assignments(changes.keySet())
+                + " WHERE order_id = ? AND order_date = ? RETURNING order_id";
+        try (Connection conn = ConnectionManager.getConnect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int index = PatchSql.bind(stmt, 1, changes.values());
+            stmt.setInt(index++, orderId);
+            stmt.setTimestamp(index, Timestamp.valueOf(orderDate));
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * Gives the order a new date with the {@code move_order} function, which moves the order row, its detail and
+     * its products to the partition of that date together. Reports whether the order exists.
+     */
+    public boolean move(int orderId, LocalDateTime orderDate) throws SQLException {
+        String sql = "SELECT move_order(?, ?)";
+        try (Connection conn = ConnectionManager.getConnect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, orderId);
+            stmt.setTimestamp(2, Timestamp.valueOf(orderDate));
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    /**
+     * Creates the monthly partitions of orders, details and products up to {@code monthsAhead} months after the
+     * current one, skipping those that exist, and returns the number of partitions created.
+     */
+    public int createPartitions(int monthsAhead) throws SQLException {
+        String sql = "SELECT create_order_partitions(?)";
+        try (Connection conn = ConnectionManager.getConnect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, monthsAhead);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Locks the order row until the end of the transaction and reports whether it exists.
+     */
+    public boolean lock(int orderId, LocalDateTime orderDate) throws SQLException {
+        String sql = "SELECT order_id FROM orders WHERE order_id = ? AND order_date = ? FOR UPDATE";
+        try (Connection conn = ConnectionManager.getConnect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, orderId);
+            stmt.setTimestamp(2, Timestamp.valueOf(orderDate));
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * Up to {@code limit} ids of orders matching the filter with an id greater than {@code afterId}, in id
+     * order. Used to walk a filtered set in chunks for bulk changes, so it reads from the primary.
+     */
+    public List<Integer> findIds(OrderFilterDto filter, int afterId, int limit) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT order_id FROM orders WHERE order_id > ?");
+        if (filter.getStatus() != null) {
+            sql.append(" AND status = ?");
+        }
+        if (filter.getFrom() != null) {
+            sql.append(" AND order_date >= ?");
+        }
+        if (filter.getTo() != null) {
+            sql.append(" AND order_date < ?");
+        }
+        sql.append(" ORDER BY order_id LIMIT ?");
+        List<Integer> ids = new ArrayList<>(limit);
+        try (Connection conn = ConnectionManager.getConnect();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            int index = 1;
+            stmt.setInt(index++, afterId);
+            if (filter.getStatus() != null) {
+                stmt.setString(index++, filter.getStatus().name());
+            }
+            if (filter.getFrom() != null) {
+                stmt.setTimestamp(index++, Timestamp.valueOf(filter.getFrom()));
+            }
+            if (filter.getTo() != null) {
+                stmt.setTimestamp(index++, Timestamp.valueOf(filter.getTo()));
+            }
+            stmt.setInt(index, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Sets the status of all given orders in one statement; orders that already have it are not rewritten.
+     * Only the partitions of the orders' dates, read and locked in {@code order_ids} first, are searched.
+     *
+     * @return number of orders changed
+     */
+    public int updateStatus(Collection<Integer> orderIds, OrderStatus status) throws SQLException {
+        String sql = "UPDATE orders SET status = ?::order_status WHERE order_id = ANY(?) AND order_date = ANY(?)"
+                + " AND status <> ?";
+        try (Connection conn = ConnectionManager.getConnect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, status.name());
+            stmt.setArray(2, conn.createArrayOf("integer", orderIds.toArray()));
+            stmt.setArray(3, conn.createArrayOf("timestamp", lockDates(conn, orderIds)));
+            stmt.setString(4, status.name());
+            return stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Deletes all given orders in one statement; details and products go with them through the foreign keys.
+     * Only the partitions of the orders' dates, read and locked in {@code order_ids} first, are searched.
+     *
+     * @return number of orders deleted
+     */
+    public int deleteAll(Collection<Integer> orderIds) throws SQLException {
+        String sql = "DELETE FROM orders WHERE order_id = ANY(?) AND order_date = ANY(?)";
+        try (Connection conn = ConnectionManager.getConnect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("integer", orderIds.toArray()));
+            stmt.setArray(2, conn.createArrayOf("timestamp", lockDates(conn, orderIds)));
+            return stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * The distinct current dates of the given orders, read from {@code order_ids} with their rows locked in id
+     * order, so that {@code move_order} cannot change them before the statement using them runs.
+     */
+    private static Timestamp[] lockDates(Connection conn, Collection<Integer> orderIds) throws SQLException {
+        String sql = "SELECT order_date FROM order_ids WHERE order_id = ANY(?) ORDER BY order_id FOR NO KEY UPDATE";
+        Set<Timestamp> dates = new HashSet<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("integer", orderIds.toArray()));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Timestamp date = rs.getTimestamp(1);
+                    if (date != null) {
+                        dates.add(date);
+                    }
+                }
+            }
+        }
+        return dates.toArray(new Timestamp[0]);
+    }
+
+    public void delete(int orderId, LocalDateTime orderDate) throws DatabaseOperationException {
+        String sql = "DELETE FROM orders WHERE order_id = ? AND order_date = ?";
         try (Connection conn = ConnectionManager.getConnect();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, orderId);
+            stmt.setTimestamp(2, Timestamp.valueOf(orderDate));
             int affectedRows = stmt.executeUpdate();
             if (affectedRows == 0) {
                 throw new DatabaseOperationException("No order found with ID: " + orderId);
@@ -0,0 +1,48 @@
+package com.nickz.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.stream.Collectors;
+
+/**
+ * Pieces of the dynamic {@code UPDATE} statements used for partial updates. Column names come from the fixed
+ * lists in {@code OrderPatchDto}, never from user input.
+ */
+final class PatchSql {
+
+    private PatchSql() {
+    }
+
+    /**
+     * {@code a = ?, b = ?}
+     */
+    static String assignments(Collection<String> columns) {
+        return columns.stream().map(column -> column + " = ?").collect(Collectors.joining(", "));
+    }
+
+    /**
+     * {@code (a IS DISTINCT FROM ? OR b IS DISTINCT FROM ?)}, so rows that already hold the new values are not
+     * rewritten.
+     */
+    static String anyDistinct(Collection<String> columns) {
+        return columns.stream().map(column -> column + " IS DISTINCT FROM ?")
+                .collect(Collectors.joining(" OR ", "(", ")"));
+    }
+
+    /**
+     * Binds {@code values} from {@code index} on and returns the next free index. Nulls are sent untyped so
+     * Postgres infers the column's type.
+     */
+    static int bind(PreparedStatement stmt, int index, Collection<Object> values) throws SQLException {
+        for (Object value : values) {
+            if (value == null) {
+                stmt.setNull(index++, Types.OTHER);
+            } else {
+                stmt.setObject(index++, value);
+            }
+        }
+        return index;
+    }
+}
@@ -2,17 +2,25 @@ package com.nickz.repository;
 
 import com.nickz.entity.Product;
 import com.nickz.exception.DatabaseOperationException;
+import com.nickz.exception.OrderNotFoundException;
+import com.nickz.exception.OrderUpdateException;
 import com.nickz.util.ConnectionManager;
+import com.nickz.util.RoutingContext;
 
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class ProductRepository {
 
     public Product findById(int productId) throws SQLException {
         String sql = "SELECT * FROM products WHERE product_id = ?";
-        try (Connection conn = ConnectionManager.getConnect();
+        try (RoutingContext.Scope readOnly = RoutingContext.readOnly();
+             Connection conn = ConnectionManager.getConnect();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, productId);
             ResultSet rs = stmt.executeQuery();
@@ -26,7 +34,8 @@ public class ProductRepository {
     public List<Product> findAll() throws SQLException {
         List<Product> products = new ArrayList<>();
         String sql = "SELECT * FROM products";
-        try (Connection conn = ConnectionManager.getConnect();
+        try (RoutingContext.Scope readOnly = RoutingContext.readOnly();
+             Connection conn = ConnectionManager.getConnect();
              PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
@@ -36,8 +45,13 @@ public class ProductRepository {
         return products;
     }
 
+    /**
+     * Products are partitioned by the date of their order, so the product must carry it, see
+     * {@link Product#getOrderDate()}.
+     */
     public int create(Product product) throws SQLException {
-        String sql = "INSERT INTO products (order_id, name, description, price, quantity) VALUES (?, ?, ?, ?, ?) RETURNING product_id";
+        String sql = "INSERT INTO products (order_id, name, description, price, quantity, order_date)"
+                + " VALUES (?, ?, ?, ?, ?, ?) RETURNING product_id";
         try (Connection conn = ConnectionManager.getConnect();
              PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setInt(1, product.getOrderId());
@@ -45,6 +59,7 @@ public class ProductRepository {
             stmt.setString(3, product.getDescription());
             stmt.setBigDecimal(4, product.getPrice());
             stmt.setInt(5, product.getQuantity());
+            stmt.setTimestamp(6, Timestamp.valueOf(product.getOrderDate()));
 
             int affectedRows = stmt.executeUpdate();
 
@@ -62,17 +77,120 @@ public class ProductRepository {
         }
     }
 
+    /**
+     * Inserts all products with one JDBC batch instead of a statement per row. The driver pipelines the
+     * batch in a single round trip, and with {@code reWriteBatchedInserts=true} in the URL it also folds it
+     * into multi-row {@code INSERT ... VALUES} statements. Generated ids are not read back. Every product must
+     * carry its order's date.
+     */
+    public void createAll(Collection<Product> products) throws SQLException {
+        if (products.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO products (order_id, name, description, price, quantity, order_date)"
+                + " VALUES (?, ?, ?, ?, ?, ?)";
+        try (Connection conn = ConnectionManager.getConnect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Product product : products) {
+                stmt.setInt(1, product.getOrderId());
+                stmt.setString(2, product.getName());
+                stmt.setString(3, product.getDescription());
+                stmt.setBigDecimal(4, product.getPrice());
+                stmt.setInt(5, product.getQuantity());
+                stmt.setTimestamp(6, Timestamp.valueOf(product.getOrderDate()));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Applies per-product changes (keyed by product id) to products of the given order. Patches touching the
+     * same columns share one statement and are sent as one batch; products that already hold the new values
+     * are not rewritten. Products the batch left alone are looked up once more to tell them from unknown ids.
+     * {@code orderDate} is the order's current date, which its products share.
+     *
+     * @return number of products actually changed
+     * @throws OrderNotFoundException if a product id is not one of the order's products
+     */
+    public int patchAll(int orderId, LocalDateTime orderDate, Map<Integer, Map<String, Object>> changes)
+            throws SQLException {
+        Map<List<String>, Map<Integer, Map<String, Object>>> byColumns = new LinkedHashMap<>();
+        changes.forEach((productId, columns) -> byColumns
+                .computeIfAbsent(List.copyOf(columns.keySet()), key -> new LinkedHashMap<>())
+                .put(productId, columns));
+        int changed = 0;
+        List<Integer> unchanged = new ArrayList<>();
+        for (Map.Entry<List<String>, Map<Integer, Map<String, Object>>> group : byColumns.entrySet()) {
+            String sql = "UPDATE products SET " + PatchSql.assignments(group.getKey())
+                    + " WHERE product_id = ? AND order_id = ? AND order_date = ? AND "
+                    + PatchSql.anyDistinct(group.getKey());
+            try (Connection conn = ConnectionManager.getConnect();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (Map.Entry<Integer, Map<String, Object>> product : group.getValue().entrySet()) {
+                    int index = PatchSql.bind(stmt, 1, product.getValue().values());
+                    stmt.setInt(index++, product.getKey());
+                    stmt.setInt(index++, orderId);
+                    stmt.setTimestamp(index++, Timestamp.valueOf(orderDate));
+                    PatchSql.bind(stmt, index, product.getValue().values());
+                    stmt.addBatch();
+                }
+                int[] counts = stmt.executeBatch();
+                int i = 0;
+                for (Integer productId : group.getValue().keySet()) {
+                    int count = counts[i++];
+                    if (count == 0) {
+                        unchanged.add(productId);
+                    }
+                    changed += Math.max(count, 0);
+                }
+            }
+        }
+        if (!unchanged.isEmpty()) {
+            requireProducts(orderId, orderDate, unchanged);
+        }
+        return changed;
+    }
+
+    private void requireProducts(int orderId, LocalDateTime orderDate, List<Integer> productIds) throws SQLException {
+        String sql = "SELECT product_id FROM products WHERE order_id = ? AND order_date = ? AND product_id = ANY(?)";
+        List<Integer> missing = new ArrayList<>(productIds);
+        try (Connection conn = ConnectionManager.getConnect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, orderId);
+            stmt.setTimestamp(2, Timestamp.valueOf(orderDate));
+            stmt.setArray(3, conn.createArrayOf("integer", productIds.toArray()));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    missing.remove(Integer.valueOf(rs.getInt(1)));
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new OrderNotFoundException("Products " + missing + " not found in order with ID: " + orderId);
+        }
+    }
+
+    /**
+     * Writes all fields of the product; its {@code order_date} is taken from the order it belongs to.
+     *
+     * @throws OrderUpdateException if the product or its order does not exist
+     */
     public void update(Product product) throws SQLException {
-        String sql = "UPDATE products SET order_id = ?, name = ?, description = ?, price = ?, quantity = ? WHERE product_id = ?";
+        String sql = "UPDATE products p SET order_id = o.order_id, order_date = o.order_date, name = ?, description = ?,"
+                + " price = ?, quantity = ? FROM orders o WHERE o.order_id = ? AND p.product_id = ?";
         try (Connection conn = ConnectionManager.getConnect();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, product.getOrderId());
-            stmt.setString(2, product.getName());
-            stmt.setString(3, product.getDescription());
-            stmt.setBigDecimal(4, product.getPrice());
-            stmt.setInt(5, product.getQuantity());
+            stmt.setString(1, product.getName());
+            stmt.setString(2, product.getDescription());
+            stmt.setBigDecimal(3, product.getPrice());
+            stmt.setInt(4, product.getQuantity());
+            stmt.setInt(5, product.getOrderId());
             stmt.setInt(6, product.getProductId());
-            stmt.executeUpdate();
+            if (stmt.executeUpdate() == 0) {
+                throw new OrderUpdateException("Product " + product.getProductId() + " or order " + product.getOrderId()
+                        + " not found");
+            }
         }
     }
 
@@ -85,12 +203,38 @@ public class ProductRepository {
         }
     }
 
-    public List<Product> findByOrderId(int orderId) throws SQLException {
+    /**
+     * Products of the order with the given id and current date; the date limits the search to one partition.
+     */
+    public List<Product> findByOrderId(int orderId, LocalDateTime orderDate) throws SQLException {
         List<Product> products = new ArrayList<>();
-        String sql = "SELECT * FROM products WHERE order_id = ?";
-        try (Connection conn = ConnectionManager.getConnect();
+        String sql = "SELECT * FROM products WHERE order_id = ? AND order_date = ?";
+        try (RoutingContext.Scope readOnly = RoutingContext.readOnly();
+             Connection conn = ConnectionManager.getConnect();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, orderId);
+            stmt.setTimestamp(2, Timestamp.valueOf(orderDate));
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                products.add(mapToProduct(rs));
+            }
+        }
+        return products;
+    }
+
+    /**
+     * Products of all the given orders in one round trip.
+     */
+    public List<Product> findByOrderIds(Collection<Integer> orderIds) throws SQLException {
+        List<Product> products = new ArrayList<>();
+        if (orderIds.isEmpty()) {
+            return products;
+        }
+        String sql = "SELECT * FROM products WHERE order_id = ANY(?)";
+        try (RoutingContext.Scope readOnly = RoutingContext.readOnly();
+             Connection conn = ConnectionManager.getConnect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("integer", orderIds.toArray()));
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
                 products.add(mapToProduct(rs));
@@ -98,11 +242,13 @@ public class ProductRepository {
         }
         return products;
     }
-    public void deleteByOrderId(int orderId) throws DatabaseOperationException {
-        String sql = "DELETE FROM products WHERE order_id = ?";
+
+    public void deleteByOrderId(int orderId, LocalDateTime orderDate) throws DatabaseOperationException {
+        String sql = "DELETE FROM products WHERE order_id = ? AND order_date = ?";
         try (Connection conn = ConnectionManager.getConnect();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, orderId);
+            stmt.setTimestamp(2, Timestamp.valueOf(orderDate));
             int affectedRows = stmt.executeUpdate();
             if (affectedRows == 0) {
                 throw new DatabaseOperationException("No products found with order ID: " + orderId);
@@ -120,6 +266,7 @@ public class ProductRepository {
         product.setDescription(rs.getString("description"));
         product.setPrice(rs.getBigDecimal("price"));
         product.setQuantity(rs.getInt("quantity"));
+        product.setOrderDate(rs.getObject("order_date", LocalDateTime.class));
         return product;
     }
 }
@@ -0,0 +1,366 @@
+package com.nickz.service;
+
+import com.nickz.util.AppConfig;
+import com.nickz.util.OrderChangeListener;
+import com.nickz.util.SingleFlight;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialized orders by order id, as sent for {@code GET /orders/{id}}: the UTF-8 JSON body, the order version
+ * it was built from and, optionally, a gzip-compressed copy made once when the entry is stored. The same entry
+ * serves the database-built document and the Jackson-serialized {@code OrderDto}, whichever the loader
+ * produces. Bounded by {@code maxSize} with least-recently-used eviction and an optional time to live.
+ * <p>
+ * A load and an invalidation of the same id can race: the loader may read the row just before a writer
+ * commits and try to store it just after the writer has invalidated. Every load therefore takes a token that
+ * {@link #invalidate(int)} revokes, and the loaded value is only stored if its token is still valid.
+ * Writers invalidate after their transaction has committed. Changes made by other nodes arrive through
+ * {@link OrderChangeListener}. Bodies that changed while being loaded are returned but never stored.
+ * <p>
+ * Concurrent misses for the same order share one load through {@link SingleFlight}, also when caching is
+ * disabled, and so do concurrent {@link #getVersion(int, LongSupplier) version lookups}. Invalidating an
+ * order detaches its loads in progress, so lookups made after a write never join a load that started before it.
+ */
+public class OrderCache implements OrderChangeListener.Subscriber {
+
+    /**
+     * Bodies shorter than this are not worth compressing.
+     */
+    static final int GZIP_MIN_BYTES = 256;
+
+    public static final class Entry {
+        private final long version;
+        private final boolean stable;
+        private final byte[] body;
+        private final byte[] gzipped;
+        private final long expiresAt;
+
+        private Entry(long version, boolean stable, byte[] body, byte[] gzipped, long expiresAt) {
+            this.version = version;
+            this.stable = stable;
+            this.body = body;
+            this.gzipped = gzipped;
+            this.expiresAt = expiresAt;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * False if the order changed while the body was loaded; the body then has no reliable version and was
+         * not cached.
+         */
+        public boolean isStable() {
+            return stable;
+        }
+
+        /**
+         * The UTF-8 JSON body. Shared by all callers, must not be modified.
+         */
+        public byte[] getBody() {
+            return body;
+        }
+
+        /**
+         * The body gzip-compressed, or {@code null} if it was not compressed. Must not be modified.
+         */
+        public byte[] getGzipped() {
+            return gzipped;
+        }
+
+        int size() {
+            return body.length + (gzipped == null ? 0 : gzipped.length);
+        }
+    }
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final boolean gzip;
+    private final LongSupplier clock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Integer, Entry> entries;
+    private final Map<Integer, Object> loading = new HashMap<>();
+    private final SingleFlight<Integer, Entry> inFlight = new SingleFlight<>();
+    private final SingleFlight<Integer, Long> versionLookups = new SingleFlight<>();
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder discardedLoads = new LongAdder();
+
+    /**
+     * @param maxSize    maximum number of orders kept; 0 disables caching
+     * @param ttlSeconds how long an entry stays valid after being loaded; 0 means until evicted or invalidated
+     * @param gzip       whether to store a compressed copy of each body as well
+     */
+    public OrderCache(int maxSize, long ttlSeconds, boolean gzip) {
+        this(maxSize, ttlSeconds, gzip, System::nanoTime);
+    }
+
+    /**
+     * Same as {@link #OrderCache(int, long, boolean)} with the time source for expiry supplied, in nanoseconds.
+     */
+    public OrderCache(int maxSize, long ttlSeconds, boolean gzip, LongSupplier clock) {
+        if (maxSize < 0 || ttlSeconds < 0) {
+            throw new IllegalArgumentException("maxSize and ttlSeconds must not be negative");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.gzip = gzip;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                if (size() > OrderCache.this.maxSize) {
+                    bytes -= eldest.getValue().size();
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public static OrderCache fromConfig(AppConfig config) {
+        return new OrderCache(config.getInt("orders.cache.maxSize", 10_000),
+                config.getLong("orders.cache.ttlSeconds", 60),
+                config.getBoolean("orders.cache.gzip", true));
+    }
+
+    /**
+     * Returns the cached entry of the order, or loads its body with {@code loader} and caches it unless the
+     * load was not stable or the id was invalidated while loading. Exceptions from the loader are passed
+     * through and nothing is cached.
+     */
+    public Entry get(int orderId, Supplier<Versioned<byte[]>> loader) {
+        if (maxSize == 0) {
+            return inFlight.run(orderId, () -> build(loader.get()));
+        }
+        Object token = new Object();
+        lock.lock();
+        try {
+            Entry entry = live(orderId);
+            if (entry != null) {
+                hits.increment();
+                return entry;
+            }
+            misses.increment();
+            loading.put(orderId, token);
+        } finally {
+            lock.unlock();
+        }
+        Entry loaded;
+        try {
+            loaded = inFlight.run(orderId, () -> build(loader.get()));
+        } catch (RuntimeException | Error e) {
+            lock.lock();
+            try {
+                loading.remove(orderId, token);
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+        lock.lock();
+        try {
+            if (loading.remove(orderId, token) && loaded.stable) {
+                Entry previous = entries.put(orderId, loaded);
+                if (previous != null) {
+                    bytes -= previous.size();
+                }
+                bytes += loaded.size();
+            } else {
+                discardedLoads.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return loaded;
+    }
+
+    /**
+     * The version of the cached entry of the order, or else the version read by {@code loader}, with
+     * concurrent lookups of the same order sharing one read. Lets conditional requests be answered without a
+     * query while the order is cached. Not counted as a hit or miss; the body lookup that may follow is.
+     */
+    public long getVersion(int orderId, LongSupplier loader) {
+        if (maxSize > 0) {
+            lock.lock();
+            try {
+                Entry entry = live(orderId);
+                if (entry != null) {
+                    return entry.version;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return versionLookups.run(orderId, loader::getAsLong);
+    }
+
+    /**
+     * Drops the order and makes any load of it that is still in progress discard its result.
+     */
+    public void invalidate(int orderId) {
+        inFlight.forget(orderId);
+        versionLookups.forget(orderId);
+        if (maxSize == 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            Entry removed = entries.remove(orderId);
+            if (removed != null) {
+                bytes -= removed.size();
+            }
+            loading.remove(orderId);
+            invalidations.increment();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll(Iterable<Integer> orderIds) {
+        for (Integer orderId : orderIds) {
+            invalidate(orderId);
+        }
+    }
+
+    @Override
+    public void ordersChanged(Collection<Integer> orderIds) {
+        invalidateAll(orderIds);
+    }
+
+    @Override
+    public void allOrdersChanged() {
+        clear();
+    }
+
+    public void clear() {
+        inFlight.forgetAll();
+        versionLookups.forgetAll();
+        lock.lock();
+        try {
+            entries.clear();
+            loading.clear();
+            bytes = 0;
+            invalidations.increment();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Total size of the cached bodies, compressed copies included.
+     */
+    public long getBytes() {
+        lock.lock();
+        try {
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    /**
+     * Loads whose result was not cached because the order was invalidated or changed while they ran.
+     */
+    public long getDiscardedLoads() {
+        return discardedLoads.sum();
+    }
+
+    /**
+     * Lookups of a body or a version that waited for another thread's load of the same order instead of
+     * querying the database.
+     */
+    public long getCoalescedLoads() {
+        return inFlight.getCoalesced() + versionLookups.getCoalesced();
+    }
+
+    /**
+     * The entry of the order if it has not expired; expired entries are dropped. Called with the lock held.
+     */
+    private Entry live(int orderId) {
+        Entry entry = entries.get(orderId);
+        if (entry == null || ttlNanos == 0 || clock.getAsLong() - entry.expiresAt < 0) {
+            return entry;
+        }
+        entries.remove(orderId);
+        bytes -= entry.size();
+        expirations.increment();
+        return null;
+    }
+
+    private Entry build(Versioned<byte[]> loaded) {
+        byte[] body = loaded.getValue();
+        byte[] gzipped = gzip && loaded.isStable() && body.length >= GZIP_MIN_BYTES ? compress(body) : null;
+        return new Entry(loaded.getVersion(), loaded.isStable(), body, gzipped, clock.getAsLong() + ttlNanos);
+    }
+
+    private static byte[] compress(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] gzipped = out.toByteArray();
+        return gzipped.length < body.length ? gzipped : null;
+    }
+}
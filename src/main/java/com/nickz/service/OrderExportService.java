@@ -0,0 +1,75 @@
+package com.nickz.service;
+
+import com.nickz.exception.DatabaseOperationException;
+import com.nickz.repository.OrderCopyRepository;
+import com.nickz.util.UnitOfWork;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * Full order history for reporting, produced by {@code COPY ... TO STDOUT} and written straight to the
+ * caller's stream without building Java objects per row.
+ */
+public class OrderExportService {
+
+    public enum Format {
+        CSV("text/csv", "csv"), NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * @throws IllegalArgumentException for anything other than {@code csv} or {@code ndjson}
+         */
+        public static Format of(String name) {
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unsupported export format: " + name);
+            }
+        }
+    }
+
+    private final OrderCopyRepository copyRepository;
+
+    public OrderExportService(OrderCopyRepository copyRepository) {
+        this.copyRepository = copyRepository;
+    }
+
+    /**
+     * Writes all orders to {@code out} in the given format and returns the number of rows written.
+     * Failures writing to {@code out} (such as the client going away) are rethrown as they are.
+     */
+    public long exportOrders(Format format, OutputStream out) throws IOException {
+        try {
+            return UnitOfWork.read(() -> {
+                try {
+                    return format == Format.CSV ? copyRepository.exportCsv(out) : copyRepository.exportNdjson(out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } catch (SQLException e) {
+                    throw new DatabaseOperationException("Failed to export orders", e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
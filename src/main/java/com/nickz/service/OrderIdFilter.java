@@ -0,0 +1,338 @@
+package com.nickz.service;
+
+import com.nickz.util.AppConfig;
+import com.nickz.util.OrderChangeListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * One bit per order id, so lookups of ids that do not exist can be answered without the database. Order ids
+ * come from a sequence, so a bitmap up to the highest id costs an eighth of a byte per id ever issued.
+ * <p>
+ * The filter only answers "definitely absent" when it is complete: after {@link #rebuild()} has scanned every
+ * id and while {@link OrderChangeListener} is connected and reporting orders created on any node. Until then it
+ * lets every lookup through; a scan that fails is retried after {@code retryDelayMs}, doubling up to
+ * {@value #MAX_RETRY_DELAY_MS} ms. Deleted ids are cleared by this node only; one deleted elsewhere stays set,
+ * which just costs a query.
+ * <p>
+ * Orders created on other nodes become known only when their notification arrives, and concurrent transactions
+ * may commit out of id order. Ids above the highest known one are therefore always let through, as are ids
+ * within {@code slack} below it. Only gaps further down, which the sequence has moved past for good, are
+ * rejected.
+ */
+public class OrderIdFilter implements OrderChangeListener.Subscriber {
+
+    private static final class Bitmap {
+        volatile AtomicLongArray words = new AtomicLongArray(16);
+        volatile int maxId;
+
+        boolean contains(int id) {
+            AtomicLongArray current = words;
+            int index = id >>> 6;
+            return index < current.length() && (current.get(index) & (1L << id)) != 0;
+        }
+
+        /**
+         * Callers serialize writes; readers may run concurrently.
+         */
+        void add(int id) {
+            int index = id >>> 6;
+            AtomicLongArray current = words;
+            if (index >= current.length()) {
+                AtomicLongArray grown = new AtomicLongArray(Math.max(index + 1, current.length() * 2));
+                for (int i = 0; i < current.length(); i++) {
+                    grown.set(i, current.get(i));
+                }
+                words = grown;
+                current = grown;
+            }
+            current.set(index, current.get(index) | 1L << id);
+            // after the bit, so a reader that sees the new maximum also sees the bit
+            if (id > maxId) {
+                maxId = id;
+            }
+        }
+
+        void remove(int id) {
+            AtomicLongArray current = words;
+            int index = id >>> 6;
+            if (index < current.length()) {
+                current.set(index, current.get(index) & ~(1L << id));
+            }
+        }
+    }
+
+    /**
+     * Default number of ids below the highest known one that are let through without being known.
+     */
+    public static final int DEFAULT_SLACK = 1000;
+
+    public static final long DEFAULT_RETRY_DELAY_MS = TimeUnit.SECONDS.toMillis(1);
+    private static final long MAX_RETRY_DELAY_MS = TimeUnit.SECONDS.toMillis(30);
+
+    private final boolean enabled;
+    private final int slack;
+    private final long retryDelayMs;
+    private final Consumer<IntConsumer> scan;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private volatile Bitmap bitmap = new Bitmap();
+    private volatile boolean complete;
+    private volatile boolean stopped;
+    private List<Integer> addedDuringRebuild;
+    private ScheduledExecutorService retries;
+    private long nextRetryDelayMs;
+
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+
+    /**
+     * @param scan passes every existing order id to the given consumer; called by {@link #rebuild()}
+     */
+    public OrderIdFilter(boolean enabled, Consumer<IntConsumer> scan) {
+        this(enabled, DEFAULT_SLACK, scan);
+    }
+
+    /**
+     * @param slack how far below the highest known id an unknown id is still let through
+     * @param scan  passes every existing order id to the given consumer; called by {@link #rebuild()}
+     */
+    public OrderIdFilter(boolean enabled, int slack, Consumer<IntConsumer> scan) {
+        this(enabled, slack, DEFAULT_RETRY_DELAY_MS, scan);
+    }
+
+    /**
+     * @param retryDelayMs delay before the first retry of a failed scan
+     */
+    public OrderIdFilter(boolean enabled, int slack, long retryDelayMs, Consumer<IntConsumer> scan) {
+        if (slack < 0 || retryDelayMs <= 0) {
+            throw new IllegalArgumentException("slack must not be negative and retryDelayMs must be positive");
+        }
+        this.enabled = enabled;
+        this.slack = slack;
+        this.retryDelayMs = retryDelayMs;
+        this.nextRetryDelayMs = retryDelayMs;
+        this.scan = scan;
+    }
+
+    public static OrderIdFilter fromConfig(AppConfig config, Consumer<IntConsumer> scan) {
+        return new OrderIdFilter(config.getBoolean("orders.idFilter.enabled", true),
+                config.getInt("orders.idFilter.slack", DEFAULT_SLACK),
+                config.getLong("orders.idFilter.retryDelayMs", DEFAULT_RETRY_DELAY_MS), scan);
+    }
+
+    /**
+     * {@code false} only if the order certainly does not exist.
+     */
+    public boolean mightExist(int orderId) {
+        if (!complete) {
+            return true;
+        }
+        if (orderId <= 0) {
+            rejections.increment();
+            return false;
+        }
+        Bitmap current = bitmap;
+        if (current.contains(orderId)) {
+            return true;
+        }
+        // may have been created by another node, or committed out of order, and not announced yet
+        if (orderId > current.maxId - slack) {
+            return true;
+        }
+        rejections.increment();
+        return false;
+    }
+
+    public void add(int orderId) {
+        if (!enabled || orderId <= 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            bitmap.add(orderId);
+            if (addedDuringRebuild != null) {
+                addedDuringRebuild.add(orderId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void addAll(Collection<Integer> orderIds) {
+        for (Integer orderId : orderIds) {
+            add(orderId);
+        }
+    }
+
+    /**
+     * Called once the order's deletion has committed.
+     */
+    public void remove(int orderId) {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            bitmap.remove(orderId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the bitmap with a fresh scan of all ids. Lookups pass through while it runs; ids added meanwhile
+     * are carried over. If the scan fails the filter stays open, the failure is rethrown and the scan is retried
+     * in the background until it succeeds or the listener disconnects.
+     */
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        rebuildLock.lock();
+        try {
+            lock.lock();
+            try {
+                complete = false;
+                addedDuringRebuild = new ArrayList<>();
+            } finally {
+                lock.unlock();
+            }
+            Bitmap next = new Bitmap();
+            boolean scanned = false;
+            try {
+                scan.accept(next::add);
+                scanned = true;
+            } finally {
+                lock.lock();
+                try {
+                    if (scanned) {
+                        addedDuringRebuild.forEach(next::add);
+                        bitmap = next;
+                        complete = !stopped;
+                        nextRetryDelayMs = retryDelayMs;
+                        rebuilds.increment();
+                    } else {
+                        scheduleRetry();
+                    }
+                    addedDuringRebuild = null;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Called with {@link #lock} held.
+     */
+    private void scheduleRetry() {
+        if (stopped) {
+            return;
+        }
+        if (retries == null) {
+            retries = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "order-id-filter-retry");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        long delayMs = nextRetryDelayMs;
+        nextRetryDelayMs = Math.min(delayMs * 2, MAX_RETRY_DELAY_MS);
+        retries.schedule(this::retry, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void retry() {
+        if (stopped || complete) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            System.err.println("Order id filter rebuild failed, retrying: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void ordersCreated(Collection<Integer> orderIds) {
+        addAll(orderIds);
+    }
+
+    @Override
+    public void ordersChanged(Collection<Integer> orderIds) {
+        // existing orders only; creations arrive through ordersCreated
+    }
+
+    /**
+     * Updates and deletes too large to list. They cannot add ids, so the bitmap stays as it is.
+     */
+    @Override
+    public void allOrdersChanged() {
+    }
+
+    /**
+     * Sent on every (re)connect of the listener and for inserts too large to list.
+     */
+    @Override
+    public void unlistedOrdersCreated() {
+        lock.lock();
+        try {
+            stopped = false;
+        } finally {
+            lock.unlock();
+        }
+        rebuild();
+    }
+
+    @Override
+    public void listeningStopped() {
+        lock.lock();
+        try {
+            stopped = true;
+            complete = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Whether misses are currently being rejected.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Lookups answered as missing without querying the database.
+     */
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    public long getRebuilds() {
+        return rebuilds.sum();
+    }
+
+    /**
+     * Memory held by the bitmap.
+     */
+    public long getBytes() {
+        return bitmap.words.length() * (long) Long.BYTES;
+    }
+}
@@ -0,0 +1,149 @@
+package com.nickz.service;
+
+import com.nickz.dto.BulkImportResultDto;
+import com.nickz.dto.OrderDto;
+import com.nickz.entity.OrderDetail;
+import com.nickz.entity.Product;
+import com.nickz.exception.OrderCreationException;
+import com.nickz.repository.OrderCopyRepository;
+import com.nickz.util.UnitOfWork;
+
+import java.io.StringReader;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads a stream of orders with {@code COPY}, one chunk at a time, in a single transaction. For each chunk a
+ * block of order ids is reserved from the sequence, then orders, details and products are copied in that order
+ * so foreign keys hold; details and products carry their order's date, by which all three are partitioned.
+ * Only one chunk is held in memory, whatever the size of the input.
+ * <p>
+ * Input orders use the {@link OrderDto} layout; {@code orderId} is ignored and a missing {@code orderDate}
+ * means now.
+ */
+public class OrderImportService {
+
+    private final OrderCopyRepository copyRepository;
+    private final int chunkSize;
+
+    public OrderImportService(OrderCopyRepository copyRepository, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.copyRepository = copyRepository;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports every order from {@code source}. Either all of them are stored or, if anything fails
+     * (including reading the source), none are.
+     */
+    public BulkImportResultDto importOrders(Iterator<OrderDto> source) {
+        long start = System.nanoTime();
+        BulkImportResultDto result = new BulkImportResultDto();
+        UnitOfWork.write(() -> {
+            List<OrderDto> chunk = new ArrayList<>(chunkSize);
+            StringBuilder rows = new StringBuilder();
+            while (source.hasNext()) {
+                chunk.add(source.next());
+                if (chunk.size() == chunkSize) {
+                    copyChunk(chunk, rows, result);
+                }
+            }
+            copyChunk(chunk, rows, result);
+        });
+        long elapsedNanos = Math.max(System.nanoTime() - start, 1);
+        long rowsTotal = result.getOrders() + result.getOrderDetails() + result.getProducts();
+        result.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        result.setRowsPerSecond(rowsTotal * TimeUnit.SECONDS.toNanos(1) / elapsedNanos);
+        System.out.println("Bulk import: " + result.getOrders() + " orders, " + rowsTotal + " rows in "
+                + result.getElapsedMillis() + " ms (" + result.getRowsPerSecond() + " rows/s)");
+        return result;
+    }
+
+    private void copyChunk(List<OrderDto> chunk, StringBuilder rows, BulkImportResultDto result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            List<Integer> ids = copyRepository.reserveOrderIds(chunk.size());
+            LocalDateTime now = LocalDateTime.now();
+            List<LocalDateTime> dates = new ArrayList<>(chunk.size());
+
+            rows.setLength(0);
+            for (int i = 0; i < chunk.size(); i++) {
+                OrderDto order = chunk.get(i);
+                if (order.getStatus() == null) {
+                    throw new IllegalArgumentException("Order status is required");
+                }
+                dates.add(order.getOrderDate() == null ? now : order.getOrderDate());
+                rows.append(ids.get(i)).append('\t')
+                        .append(dates.get(i)).append('\t')
+                        .append(order.getStatus().name()).append('\n');
+            }
+            result.setOrders(result.getOrders() + copyRepository.copyOrders(new StringReader(rows.toString())));
+
+            rows.setLength(0);
+            for (int i = 0; i < chunk.size(); i++) {
+                OrderDetail detail = chunk.get(i).getOrderDetail();
+                if (detail != null) {
+                    rows.append(ids.get(i)).append('\t').append(dates.get(i)).append('\t');
+                    appendText(rows, detail.getCustomerName()).append('\t');
+                    appendText(rows, detail.getOrderDescription()).append('\t');
+                    appendText(rows, detail.getCustomerContact()).append('\n');
+                }
+            }
+            if (rows.length() > 0) {
+                result.setOrderDetails(result.getOrderDetails()
+                        + copyRepository.copyOrderDetails(new StringReader(rows.toString())));
+            }
+
+            rows.setLength(0);
+            for (int i = 0; i < chunk.size(); i++) {
+                List<Product> products = chunk.get(i).getProducts();
+                if (products == null) {
+                    continue;
+                }
+                for (Product product : products) {
+                    rows.append(ids.get(i)).append('\t').append(dates.get(i)).append('\t');
+                    appendText(rows, product.getName()).append('\t');
+                    appendText(rows, product.getDescription()).append('\t');
+                    appendText(rows, product.getPrice() == null ? null : product.getPrice().toPlainString())
+                            .append('\t');
+                    rows.append(product.getQuantity()).append('\n');
+                }
+            }
+            if (rows.length() > 0) {
+                result.setProducts(result.getProducts()
+                        + copyRepository.copyProducts(new StringReader(rows.toString())));
+            }
+        } catch (SQLException e) {
+            throw new OrderCreationException("Failed to import orders", e);
+        }
+        chunk.clear();
+    }
+
+    /**
+     * Appends a value in COPY text format: {@code \N} for null, with backslash, tab and line breaks escaped.
+     */
+    private static StringBuilder appendText(StringBuilder rows, String value) {
+        if (value == null) {
+            return rows.append("\\N");
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> rows.append("\\\\");
+                case '\t' -> rows.append("\\t");
+                case '\n' -> rows.append("\\n");
+                case '\r' -> rows.append("\\r");
+                default -> rows.append(c);
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,81 @@
+package com.nickz.service;
+
+import com.nickz.repository.OrderRepository;
+import com.nickz.util.AppConfig;
+
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the monthly partitions of orders, details and products created ahead of time, so new orders land in
+ * their month's partition rather than the default one. Runs once at start and then periodically on a daemon
+ * thread. Partitions that exist are skipped and the database serializes concurrent runs, so every node may run
+ * it. Old months are never dropped here; see {@code detach_order_partitions}.
+ */
+public class OrderPartitionMaintenance implements AutoCloseable {
+
+    private final OrderRepository orderRepository;
+    private final int monthsAhead;
+    private final long periodMs;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param monthsAhead months after the current one to create partitions for
+     * @param periodMs    time between runs; 0 disables the maintenance
+     */
+    public OrderPartitionMaintenance(OrderRepository orderRepository, int monthsAhead, long periodMs) {
+        if (monthsAhead < 0 || periodMs < 0) {
+            throw new IllegalArgumentException("monthsAhead and periodMs must not be negative");
+        }
+        this.orderRepository = orderRepository;
+        this.monthsAhead = monthsAhead;
+        this.periodMs = periodMs;
+    }
+
+    public static OrderPartitionMaintenance fromConfig(AppConfig config, OrderRepository orderRepository) {
+        return new OrderPartitionMaintenance(orderRepository,
+                config.getInt("orders.partitions.monthsAhead", 3),
+                config.getLong("orders.partitions.checkPeriodMs", TimeUnit.HOURS.toMillis(6)));
+    }
+
+    public synchronized void start() {
+        if (periodMs == 0 || scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-partition-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::createPartitions, 0, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates missing partitions now. Failures are logged and retried on the next run; until then new orders
+     * of a missing month go to the default partition.
+     *
+     * @return number of partitions created
+     */
+    public int createPartitions() {
+        try {
+            int created = orderRepository.createPartitions(monthsAhead);
+            if (created > 0) {
+                System.out.println("Created " + created + " order partitions");
+            }
+            return created;
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Order partition maintenance failed: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package com.nickz.service;
 
+import com.nickz.dto.OrderBatchDto;
+import com.nickz.dto.OrderBatchResultDto;
 import com.nickz.dto.OrderCreateDto;
 import com.nickz.dto.OrderDto;
+import com.nickz.dto.OrderPageDto;
+import com.nickz.dto.OrderPatchDto;
 import com.nickz.entity.Order;
 import com.nickz.entity.OrderDetail;
 import com.nickz.entity.Product;
@@ -9,119 +13,535 @@ import com.nickz.exception.*;
 import com.nickz.repository.OrderDetailRepository;
 import com.nickz.repository.OrderRepository;
 import com.nickz.repository.ProductRepository;
+import com.nickz.util.AppConfig;
+import com.nickz.util.UnitOfWork;
 
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
 
 public class OrderService {
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private static final int ID_BATCH_SIZE = 1000;
+    private static final String CURSOR_PREFIX = "o:";
+
     private final OrderRepository orderRepository;
     private final OrderDetailRepository orderDetailRepository;
     private final ProductRepository productRepository;
+    private final OrderCache cache;
+    private final OrderIdFilter idFilter;
 
     public OrderService(OrderRepository orderRepository, OrderDetailRepository orderDetailRepository, ProductRepository productRepository) {
         this.orderRepository = orderRepository;
         this.orderDetailRepository = orderDetailRepository;
         this.productRepository = productRepository;
+        this.cache = OrderCache.fromConfig(AppConfig.get());
+        this.idFilter = OrderIdFilter.fromConfig(AppConfig.get(), this::scanOrderIds);
+    }
+
+    /**
+     * Cache of serialized orders for {@code GET /orders/{id}}, filled from {@link #getVersionedOrderDocument(int)}
+     * or {@link #getVersionedOrder(int)}. Every write method invalidates the orders it touched once its
+     * transaction has committed; new orders need nothing, since only existing ones are cached.
+     */
+    public OrderCache getCache() {
+        return cache;
     }
 
+    /**
+     * Existence filter consulted before every lookup by id. It rejects nothing until it has been built, which
+     * happens when it is subscribed to an {@code OrderChangeListener}.
+     */
+    public OrderIdFilter getIdFilter() {
+        return idFilter;
+    }
+
+    /**
+     * The order read from the database. Not cached: HTTP reads go through {@link #getCache()}.
+     */
     public OrderDto getOrderById(int orderId) {
-        return orderRepository.findById(orderId).map(order -> {
+        requireKnown(orderId);
+        return UnitOfWork.read(() -> findWithDate(orderId, date -> findOrder(orderId, date)))
+                .orElseThrow(() -> new OrderNotFoundException("Order not found with ID: " + orderId));
+    }
+
+    /**
+     * Same order as {@link #getOrderById(int)}, as JSON produced by the database in one round trip.
+     */
+    public byte[] getOrderDocument(int orderId) {
+        requireKnown(orderId);
+        return UnitOfWork.read(() -> findWithDate(orderId, date -> orderRepository.findDocumentById(orderId, date)))
+                .orElseThrow(() -> new OrderNotFoundException("Order not found with ID: " + orderId));
+    }
+
+    /**
+     * The order's current version, for conditional requests that should not load the whole order. Taken from
+     * {@link #getCache()} while the order is cached; otherwise read once for all concurrent callers, from the
+     * primary, so a lagging replica cannot confirm an outdated ETag.
+     */
+    public long getOrderVersion(int orderId) {
+        requireKnown(orderId);
+        return cache.getVersion(orderId, () -> UnitOfWork.readPrimary(() -> findWithDate(orderId,
+                        date -> boxed(orderRepository.findVersion(orderId, date))))
+                .orElseThrow(() -> new OrderNotFoundException("Order not found with ID: " + orderId)));
+    }
+
+    /**
+     * {@link #getOrderDocument(int)} with the version it was built from.
+     */
+    public Versioned<byte[]> getVersionedOrderDocument(int orderId) {
+        return versioned(orderId, date -> orderRepository.findDocumentById(orderId, date)
+                .orElseThrow(() -> new OrderNotFoundException("Order not found with ID: " + orderId)));
+    }
+
+    /**
+     * {@link #getOrderById(int)} with the version it was read at.
+     */
+    public Versioned<OrderDto> getVersionedOrder(int orderId) {
+        return versioned(orderId, date -> findOrder(orderId, date)
+                .orElseThrow(() -> new OrderNotFoundException("Order not found with ID: " + orderId)));
+    }
+
+    /**
+     * Reads the version, then the value, then the version again on one connection, all with the date the
+     * version was found under. Each statement sees everything committed before it started, so if both versions
+     * agree the value belongs to that version; an order moved in between has no second version under the old
+     * date and is reported inconsistent. Reads the primary: the result fills the cache after an invalidation,
+     * and a lagging replica would put the old order back as current.
+     */
+    private <T> Versioned<T> versioned(int orderId, Function<LocalDateTime, T> loader) {
+        requireKnown(orderId);
+        return UnitOfWork.readPrimary(() -> {
+            Map.Entry<LocalDateTime, Long> start = findWithDate(orderId, date ->
+                    boxed(orderRepository.findVersion(orderId, date)).map(version -> Map.entry(date, version)))
+                    .orElseThrow(() -> new OrderNotFoundException("Order not found with ID: " + orderId));
+            LocalDateTime date = start.getKey();
+            long before = start.getValue();
+            T value = loader.apply(date);
+            long after = orderRepository.findVersion(orderId, date).orElse(before + 1);
+            return new Versioned<>(value, before, before == after);
+        });
+    }
+
+    /**
+     * Runs {@code query} with the order's current date from {@code order_ids}, so that it searches only the
+     * partition of that date. The lookup and the query are separate statements; if the query finds nothing
+     * because the order was moved to another date in between, it is run once more with the new date.
+     */
+    private <T> Optional<T> findWithDate(int orderId, Function<LocalDateTime, Optional<T>> query) {
+        Optional<LocalDateTime> date = orderRepository.findDate(orderId);
+        if (date.isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<T> found = query.apply(date.get());
+        if (found.isEmpty()) {
+            Optional<LocalDateTime> current = orderRepository.findDate(orderId);
+            if (current.isPresent() && !current.equals(date)) {
+                found = query.apply(current.get());
+            }
+        }
+        return found;
+    }
+
+    private static Optional<Long> boxed(OptionalLong value) {
+        return value.isPresent() ? Optional.of(value.getAsLong()) : Optional.empty();
+    }
+
+    private void requireKnown(int orderId) {
+        if (!idFilter.mightExist(orderId)) {
+            throw new OrderNotFoundException("Order not found with ID: " + orderId);
+        }
+    }
+
+    /**
+     * Every order id, read on the primary: a lagging replica could miss orders whose creation has already been
+     * announced and would then be rejected by the filter.
+     */
+    private void scanOrderIds(IntConsumer sink) {
+        UnitOfWork.write(() -> {
+            try {
+                orderRepository.streamIds(ID_BATCH_SIZE, sink);
+            } catch (SQLException e) {
+                throw new DatabaseOperationException("Failed to scan order ids", e);
+            }
+        });
+    }
+
+    private Optional<OrderDto> findOrder(int orderId, LocalDateTime orderDate) {
+        return orderRepository.findById(orderId, orderDate).map(order -> {
             List<Product> products;
             try {
-                products = productRepository.findByOrderId(orderId);
+                products = productRepository.findByOrderId(orderId, order.getOrderDate());
             } catch (SQLException e) {
                 throw new OrderNotFoundException("Failed to find products for order ID: " + orderId);
             }
             OrderDetail orderDetail;
 
             try {
-                orderDetail = orderDetailRepository.findByOrderId(orderId);
+                orderDetail = orderDetailRepository.findByOrderId(orderId, order.getOrderDate());
             } catch (SQLException e) {
                 throw new RuntimeException(e);
             }
 
             return new OrderDto(order.getOrderId(), order.getOrderDate(), order.getStatus(), orderDetail, products);
-        }).orElseThrow(() -> new OrderNotFoundException("Order not found with ID: " + orderId));
+        });
     }
 
+    /**
+     * Loads all orders with a fixed number of queries: the orders, then their details and products
+     * for a batch of order ids at a time, grouped in memory.
+     */
     public List<OrderDto> getAllOrders() {
-        try {
-            List<Order> orders = orderRepository.findAll();
-            List<OrderDto> orderDtos = new ArrayList<>();
-            for (Order order : orders) {
-                OrderDto orderDto = getOrderById(order.getOrderId());
-                orderDtos.add(orderDto);
+        return UnitOfWork.read(() -> {
+            try {
+                List<Order> orders = orderRepository.findAll();
+                List<OrderDto> orderDtos = new ArrayList<>(orders.size());
+                for (int from = 0; from < orders.size(); from += ID_BATCH_SIZE) {
+                    assemble(orders.subList(from, Math.min(from + ID_BATCH_SIZE, orders.size())), orderDtos);
+                }
+                return orderDtos;
+            } catch (SQLException e) {
+                throw new DatabaseOperationException("Failed to retrieve all orders", e);
             }
-            return orderDtos;
+        });
+    }
+
+    /**
+     * Same orders as {@link #getAllOrders()}, handed to {@code sink} one at a time instead of collected.
+     * Orders are read through a server-side cursor and completed with their details and products a batch
+     * at a time, so memory use depends on the batch size rather than on the number of orders.
+     */
+    public void streamAllOrders(Consumer<OrderDto> sink) {
+        UnitOfWork.read(() -> {
+            try {
+                List<Order> batch = new ArrayList<>(ID_BATCH_SIZE);
+                List<OrderDto> assembled = new ArrayList<>(ID_BATCH_SIZE);
+                orderRepository.streamAll(ID_BATCH_SIZE, order -> {
+                    batch.add(order);
+                    if (batch.size() == ID_BATCH_SIZE) {
+                        flush(batch, assembled, sink);
+                    }
+                });
+                flush(batch, assembled, sink);
+                return null;
+            } catch (SQLException e) {
+                throw new DatabaseOperationException("Failed to stream orders", e);
+            }
+        });
+    }
+
+    private void flush(List<Order> batch, List<OrderDto> assembled, Consumer<OrderDto> sink) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            assemble(batch, assembled);
         } catch (SQLException e) {
-            throw new DatabaseOperationException("Failed to retrieve all orders", e);
+            throw new DatabaseOperationException("Failed to stream orders", e);
         }
+        assembled.forEach(sink);
+        batch.clear();
+        assembled.clear();
     }
 
-    public void createOrder(OrderCreateDto orderCreateDto) {
+    /**
+     * A page of orders after the given cursor (or from the start when it is {@code null}), loaded with the same
+     * batched queries as {@link #getAllOrders()}. {@code limit} is capped at {@link #MAX_PAGE_SIZE}; with
+     * {@code withTotal} the planner's row estimate is added instead of running {@code count(*)}.
+     *
+     * @throws IllegalArgumentException if the cursor was not produced by this service or the limit is not positive
+     */
+    public OrderPageDto getOrdersPage(String cursor, int limit, boolean withTotal) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        int afterId = cursor == null ? 0 : decodeCursor(cursor);
+        int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+        return UnitOfWork.read(() -> {
+            try {
+                List<Order> orders = orderRepository.findPage(afterId, pageSize + 1);
+                boolean hasMore = orders.size() > pageSize;
+                if (hasMore) {
+                    orders = orders.subList(0, pageSize);
+                }
+                List<OrderDto> items = new ArrayList<>(orders.size());
+                if (!orders.isEmpty()) {
+                    assemble(orders, items);
+                }
+                String nextCursor = hasMore ? encodeCursor(orders.get(orders.size() - 1).getOrderId()) : null;
+                Long total = null;
+                if (withTotal) {
+                    OptionalLong estimate = orderRepository.estimateCount();
+                    total = estimate.isPresent() ? estimate.getAsLong() : null;
+                }
+                return new OrderPageDto(items, nextCursor, total);
+            } catch (SQLException e) {
+                throw new DatabaseOperationException("Failed to retrieve orders page", e);
+            }
+        });
+    }
+
+    private static String encodeCursor(int orderId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((CURSOR_PREFIX + orderId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static int decodeCursor(String cursor) {
         try {
-            OrderCreateDto order = new OrderCreateDto();
-            order.setStatus(orderCreateDto.getStatus());
-            int orderId = orderRepository.create(order);
-
-            OrderDetail orderDetail = orderCreateDto.getOrderDetail();
-            orderDetail.setOrderId(orderId);
-            orderDetailRepository.create(orderDetail);
-
-            List<Product> products = orderCreateDto.getProducts();
-            for (Product product : products) {
-                product.setOrderId(orderId);
-                productRepository.create(product);
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            if (decoded.startsWith(CURSOR_PREFIX)) {
+                return Integer.parseInt(decoded.substring(CURSOR_PREFIX.length()));
             }
-        } catch (SQLException e) {
-            throw new OrderCreationException("Failed to create order", e);
+        } catch (IllegalArgumentException e) {
+            // falls through to the error below
+        }
+        throw new IllegalArgumentException("Invalid cursor: " + cursor);
+    }
+
+    private void assemble(List<Order> orders, List<OrderDto> into) throws SQLException {
+        List<Integer> orderIds = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            orderIds.add(order.getOrderId());
+        }
+        Map<Integer, OrderDetail> details = new HashMap<>(orders.size() * 2);
+        for (OrderDetail detail : orderDetailRepository.findByOrderIds(orderIds)) {
+            details.putIfAbsent(detail.getOrderId(), detail);
+        }
+        Map<Integer, List<Product>> products = new HashMap<>(orders.size() * 2);
+        for (Product product : productRepository.findByOrderIds(orderIds)) {
+            products.computeIfAbsent(product.getOrderId(), id -> new ArrayList<>()).add(product);
+        }
+        for (Order order : orders) {
+            into.add(new OrderDto(order.getOrderId(), order.getOrderDate(), order.getStatus(),
+                    details.get(order.getOrderId()),
+                    products.getOrDefault(order.getOrderId(), new ArrayList<>())));
         }
     }
 
+    public void createOrder(OrderCreateDto orderCreateDto) {
+        int createdId = UnitOfWork.write(() -> {
+            try {
+                OrderCreateDto order = new OrderCreateDto();
+                order.setStatus(orderCreateDto.getStatus());
+                Order created = orderRepository.create(order);
+
+                OrderDetail orderDetail = orderCreateDto.getOrderDetail();
+                orderDetail.setOrderId(created.getOrderId());
+                orderDetail.setOrderDate(created.getOrderDate());
+                orderDetailRepository.create(orderDetail);
+
+                List<Product> products = orderCreateDto.getProducts();
+                for (Product product : products) {
+                    product.setOrderId(created.getOrderId());
+                    product.setOrderDate(created.getOrderDate());
+                }
+                productRepository.createAll(products);
+                return created.getOrderId();
+            } catch (SQLException e) {
+                throw new OrderCreationException("Failed to create order", e);
+            }
+        });
+        idFilter.add(createdId);
+    }
+
     public void updateOrder(OrderDto orderDto) {
         try {
-            Optional<Order> existingOrderOpt = orderRepository.findById(orderDto.getOrderId());
-            if (!existingOrderOpt.isPresent()) {
-                throw new OrderUpdateException("Order not found with ID: " + orderDto.getOrderId());
-            }
-            Order existingOrder = existingOrderOpt.get();
-            if (orderDto.getOrderDate() == null) {
-                orderDto.setOrderDate(existingOrder.getOrderDate());
-            }
-            if (orderDto.getOrderDetail() == null) {
-                orderDto.setOrderDetail(orderDetailRepository.findByOrderId(existingOrder.getOrderId()));
+            update(orderDto);
+        } finally {
+            cache.invalidate(orderDto.getOrderId());
+        }
+    }
+
+    private void update(OrderDto orderDto) {
+        UnitOfWork.write(() -> {
+            try {
+                Optional<Order> existingOrderOpt = orderRepository.lockDate(orderDto.getOrderId())
+                        .flatMap(orderDate -> orderRepository.findById(orderDto.getOrderId(), orderDate));
+                if (!existingOrderOpt.isPresent()) {
+                    throw new OrderUpdateException("Order not found with ID: " + orderDto.getOrderId());
+                }
+                Order existingOrder = existingOrderOpt.get();
+                if (orderDto.getOrderDate() == null) {
+                    orderDto.setOrderDate(existingOrder.getOrderDate());
+                }
+                if (orderDto.getOrderDetail() == null) {
+                    orderDto.setOrderDetail(orderDetailRepository.findByOrderId(existingOrder.getOrderId(),
+                            existingOrder.getOrderDate()));
+                }
+                if (orderDto.getProducts() == null || orderDto.getProducts().isEmpty()) {
+                    orderDto.setProducts(productRepository.findByOrderId(existingOrder.getOrderId(),
+                            existingOrder.getOrderDate()));
+                }
+                existingOrder.setStatus(orderDto.getStatus());
+                orderRepository.update(existingOrder);
+                if (orderDto.getOrderDetail() != null) {
+                    OrderDetail orderDetail = orderDto.getOrderDetail();
+                    orderDetail.setOrderId(orderDto.getOrderId());
+                    orderDetailRepository.update(orderDetail);
+                }
+                if (orderDto.getProducts() != null) {
+                    for (Product product : orderDto.getProducts()) {
+                        product.setOrderId(orderDto.getOrderId());
+                        productRepository.update(product);
+                    }
+                }
+
+            } catch (SQLException e) {
+                throw new OrderUpdateException("Failed to update order with ID: " + orderDto.getOrderId(), e);
             }
-            if (orderDto.getProducts() == null || orderDto.getProducts().isEmpty()) {
-                orderDto.setProducts(productRepository.findByOrderId(existingOrder.getOrderId()));
+        });
+    }
+
+    /**
+     * Applies a partial update without reading the order first: only the fields in the patch are written,
+     * the detail and products only when their values actually differ, products in one batch per set of
+     * changed columns. The order's date is locked once and bound in every statement, so each one searches a
+     * single partition.
+     */
+    public void patchOrder(int orderId, OrderPatchDto patch) {
+        try {
+            patch(orderId, patch);
+        } finally {
+            cache.invalidate(orderId);
+        }
+    }
+
+    private void patch(int orderId, OrderPatchDto patch) {
+        UnitOfWork.write(() -> {
+            try {
+                Optional<LocalDateTime> orderDate = orderRepository.lockDate(orderId);
+                boolean found = orderDate.isPresent() && (patch.getOrderChanges().isEmpty()
+                        ? orderRepository.lock(orderId, orderDate.get())
+                        : orderRepository.patch(orderId, orderDate.get(), patch.getOrderChanges()));
+                if (!found) {
+                    throw new OrderNotFoundException("Order not found with ID: " + orderId);
+                }
+                LocalDateTime currentDate = (LocalDateTime) patch.getOrderChanges()
+                        .getOrDefault("order_date", orderDate.get());
+                if (!patch.getDetailChanges().isEmpty()) {
+                    orderDetailRepository.patchByOrderId(orderId, currentDate, patch.getDetailChanges());
+                }
+                if (!patch.getProductChanges().isEmpty()) {
+                    productRepository.patchAll(orderId, currentDate, patch.getProductChanges());
+                }
+            } catch (SQLException e) {
+                throw new OrderUpdateException("Failed to patch order with ID: " + orderId, e);
             }
-            existingOrder.setStatus(orderDto.getStatus());
-            orderRepository.update(existingOrder);
-            if (orderDto.getOrderDetail() != null) {
-                OrderDetail orderDetail = orderDto.getOrderDetail();
-                orderDetail.setOrderId(orderDto.getOrderId());
-                orderDetailRepository.update(orderDetail);
+        });
+    }
+
+    /**
+     * Changes the status of, or deletes, many orders with set-based statements ({@code order_id = ANY(?)}),
+     * {@value #ID_BATCH_SIZE} ids at a time. Each chunk is committed on its own, so a very large set does not
+     * hold locks for the whole run; a filter is walked by id so rows changed by earlier chunks are not revisited.
+     *
+     * @throws IllegalArgumentException if the request does not name exactly one of ids or a non-empty filter,
+     *                                  or a status change has no status
+     */
+    public OrderBatchResultDto applyBatch(OrderBatchDto batch) {
+        if (batch.getAction() == null) {
+            throw new IllegalArgumentException("action is required");
+        }
+        if (batch.getAction() == OrderBatchDto.Action.setStatus && batch.getStatus() == null) {
+            throw new IllegalArgumentException("status is required for setStatus");
+        }
+        if ((batch.getIds() == null) == (batch.getFilter() == null)) {
+            throw new IllegalArgumentException("Exactly one of ids or filter is required");
+        }
+        if (batch.getFilter() != null && batch.getFilter().isEmpty()) {
+            throw new IllegalArgumentException("filter must restrict status or order date");
+        }
+        List<Integer> chunks = new ArrayList<>();
+        long total = 0;
+        if (batch.getIds() != null) {
+            List<Integer> ids = batch.getIds();
+            for (int from = 0; from < ids.size(); from += ID_BATCH_SIZE) {
+                List<Integer> chunk = ids.subList(from, Math.min(from + ID_BATCH_SIZE, ids.size()));
+                int changed;
+                try {
+                    changed = UnitOfWork.write(() -> applyToChunk(batch, chunk));
+                    forgetDeleted(batch, chunk);
+                } finally {
+                    cache.invalidateAll(chunk);
+                }
+                chunks.add(changed);
+                total += changed;
             }
-            if (orderDto.getProducts() != null) {
-                for (Product product : orderDto.getProducts()) {
-                    product.setOrderId(orderDto.getOrderId());
-                    productRepository.update(product);
+        } else {
+            int afterId = 0;
+            int[] changed = new int[1];
+            while (true) {
+                int cursor = afterId;
+                AtomicReference<List<Integer>> selected = new AtomicReference<>(List.of());
+                try {
+                    UnitOfWork.write(() -> {
+                        try {
+                            selected.set(orderRepository.findIds(batch.getFilter(), cursor, ID_BATCH_SIZE));
+                        } catch (SQLException e) {
+                            throw new DatabaseOperationException("Failed to select orders for batch", e);
+                        }
+                        changed[0] = selected.get().isEmpty() ? 0 : applyToChunk(batch, selected.get());
+                    });
+                    forgetDeleted(batch, selected.get());
+                } finally {
+                    cache.invalidateAll(selected.get());
+                }
+                List<Integer> chunk = selected.get();
+                if (chunk.isEmpty()) {
+                    break;
                 }
+                chunks.add(changed[0]);
+                total += changed[0];
+                afterId = chunk.get(chunk.size() - 1);
             }
+        }
+        return new OrderBatchResultDto(total, chunks);
+    }
 
+    private void forgetDeleted(OrderBatchDto batch, List<Integer> ids) {
+        if (batch.getAction() == OrderBatchDto.Action.delete) {
+            ids.forEach(idFilter::remove);
+        }
+    }
+
+    private int applyToChunk(OrderBatchDto batch, List<Integer> ids) {
+        try {
+            return batch.getAction() == OrderBatchDto.Action.delete
+                    ? orderRepository.deleteAll(ids)
+                    : orderRepository.updateStatus(ids, batch.getStatus());
         } catch (SQLException e) {
-            throw new OrderUpdateException("Failed to update order with ID: " + orderDto.getOrderId(), e);
+            throw new DatabaseOperationException("Failed to apply " + batch.getAction() + " to orders", e);
         }
     }
 
     public void deleteOrder(int orderId) {
         try {
-            orderRepository.delete(orderId);
-        } catch (DatabaseOperationException  e) {
-            throw new OrderDeletionException("Failed to delete order with ID: " + orderId, e);
+            UnitOfWork.write(() -> {
+                try {
+                    LocalDateTime orderDate = orderRepository.lockDate(orderId)
+                            .orElseThrow(() -> new DatabaseOperationException("No order found with ID: " + orderId));
+                    orderRepository.delete(orderId, orderDate);
+                } catch (DatabaseOperationException | SQLException e) {
+                    throw new OrderDeletionException("Failed to delete order with ID: " + orderId, e);
+                }
+            });
+            idFilter.remove(orderId);
+        } finally {
+            cache.invalidate(orderId);
         }
     }
 }
@@ -0,0 +1,14 @@
+package com.nickz.service;
+
+import lombok.Value;
+
+/**
+ * A value read from the database together with the order version it belongs to. {@code stable} is false when
+ * the order changed while the value was being read, in which case {@code version} may not describe it.
+ */
+@Value
+public class Versioned<T> {
+    T value;
+    long version;
+    boolean stable;
+}
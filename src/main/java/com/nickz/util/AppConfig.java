@@ -0,0 +1,97 @@
+package com.nickz.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Application settings. Values are read from {@code application.properties} on the classpath,
+ * then from the external file given by {@code -Dapp.config=/path/to/file.properties}
+ * (or the {@code APP_CONFIG} environment variable), then from JVM system properties.
+ * Later sources override earlier ones, so a node can be tuned without rebuilding the WAR.
+ */
+public final class AppConfig {
+    private static final String DEFAULT_RESOURCE = "application.properties";
+    private static final String EXTERNAL_FILE_PROPERTY = "app.config";
+    private static final String EXTERNAL_FILE_ENV = "APP_CONFIG";
+
+    private static final ReentrantLock INIT_LOCK = new ReentrantLock();
+    private static volatile AppConfig instance;
+
+    private final Properties properties;
+
+    private AppConfig(Properties properties) {
+        this.properties = properties;
+    }
+
+    public static AppConfig get() {
+        AppConfig config = instance;
+        if (config == null) {
+            INIT_LOCK.lock();
+            try {
+                config = instance;
+                if (config == null) {
+                    config = load();
+                    instance = config;
+                }
+            } finally {
+                INIT_LOCK.unlock();
+            }
+        }
+        return config;
+    }
+
+    public static AppConfig of(Properties properties) {
+        return new AppConfig(properties);
+    }
+
+    public String getString(String key, String defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    private static AppConfig load() {
+        Properties properties = new Properties();
+        try (InputStream in = AppConfig.class.getClassLoader().getResourceAsStream(DEFAULT_RESOURCE)) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read " + DEFAULT_RESOURCE, e);
+        }
+
+        String externalFile = System.getProperty(EXTERNAL_FILE_PROPERTY, System.getenv(EXTERNAL_FILE_ENV));
+        if (externalFile != null && !externalFile.isBlank()) {
+            try (Reader reader = Files.newBufferedReader(Path.of(externalFile), StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to read external config " + externalFile, e);
+            }
+        }
+
+        for (String key : System.getProperties().stringPropertyNames()) {
+            properties.setProperty(key, System.getProperty(key));
+        }
+        return new AppConfig(properties);
+    }
+}
@@ -0,0 +1,167 @@
+package com.nickz.util;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free container for pooled connections. Borrowing first tries the entry the current thread
+ * returned last, then scans the shared list claiming a free entry with a CAS on its state.
+ * Only when every entry is busy does the borrower block, waiting for a returning thread to hand
+ * an entry over directly.
+ */
+final class ConcurrentBag<T extends ConcurrentBag.Entry> {
+
+    static final int STATE_NOT_IN_USE = 0;
+    static final int STATE_IN_USE = 1;
+    static final int STATE_REMOVED = -1;
+    static final int STATE_RESERVED = -2;
+
+    abstract static class Entry {
+        private final AtomicInteger state = new AtomicInteger(STATE_NOT_IN_USE);
+
+        int getState() {
+            return state.get();
+        }
+
+        boolean compareAndSetState(int expect, int update) {
+            return state.compareAndSet(expect, update);
+        }
+    }
+
+    private final CopyOnWriteArrayList<T> shared = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<WeakReference<T>> lastReturned = new ThreadLocal<>();
+    private final SynchronousQueue<T> handoff = new SynchronousQueue<>(true);
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final boolean threadLocalEnabled;
+
+    ConcurrentBag(boolean threadLocalEnabled) {
+        this.threadLocalEnabled = threadLocalEnabled;
+    }
+
+    /**
+     * Claims a free entry without blocking, or returns {@code null} if all entries are busy.
+     */
+    T poll() {
+        if (threadLocalEnabled) {
+            WeakReference<T> reference = lastReturned.get();
+            T entry = reference == null ? null : reference.get();
+            if (entry != null && entry.compareAndSetState(STATE_NOT_IN_USE, STATE_IN_USE)) {
+                return entry;
+            }
+        }
+        return scan();
+    }
+
+    /**
+     * Waits up to {@code timeoutNanos} for an entry to be returned or added. Returns {@code null} on timeout.
+     */
+    T await(long timeoutNanos) throws InterruptedException {
+        waiters.incrementAndGet();
+        try {
+            T entry = scan();
+            if (entry != null) {
+                return entry;
+            }
+            long deadline = System.nanoTime() + timeoutNanos;
+            long remaining = timeoutNanos;
+            while (remaining > 0) {
+                entry = handoff.poll(remaining, TimeUnit.NANOSECONDS);
+                if (entry == null) {
+                    return null;
+                }
+                if (entry.compareAndSetState(STATE_NOT_IN_USE, STATE_IN_USE)) {
+                    return entry;
+                }
+                remaining = deadline - System.nanoTime();
+            }
+            return null;
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    void add(T entry) {
+        shared.add(entry);
+        offerToWaiters(entry);
+    }
+
+    void requite(T entry) {
+        entry.compareAndSetState(STATE_IN_USE, STATE_NOT_IN_USE);
+        if (offerToWaiters(entry)) {
+            return;
+        }
+        if (threadLocalEnabled) {
+            WeakReference<T> reference = lastReturned.get();
+            if (reference == null || reference.get() != entry) {
+                lastReturned.set(new WeakReference<>(entry));
+            }
+        }
+    }
+
+    /**
+     * Takes a free entry out of circulation so it can be evicted.
+     */
+    boolean reserve(T entry) {
+        return entry.compareAndSetState(STATE_NOT_IN_USE, STATE_RESERVED);
+    }
+
+    boolean remove(T entry) {
+        if (!entry.compareAndSetState(STATE_IN_USE, STATE_REMOVED)
+                && !entry.compareAndSetState(STATE_RESERVED, STATE_REMOVED)
+                && !entry.compareAndSetState(STATE_NOT_IN_USE, STATE_REMOVED)) {
+            return false;
+        }
+        return shared.remove(entry);
+    }
+
+    List<T> values() {
+        return new ArrayList<>(shared);
+    }
+
+    int count(int state) {
+        int count = 0;
+        for (T entry : shared) {
+            if (entry.getState() == state) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    int size() {
+        return shared.size();
+    }
+
+    int getWaitingThreads() {
+        return waiters.get();
+    }
+
+    private T scan() {
+        for (T entry : shared) {
+            if (entry.compareAndSetState(STATE_NOT_IN_USE, STATE_IN_USE)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private boolean offerToWaiters(T entry) {
+        for (int i = 0; waiters.get() > 0; i++) {
+            if (entry.getState() != STATE_NOT_IN_USE || handoff.offer(entry)) {
+                return true;
+            }
+            if ((i & 0xff) == 0xff) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+            } else {
+                Thread.yield();
+            }
+        }
+        return false;
+    }
+}
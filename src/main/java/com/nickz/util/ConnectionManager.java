@@ -1,26 +1,15 @@
 package com.nickz.util;
 
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
-import java.net.URI;
 import java.sql.Connection;
 import java.sql.DriverManager;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class ConnectionManager {
-    private static final String URL = "jdbc:postgresql://localhost:5432/postgres";
-    private static final String USER = "nickz";
-    static final String PASSWORD = "password";
 
-    private static final Integer POOL_SIZE = 10;
-
-    private static  BlockingQueue<Connection> pool;
-    private static List<Connection> closePool;
+    private static final ReentrantLock INIT_LOCK = new ReentrantLock();
+    private static volatile RoutingConnectionPool pool;
 
     static {
         try {
@@ -29,62 +18,89 @@ public class ConnectionManager {
             System.err.println("Не удалось загрузить драйвер PostgreSQL: " + e.getMessage());
             throw new RuntimeException("Не удалось загрузить драйвер PostgreSQL", e);
         }
-
-        initConnectionPool();
     }
 
     private ConnectionManager() {
 
     }
 
-    private static void initConnectionPool() {
-
-        String appMode = System.getProperty("app.mode");
-        if ("test".equals(appMode)) {
-            System.out.println("Connection pool initialization skipped in test mode");
-            return;
+    /**
+     * Connection to the primary, or to a replica when called inside {@link RoutingContext#readOnly()}.
+     * Inside a {@link UnitOfWork} every call returns the unit's shared connection.
+     */
+    public static Connection getConnect() {
+        UnitOfWork unit = UnitOfWork.current();
+        if (unit != null) {
+            return unit.connection(() -> unit.isReplicaAllowed() ? pool().acquireReadOnly() : pool().acquirePrimary());
         }
+        return pool().acquire();
+    }
 
-        pool = new ArrayBlockingQueue<>(POOL_SIZE);
-        closePool = new ArrayList<>(POOL_SIZE);
-        for (int i = 0; i < POOL_SIZE; i++) {
-            var connection = open();
-            var proxyConnection = (Connection) Proxy.newProxyInstance(ConnectionManager.class.getClassLoader(), new Class[]{Connection.class},
-                    (proxy, method, args) -> method.getName().equals("close")
-                            ? pool.offer((Connection) proxy) : method.invoke(connection, args));
-            pool.add(proxyConnection);
-            closePool.add(connection);
-        }
+    /**
+     * Creates the pool and starts opening its connections in the background without waiting for them.
+     */
+    public static void start() {
+        pool();
     }
 
-    public static Connection getConnect(){
+    public static ConnectionPool.State getPoolState() {
+        RoutingConnectionPool current = pool;
+        return current == null ? ConnectionPool.State.STARTING : current.getPrimary().getState();
+    }
 
-        try {
-            return pool.take();
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+    /**
+     * The primary pool followed by the replica pools, or an empty list if the pools have not been created yet.
+     */
+    public static List<ConnectionPool> getPools() {
+        RoutingConnectionPool current = pool;
+        if (current == null) {
+            return List.of();
         }
+        List<ConnectionPool> pools = new ArrayList<>();
+        pools.add(current.getPrimary());
+        pools.addAll(current.getReplicas());
+        return pools;
     }
 
-    public static void closePool(){
-        for (Connection connection : closePool) {
+    public static void closePool() {
+        RoutingConnectionPool current = pool;
+        if (current != null) {
+            current.close();
+            pool = null;
+        }
+    }
+
+    private static RoutingConnectionPool pool() {
+        RoutingConnectionPool current = pool;
+        if (current == null) {
+            INIT_LOCK.lock();
             try {
-                connection.close();
-            } catch (SQLException e) {
-                throw new RuntimeException(e);
+                current = pool;
+                if (current == null) {
+                    current = initConnectionPool();
+                    pool = current;
+                }
+            } finally {
+                INIT_LOCK.unlock();
             }
-
         }
+        return current;
     }
 
-    private static Connection open()  {
-
-        try {
-            return DriverManager.getConnection(URL, USER, PASSWORD);
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
+    private static RoutingConnectionPool initConnectionPool() {
+        AppConfig appConfig = AppConfig.get();
+        PoolConfig primary = PoolConfig.fromConfig(appConfig);
+        List<ConnectionPool> replicas = new ArrayList<>();
+        for (PoolConfig replica : PoolConfig.replicasFromConfig(appConfig, primary)) {
+            replicas.add(newPool(replica));
         }
+        return new RoutingConnectionPool(newPool(primary), replicas,
+                RoutingConnectionPool.Balancing.fromConfig(appConfig),
+                appConfig.getBoolean("db.replica.readYourWrites", true));
     }
 
-
+    private static ConnectionPool newPool(PoolConfig config) {
+        return new ConnectionPool(config,
+                () -> DriverManager.getConnection(config.getUrl(), config.getUser(), config.getPassword()));
+    }
 }
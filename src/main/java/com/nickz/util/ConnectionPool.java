@@ -0,0 +1,426 @@
+package com.nickz.util;
+
+import com.nickz.exception.ConnectionPoolTimeoutException;
+import com.nickz.exception.DatabaseOperationException;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Elastic JDBC connection pool. Keeps at least {@code minSize} physical connections open, grows on demand
+ * up to {@code maxSize}, and closes connections that stayed idle longer than {@code idleTimeoutMs}
+ * once the pool is above its minimum. Borrowers wait at most {@code acquireTimeoutMs} for a connection.
+ * Each physical connection keeps its own {@link StatementCache}, so repeated {@code prepareStatement}
+ * calls with the same SQL reuse the already parsed statement.
+ * Connections live in a {@link ConcurrentBag}, so borrowing and returning do not contend on a shared lock.
+ * <p>
+ * Creating a pool does not block: the first {@code minSize} connections are opened in parallel in the
+ * background, and borrowers are served as soon as the first of them is ready. The pool reports
+ * {@link State#READY} once it has reached its configured minimum.
+ * <p>
+ * Admission is limited by a non-fair {@link Semaphore} with {@code maxSize} permits, so a borrower only touches
+ * the bag once a connection is guaranteed to be free or creatable, and everyone else parks. A free permit goes
+ * to whichever thread asks first instead of being handed to the longest waiter, which keeps the thread-local
+ * fast path of the bag from queueing behind parked threads.
+ * Nothing on the borrow path holds a monitor, which keeps virtual threads from pinning their carrier.
+ * <p>
+ * Every borrow records how long the caller waited for the connection, timeouts included, and how long it held
+ * it in allocation-free {@link LatencyHistogram}s, so slow requests can be told apart from pool starvation.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    public enum State {
+        STARTING, READY, CLOSED
+    }
+
+    private static final long ALIVE_BYPASS_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final long WAIT_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final PoolConfig config;
+    private final ConnectionFactory factory;
+    private final ConcurrentBag<PoolEntry> bag;
+    private final Semaphore admission;
+    private final AtomicInteger totalCount = new AtomicInteger();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+    private final LatencyHistogram acquireWait = new LatencyHistogram();
+    private final LatencyHistogram holdTime = new LatencyHistogram();
+    private final LongAdder acquireTimeouts = new LongAdder();
+    private final ScheduledExecutorService housekeeper;
+    private final CountDownLatch readyLatch = new CountDownLatch(1);
+    private volatile State state = State.STARTING;
+    private volatile boolean closed;
+
+    public ConnectionPool(PoolConfig config, ConnectionFactory factory) {
+        this.config = config;
+        this.factory = factory;
+        this.bag = new ConcurrentBag<>(config.isThreadAffinity());
+        this.admission = new Semaphore(config.getMaxSize());
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(daemonThreads("connection-pool-housekeeper"));
+        long period = config.getHousekeepingPeriodMs();
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+
+        warmUp();
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isReady() {
+        return state == State.READY;
+    }
+
+    /**
+     * Blocks until the pool has opened {@code minSize} connections. Returns {@code false} on timeout.
+     */
+    public boolean awaitReady(long timeout, TimeUnit unit) throws InterruptedException {
+        return readyLatch.await(timeout, unit);
+    }
+
+    public Connection acquire() {
+        if (closed) {
+            throw new DatabaseOperationException("Connection pool is closed");
+        }
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.getAcquireTimeoutMs());
+        long start = System.nanoTime();
+        long deadline = start + timeoutNanos;
+        try {
+            if (!admission.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw timeout();
+            }
+            boolean borrowed = false;
+            try {
+                Connection connection = borrow(deadline);
+                borrowed = true;
+                return connection;
+            } finally {
+                if (!borrowed) {
+                    admission.release();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseOperationException("Interrupted while waiting for a database connection", e);
+        } finally {
+            // Timeouts are the longest waits; leaving them out would hide saturation from the histogram.
+            acquireWait.record(System.nanoTime() - start);
+        }
+    }
+
+    private Connection borrow(long deadline) throws InterruptedException {
+        while (true) {
+            PoolEntry entry = bag.poll();
+            if (entry == null) {
+                entry = tryGrow();
+            }
+            if (entry == null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw timeout();
+                }
+                entry = bag.await(Math.min(remaining, WAIT_SLICE_NANOS));
+                if (entry == null) {
+                    continue;
+                }
+            }
+            if (isAlive(entry)) {
+                return entry.borrow();
+            }
+            discard(entry);
+        }
+    }
+
+    private ConnectionPoolTimeoutException timeout() {
+        acquireTimeouts.increment();
+        return new ConnectionPoolTimeoutException("Timed out after " + config.getAcquireTimeoutMs()
+                + " ms waiting for a database connection (active: " + getActiveConnections()
+                + ", max: " + config.getMaxSize() + ")");
+    }
+
+    public int getTotalConnections() {
+        return totalCount.get();
+    }
+
+    public int getIdleConnections() {
+        return bag.count(ConcurrentBag.STATE_NOT_IN_USE);
+    }
+
+    public int getActiveConnections() {
+        return bag.count(ConcurrentBag.STATE_IN_USE);
+    }
+
+    public int getPendingThreads() {
+        return admission.getQueueLength() + bag.getWaitingThreads();
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits.sum();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.sum();
+    }
+
+    public String getName() {
+        return config.getPoolName();
+    }
+
+    public int getMaxSize() {
+        return config.getMaxSize();
+    }
+
+    public LatencyHistogram getAcquireWait() {
+        return acquireWait;
+    }
+
+    public LatencyHistogram getHoldTime() {
+        return holdTime;
+    }
+
+    public long getAcquireTimeouts() {
+        return acquireTimeouts.sum();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        state = State.CLOSED;
+        housekeeper.shutdownNow();
+        for (PoolEntry entry : bag.values()) {
+            if (bag.reserve(entry)) {
+                discard(entry);
+            }
+        }
+    }
+
+    private void warmUp() {
+        int missing = config.getMinSize();
+        if (missing == 0) {
+            updateReadiness();
+            return;
+        }
+        int parallelism = Math.max(1, Math.min(missing, config.getWarmupParallelism()));
+        ExecutorService warmup = Executors.newFixedThreadPool(parallelism, daemonThreads("connection-pool-warmup"));
+        for (int i = 0; i < missing; i++) {
+            warmup.execute(this::addIdleConnection);
+        }
+        warmup.shutdown();
+    }
+
+    private void addIdleConnection() {
+        if (closed) {
+            return;
+        }
+        try {
+            PoolEntry entry = openEntry();
+            if (entry != null) {
+                bag.add(entry);
+                updateReadiness();
+            }
+        } catch (DatabaseOperationException e) {
+            System.err.println("Failed to open a database connection: " + e.getMessage());
+        }
+    }
+
+    private void updateReadiness() {
+        if (state == State.STARTING && bag.size() >= config.getMinSize()) {
+            state = State.READY;
+            readyLatch.countDown();
+        }
+    }
+
+    /**
+     * Opens a new connection if the pool is below its maximum. The new entry is already marked as in use.
+     */
+    private PoolEntry tryGrow() {
+        PoolEntry entry = openEntry();
+        if (entry != null) {
+            entry.compareAndSetState(ConcurrentBag.STATE_NOT_IN_USE, ConcurrentBag.STATE_IN_USE);
+            bag.add(entry);
+            updateReadiness();
+        }
+        return entry;
+    }
+
+    private PoolEntry openEntry() {
+        while (true) {
+            int total = totalCount.get();
+            if (total >= config.getMaxSize()) {
+                return null;
+            }
+            if (totalCount.compareAndSet(total, total + 1)) {
+                break;
+            }
+        }
+        try {
+            return new PoolEntry(factory.open());
+        } catch (SQLException | RuntimeException e) {
+            totalCount.decrementAndGet();
+            throw new DatabaseOperationException("Failed to open a database connection", e);
+        }
+    }
+
+    private boolean isAlive(PoolEntry entry) {
+        if (System.nanoTime() - entry.lastReturnedNanos < ALIVE_BYPASS_NANOS) {
+            return true;
+        }
+        try {
+            return entry.physical.isValid(config.getValidationTimeoutSec());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PoolEntry entry) {
+        long held = System.nanoTime() - entry.borrowedAtNanos;
+        holdTime.record(held);
+        Throwable trace = entry.borrowTrace;
+        entry.borrowTrace = null;
+        long holdWarnMs = config.getHoldTimeWarnMs();
+        if (holdWarnMs > 0 && held > TimeUnit.MILLISECONDS.toNanos(holdWarnMs) && trace != null) {
+            System.err.println("Connection held for " + TimeUnit.NANOSECONDS.toMillis(held)
+                    + " ms (threshold " + holdWarnMs + " ms)");
+            trace.printStackTrace();
+        }
+        try {
+            if (closed || !resetState(entry.physical)) {
+                discard(entry);
+                return;
+            }
+            entry.lastReturnedNanos = System.nanoTime();
+            bag.requite(entry);
+        } finally {
+            admission.release();
+        }
+    }
+
+    private boolean resetState(Connection connection) {
+        try {
+            if (connection.isClosed()) {
+                return false;
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void discard(PoolEntry entry) {
+        if (!bag.remove(entry)) {
+            return;
+        }
+        totalCount.decrementAndGet();
+        entry.statementCache.close();
+        try {
+            entry.physical.close();
+        } catch (SQLException e) {
+            System.err.println("Failed to close pooled connection: " + e.getMessage());
+        }
+    }
+
+    private void fillToMinimum() {
+        while (!closed && totalCount.get() < config.getMinSize()) {
+            PoolEntry entry = openEntry();
+            if (entry == null) {
+                return;
+            }
+            bag.add(entry);
+            updateReadiness();
+        }
+    }
+
+    private void housekeep() {
+        try {
+            long now = System.nanoTime();
+            long idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.getIdleTimeoutMs());
+            if (idleTimeoutNanos > 0) {
+                List<PoolEntry> coldestFirst = bag.values();
+                coldestFirst.sort(Comparator.comparingLong(entry -> entry.lastReturnedNanos));
+                for (PoolEntry entry : coldestFirst) {
+                    if (totalCount.get() <= config.getMinSize()) {
+                        break;
+                    }
+                    if (now - entry.lastReturnedNanos > idleTimeoutNanos && bag.reserve(entry)) {
+                        discard(entry);
+                    }
+                }
+            }
+            fillToMinimum();
+            detectLeaks(now);
+        } catch (RuntimeException e) {
+            System.err.println("Connection pool housekeeping failed: " + e.getMessage());
+        }
+    }
+
+    private void detectLeaks(long now) {
+        long thresholdNanos = TimeUnit.MILLISECONDS.toNanos(config.getLeakDetectionThresholdMs());
+        if (thresholdNanos <= 0) {
+            return;
+        }
+        for (PoolEntry entry : bag.values()) {
+            Throwable trace = entry.borrowTrace;
+            if (entry.getState() == ConcurrentBag.STATE_IN_USE && trace != null && now - entry.borrowedAtNanos > thresholdNanos) {
+                entry.borrowTrace = null;
+                System.err.println("Possible connection leak: connection borrowed "
+                        + TimeUnit.NANOSECONDS.toMillis(now - entry.borrowedAtNanos) + " ms ago was not closed");
+                trace.printStackTrace();
+            }
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    final class PoolEntry extends ConcurrentBag.Entry {
+        final Connection physical;
+        final StatementCache statementCache;
+        private volatile long lastReturnedNanos = System.nanoTime();
+        private volatile long borrowedAtNanos;
+        private volatile Throwable borrowTrace;
+
+        private PoolEntry(Connection physical) {
+            this.physical = physical;
+            this.statementCache = new StatementCache(physical, config.getStatementCacheSize(),
+                    statementCacheHits, statementCacheMisses);
+        }
+
+        private Connection borrow() {
+            borrowedAtNanos = System.nanoTime();
+            if (config.getLeakDetectionThresholdMs() > 0 || config.getHoldTimeWarnMs() > 0) {
+                borrowTrace = new Throwable("Connection borrowed here");
+            }
+            return new PooledConnection(this);
+        }
+
+        void release() {
+            ConnectionPool.this.release(this);
+        }
+    }
+}
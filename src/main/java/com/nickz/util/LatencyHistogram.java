@@ -0,0 +1,73 @@
+package com.nickz.util;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with fixed power-of-two buckets from 1 µs to about 134 s, plus an overflow bucket.
+ * Recording is one {@link LongAdder} increment per bucket and sum, with no allocation, so it is cheap enough
+ * for every borrow. Snapshots are not atomic across buckets, which is fine for monitoring.
+ */
+public final class LatencyHistogram {
+
+    /** Bucket {@code i} counts values up to {@code 2^i} microseconds. */
+    static final int BUCKETS = 28;
+
+    private static final String[] UPPER_BOUNDS_SECONDS = new String[BUCKETS];
+
+    static {
+        for (int i = 0; i < BUCKETS; i++) {
+            UPPER_BOUNDS_SECONDS[i] = BigDecimal.valueOf(1L << i).movePointLeft(6).stripTrailingZeros().toPlainString();
+        }
+    }
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS + 1];
+    private final LongAdder sumNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        // Round up so that every value counted in a bucket is at most its le bound.
+        long micros = (Math.max(0, nanos) + 999) / 1_000;
+        int bucket = micros <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(micros - 1);
+        counts[Math.min(bucket, BUCKETS)].increment();
+        sumNanos.add(Math.max(0, nanos));
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : counts) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+
+    /**
+     * Writes the histogram as Prometheus {@code _bucket}, {@code _sum} and {@code _count} samples in seconds.
+     * {@code labels} is either empty or a comma-terminated list such as {@code pool="primary",}.
+     */
+    public void writePrometheus(StringBuilder out, String name, String labels) {
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            cumulative += counts[i].sum();
+            out.append(name).append("_bucket{").append(labels).append("le=\"").append(UPPER_BOUNDS_SECONDS[i])
+                    .append("\"} ").append(cumulative).append('\n');
+        }
+        cumulative += counts[BUCKETS].sum();
+        out.append(name).append("_bucket{").append(labels).append("le=\"+Inf\"} ").append(cumulative).append('\n');
+        out.append(name).append("_sum{").append(stripComma(labels)).append("} ").append(getSumNanos() / 1e9).append('\n');
+        out.append(name).append("_count{").append(stripComma(labels)).append("} ").append(cumulative).append('\n');
+    }
+
+    private static String stripComma(String labels) {
+        return labels.endsWith(",") ? labels.substring(0, labels.length() - 1) : labels;
+    }
+}
@@ -18,6 +18,7 @@ public class LiquibaseInitializer implements ServletContextListener {
 
     @Override
     public void contextInitialized(ServletContextEvent sce) {
+        ConnectionManager.start();
         runLiquibase();
     }
 
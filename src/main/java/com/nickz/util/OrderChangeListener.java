@@ -0,0 +1,252 @@
+package com.nickz.util;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps local caches in step with writes made by any node. Only the triggers on {@code orders} notify: they send
+ * the ids of changed orders on the {@value #CHANNEL} channel when the writing transaction commits, or {@code *}
+ * for very large changes. Changes to {@code order_details} and {@code products} are covered by the version bump
+ * they cause on their order (changelog 6.0); a child written in the same transaction as its order skips the bump,
+ * and the order's own write notifies instead. This listener holds its own connection, outside the pool, and passes
+ * what it receives to the registered {@link Subscriber}s, collecting notifications for {@code batchWindowMs} so a
+ * burst of writes becomes one call. New orders are announced separately, as {@code +} followed by their ids, or
+ * {@code +*} for inserts too large to list.
+ * <p>
+ * Notifications sent while the connection is down are lost, so after every reconnect subscribers are told
+ * that everything may have changed and that orders may have been created.
+ */
+public class OrderChangeListener implements AutoCloseable {
+
+    public static final String CHANNEL = "order_changes";
+
+    private static final long POLL_MS = TimeUnit.SECONDS.toMillis(10);
+    private static final long MAX_BACKOFF_MS = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * Receives invalidations on the listener thread.
+     */
+    public interface Subscriber {
+        void ordersChanged(Collection<Integer> orderIds);
+
+        void allOrdersChanged();
+
+        /**
+         * Orders inserted since the last call; their detail and products arrive as {@link #ordersChanged}.
+         */
+        default void ordersCreated(Collection<Integer> orderIds) {
+        }
+
+        /**
+         * Orders were inserted without their ids being announced: too many at once, or while not listening.
+         */
+        default void unlistedOrdersCreated() {
+        }
+
+        /**
+         * The connection was lost: until the next {@link #allOrdersChanged()} changes go unreported.
+         */
+        default void listeningStopped() {
+        }
+    }
+
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection connect() throws SQLException;
+    }
+
+    private static final class Batch {
+        final Set<Integer> created = new HashSet<>();
+        final Set<Integer> changed = new HashSet<>();
+        boolean all;
+        boolean unlistedCreated;
+    }
+
+    private final ConnectionFactory connectionFactory;
+    private final long batchWindowMs;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+    private volatile Connection connection;
+
+    public OrderChangeListener(ConnectionFactory connectionFactory, long batchWindowMs) {
+        this.connectionFactory = connectionFactory;
+        this.batchWindowMs = batchWindowMs;
+        this.thread = new Thread(this::run, "order-change-listener");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Listener on the primary database from {@code db.url}, not yet started so subscribers can be added before
+     * the first connect, or {@code null} when {@code orders.cache.listen} is off.
+     */
+    public static OrderChangeListener fromConfig(AppConfig config) {
+        if (!config.getBoolean("orders.cache.listen", true)) {
+            return null;
+        }
+        String url = config.getString("db.url", null);
+        String user = config.getString("db.user", null);
+        String password = config.getString("db.password", null);
+        return new OrderChangeListener(() -> DriverManager.getConnection(url, user, password),
+                config.getLong("orders.cache.notifyBatchMs", 50));
+    }
+
+    public void subscribe(Subscriber subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        thread.interrupt();
+        closeQuietly(connection);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        long backoffMs = 500;
+        while (running) {
+            try (Connection conn = connectionFactory.connect()) {
+                connection = conn;
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("LISTEN " + CHANNEL);
+                }
+                // Anything sent before LISTEN took effect was missed.
+                Batch missed = new Batch();
+                missed.all = true;
+                missed.unlistedCreated = true;
+                dispatch(missed);
+                backoffMs = 500;
+                listen(conn.unwrap(PGConnection.class), conn);
+            } catch (SQLException e) {
+                if (running) {
+                    System.err.println("Order change listener disconnected, retrying in " + backoffMs + " ms: "
+                            + e.getMessage());
+                }
+            } finally {
+                if (connection != null) {
+                    subscribers.forEach(Subscriber::listeningStopped);
+                }
+                connection = null;
+            }
+            if (!running) {
+                return;
+            }
+            try {
+                Thread.sleep(backoffMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+            backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+        }
+    }
+
+    private void listen(PGConnection pgConnection, Connection conn) throws SQLException {
+        while (running) {
+            PGNotification[] received = pgConnection.getNotifications((int) POLL_MS);
+            if (received == null || received.length == 0) {
+                if (!conn.isValid(2)) {
+                    throw new SQLException("Listener connection is no longer valid");
+                }
+                continue;
+            }
+            Batch batch = new Batch();
+            collect(received, batch);
+            if (batchWindowMs > 0) {
+                try {
+                    Thread.sleep(batchWindowMs);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                collect(pgConnection.getNotifications(), batch);
+            }
+            dispatch(batch);
+        }
+    }
+
+    /**
+     * Adds the ids in the payloads to the batch; {@code *} or an unreadable id sets {@code all}, and
+     * {@code +*} or an unreadable new id sets {@code unlistedCreated}.
+     */
+    private static void collect(PGNotification[] notifications, Batch batch) {
+        if (notifications == null) {
+            return;
+        }
+        for (PGNotification notification : notifications) {
+            String payload = notification.getParameter();
+            boolean inserts = payload.startsWith("+");
+            if (inserts) {
+                payload = payload.substring(1);
+            }
+            if ("*".equals(payload)) {
+                if (inserts) {
+                    batch.unlistedCreated = true;
+                } else {
+                    batch.all = true;
+                }
+                continue;
+            }
+            Set<Integer> orderIds = inserts ? batch.created : batch.changed;
+            for (String id : payload.split(",")) {
+                try {
+                    orderIds.add(Integer.parseInt(id.trim()));
+                } catch (NumberFormatException e) {
+                    if (inserts) {
+                        batch.unlistedCreated = true;
+                    } else {
+                        batch.all = true;
+                    }
+                }
+            }
+        }
+    }
+
+    private void dispatch(Batch batch) {
+        for (Subscriber subscriber : subscribers) {
+            try {
+                if (batch.unlistedCreated) {
+                    subscriber.unlistedOrdersCreated();
+                } else if (!batch.created.isEmpty()) {
+                    subscriber.ordersCreated(batch.created);
+                }
+                if (batch.all) {
+                    subscriber.allOrdersChanged();
+                } else if (!batch.changed.isEmpty()) {
+                    subscriber.ordersChanged(batch.changed);
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Order change subscriber failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void closeQuietly(Connection conn) {
+        if (conn == null) {
+            return;
+        }
+        try {
+            conn.close();
+        } catch (SQLException ignored) {
+            // the listener thread is exiting anyway
+        }
+    }
+}
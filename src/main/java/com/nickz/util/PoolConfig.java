@@ -0,0 +1,97 @@
+package com.nickz.util;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Value
+@Builder(toBuilder = true)
+public class PoolConfig {
+    String url;
+    String user;
+    String password;
+
+    @Builder.Default
+    String poolName = "primary";
+    @Builder.Default
+    int minSize = 2;
+    @Builder.Default
+    int maxSize = 10;
+    @Builder.Default
+    long acquireTimeoutMs = 5_000;
+    @Builder.Default
+    long idleTimeoutMs = 600_000;
+    @Builder.Default
+    int validationTimeoutSec = 2;
+    @Builder.Default
+    long leakDetectionThresholdMs = 0;
+    @Builder.Default
+    long holdTimeWarnMs = 0;
+    @Builder.Default
+    long housekeepingPeriodMs = 30_000;
+    @Builder.Default
+    int statementCacheSize = 64;
+    @Builder.Default
+    boolean threadAffinity = true;
+    @Builder.Default
+    int warmupParallelism = 4;
+
+    public static PoolConfig fromConfig(AppConfig config) {
+        PoolConfig poolConfig = PoolConfig.builder()
+                .url(config.getString("db.url", null))
+                .user(config.getString("db.user", null))
+                .password(config.getString("db.password", null))
+                .minSize(config.getInt("db.pool.minSize", 2))
+                .maxSize(config.getInt("db.pool.maxSize", 10))
+                .acquireTimeoutMs(config.getLong("db.pool.acquireTimeoutMs", 5_000))
+                .idleTimeoutMs(config.getLong("db.pool.idleTimeoutMs", 600_000))
+                .validationTimeoutSec(config.getInt("db.pool.validationTimeoutSec", 2))
+                .leakDetectionThresholdMs(config.getLong("db.pool.leakDetectionThresholdMs", 0))
+                .holdTimeWarnMs(config.getLong("db.pool.holdTimeWarnMs", 0))
+                .housekeepingPeriodMs(config.getLong("db.pool.housekeepingPeriodMs", 30_000))
+                .statementCacheSize(config.getInt("db.pool.statementCacheSize", 64))
+                .threadAffinity(config.getBoolean("db.pool.threadAffinity", true)
+                        && RequestExecutor.Mode.fromConfig(config) != RequestExecutor.Mode.VIRTUAL)
+                .warmupParallelism(config.getInt("db.pool.warmupParallelism", 4))
+                .build();
+        poolConfig.validate();
+        return poolConfig;
+    }
+
+    /**
+     * Pool settings for each replica listed in {@code db.replica.urls} (comma separated). Replicas share the
+     * {@code db.pool.*} settings; {@code db.replica.user}/{@code db.replica.password} default to the primary's.
+     */
+    public static List<PoolConfig> replicasFromConfig(AppConfig config, PoolConfig primary) {
+        String urls = config.getString("db.replica.urls", null);
+        if (urls == null) {
+            return List.of();
+        }
+        List<PoolConfig> replicas = new ArrayList<>();
+        for (String url : urls.split(",")) {
+            if (!url.isBlank()) {
+                replicas.add(primary.toBuilder()
+                        .poolName("replica-" + (replicas.size() + 1))
+                        .url(url.trim())
+                        .user(config.getString("db.replica.user", primary.getUser()))
+                        .password(config.getString("db.replica.password", primary.getPassword()))
+                        .build());
+            }
+        }
+        return replicas;
+    }
+
+    public void validate() {
+        if (url == null) {
+            throw new IllegalArgumentException("db.url must be configured");
+        }
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        if (acquireTimeoutMs < 0) {
+            throw new IllegalArgumentException("db.pool.acquireTimeoutMs must not be negative");
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.nickz.util;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Decides which thread runs servlet work. In {@link Mode#PLATFORM} mode (the default) handlers run on the
+ * container's request thread, as before. In {@link Mode#VIRTUAL} mode every request is switched to async
+ * and handed to a new virtual thread, so a request blocked on the pool or on a JDBC round trip parks
+ * cheaply instead of holding a container thread. Virtual threads need Java 21; on an older runtime the
+ * executor reports it and falls back to platform mode.
+ * <p>
+ * Configured with {@code server.executor=platform|virtual}.
+ */
+public final class RequestExecutor implements AutoCloseable {
+
+    public enum Mode {
+        PLATFORM, VIRTUAL;
+
+        public static Mode fromConfig(AppConfig config) {
+            return valueOf(config.getString("server.executor", "platform").toUpperCase(Locale.ROOT));
+        }
+    }
+
+    @FunctionalInterface
+    public interface Handler {
+        void handle() throws ServletException, IOException;
+    }
+
+    private final ExecutorService executor;
+
+    private RequestExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    public static RequestExecutor fromConfig(AppConfig config) {
+        if (Mode.fromConfig(config) != Mode.VIRTUAL) {
+            return new RequestExecutor(null);
+        }
+        ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        if (executor == null) {
+            System.err.println("server.executor=virtual requires Java 21, running on "
+                    + Runtime.version() + ": falling back to platform threads");
+        }
+        return new RequestExecutor(executor);
+    }
+
+    public Mode getMode() {
+        return executor == null ? Mode.PLATFORM : Mode.VIRTUAL;
+    }
+
+    /**
+     * Runs {@code handler} for the given request, either inline or on a virtual thread.
+     * The servlet must be declared with {@code asyncSupported = true}.
+     */
+    public void dispatch(HttpServletRequest req, HttpServletResponse resp, Handler handler)
+            throws ServletException, IOException {
+        if (executor == null) {
+            handler.handle();
+            return;
+        }
+        AsyncContext async = req.startAsync();
+        try {
+            executor.execute(() -> {
+                try {
+                    handler.handle();
+                } catch (Exception e) {
+                    System.err.println("Request " + req.getMethod() + " " + req.getRequestURI() + " failed: " + e.getMessage());
+                    fail(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                } finally {
+                    async.complete();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            fail(resp, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            async.complete();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private static void fail(HttpServletResponse resp, int status) {
+        if (!resp.isCommitted()) {
+            resp.setStatus(status);
+        }
+    }
+
+    /**
+     * Looked up reflectively so the code still compiles for Java 17; see the {@code java21} Maven profile.
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to create a virtual thread executor", e);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.nickz.util;
+
+import com.nickz.exception.ConnectionPoolTimeoutException;
+import com.nickz.exception.DatabaseOperationException;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Splits reads from writes across a primary {@link ConnectionPool} and any number of replica pools.
+ * A connection requested inside a {@link RoutingContext#readOnly()} scope comes from a replica picked by
+ * the configured {@link Balancing}; everything else goes to the primary. With read-your-writes enabled, once
+ * a request has written to the primary its later reads go to the primary too, so replication lag cannot
+ * hide that write. If a replica cannot open a connection, the next one is tried and finally the primary.
+ */
+public class RoutingConnectionPool implements AutoCloseable {
+
+    public enum Balancing {
+        ROUND_ROBIN, LEAST_OUTSTANDING;
+
+        public static Balancing fromConfig(AppConfig config) {
+            return valueOf(config.getString("db.replica.balancing", "round-robin")
+                    .toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+    }
+
+    private final ConnectionPool primary;
+    private final List<ConnectionPool> replicas;
+    private final Balancing balancing;
+    private final boolean readYourWrites;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public RoutingConnectionPool(ConnectionPool primary, List<ConnectionPool> replicas,
+                                 Balancing balancing, boolean readYourWrites) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.balancing = balancing;
+        this.readYourWrites = readYourWrites;
+    }
+
+    public Connection acquire() {
+        return RoutingContext.isReadOnly() ? acquireReadOnly() : acquirePrimary();
+    }
+
+    public Connection acquirePrimary() {
+        RoutingContext.markWrite();
+        return primary.acquire();
+    }
+
+    public Connection acquireReadOnly() {
+        if (replicas.isEmpty() || readYourWrites && RoutingContext.hasWrittenInRequest()) {
+            return primary.acquire();
+        }
+        int first = pickReplica();
+        for (int i = 0; i < replicas.size(); i++) {
+            ConnectionPool replica = replicas.get((first + i) % replicas.size());
+            if (replica.getState() == ConnectionPool.State.CLOSED) {
+                continue;
+            }
+            try {
+                return replica.acquire();
+            } catch (ConnectionPoolTimeoutException e) {
+                throw e;
+            } catch (DatabaseOperationException e) {
+                System.err.println("Replica unavailable, trying the next one: " + e.getMessage());
+            }
+        }
+        return primary.acquire();
+    }
+
+    public ConnectionPool getPrimary() {
+        return primary;
+    }
+
+    public List<ConnectionPool> getReplicas() {
+        return replicas;
+    }
+
+    @Override
+    public void close() {
+        primary.close();
+        replicas.forEach(ConnectionPool::close);
+    }
+
+    private int pickReplica() {
+        if (balancing == Balancing.ROUND_ROBIN) {
+            return Math.floorMod(next.getAndIncrement(), replicas.size());
+        }
+        int best = 0;
+        int bestOutstanding = Integer.MAX_VALUE;
+        for (int i = 0; i < replicas.size(); i++) {
+            ConnectionPool replica = replicas.get(i);
+            int outstanding = replica.getActiveConnections() + replica.getPendingThreads();
+            if (outstanding < bestOutstanding) {
+                best = i;
+                bestOutstanding = outstanding;
+            }
+        }
+        return best;
+    }
+}
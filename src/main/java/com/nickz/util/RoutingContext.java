@@ -0,0 +1,65 @@
+package com.nickz.util;
+
+/**
+ * Per-thread routing hints for {@link RoutingConnectionPool}. Repository read methods open a
+ * {@link #readOnly()} scope around {@link ConnectionManager#getConnect()}, which lets the connection come
+ * from a replica. A {@link #request()} scope spans one HTTP request and remembers whether it has already
+ * written to the primary, so later reads in the same request can stick to the primary and see that write.
+ * <pre>
+ * try (RoutingContext.Scope readOnly = RoutingContext.readOnly();
+ *      Connection conn = ConnectionManager.getConnect()) { ... }
+ * </pre>
+ */
+public final class RoutingContext {
+
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final class State {
+        private int readOnlyDepth;
+        private boolean inRequest;
+        private boolean wrote;
+    }
+
+    private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+    private RoutingContext() {
+    }
+
+    public static Scope readOnly() {
+        State state = STATE.get();
+        state.readOnlyDepth++;
+        return () -> state.readOnlyDepth--;
+    }
+
+    public static Scope request() {
+        State state = STATE.get();
+        state.inRequest = true;
+        state.wrote = false;
+        return () -> {
+            state.inRequest = false;
+            state.wrote = false;
+            if (state.readOnlyDepth == 0) {
+                STATE.remove();
+            }
+        };
+    }
+
+    public static boolean isReadOnly() {
+        return STATE.get().readOnlyDepth > 0;
+    }
+
+    static void markWrite() {
+        State state = STATE.get();
+        if (state.inRequest) {
+            state.wrote = true;
+        }
+    }
+
+    static boolean hasWrittenInRequest() {
+        return STATE.get().wrote;
+    }
+}
@@ -0,0 +1,85 @@
+package com.nickz.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent loads of the same key into one. The first caller for a key runs the loader; callers
+ * arriving while it runs wait for it and get the same value, or the same exception, instead of loading again.
+ * The key is released before the result is published, so a caller arriving after that starts a fresh load
+ * and never receives a value that was read before it asked.
+ * <p>
+ * Waiters share the loaded object, so callers that hand it out must copy it if it is mutable. A loader must
+ * not ask for its own key again.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public V run(K key, Supplier<V> loader) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = flights.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+        loads.increment();
+        V value;
+        try {
+            value = loader.get();
+        } catch (RuntimeException | Error e) {
+            flights.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+        flights.remove(key, flight);
+        flight.complete(value);
+        return value;
+    }
+
+    /**
+     * Detaches the load in progress for {@code key}, if any: its current waiters still get its result, but
+     * later callers start a new load. Used when the loaded data is known to be outdated.
+     */
+    public void forget(K key) {
+        flights.remove(key);
+    }
+
+    public void forgetAll() {
+        flights.clear();
+    }
+
+    /**
+     * Number of loads that were actually run.
+     */
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    /**
+     * Number of calls served by another caller's load, that is, loads saved.
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    private static <V> V await(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.nickz.util;
+
+import lombok.Value;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache of prepared statements for one physical connection, keyed by SQL text and
+ * generated-keys mode. A statement is removed from the cache while it is borrowed and put back
+ * when it is closed, so the same SQL prepared twice at once gets two independent statements.
+ * Like the connection itself, the cache is only ever used by the current borrower of the connection.
+ */
+final class StatementCache {
+
+    @Value
+    static class Key {
+        String sql;
+        int autoGeneratedKeys;
+    }
+
+    private final Connection physical;
+    private final int maxSize;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final Map<Key, CachedPreparedStatement> statements;
+    private boolean closed;
+
+    StatementCache(Connection physical, int maxSize, LongAdder hits, LongAdder misses) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedPreparedStatement> eldest) {
+                if (size() > StatementCache.this.maxSize) {
+                    closeQuietly(eldest.getValue().delegate());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    PreparedStatement prepare(Connection logical, String sql, int autoGeneratedKeys) throws SQLException {
+        if (maxSize <= 0) {
+            return autoGeneratedKeys == Statement.NO_GENERATED_KEYS
+                    ? physical.prepareStatement(sql)
+                    : physical.prepareStatement(sql, autoGeneratedKeys);
+        }
+        Key key = new Key(sql, autoGeneratedKeys);
+        CachedPreparedStatement statement = statements.remove(key);
+        if (statement != null) {
+            hits.increment();
+            return statement.open(logical);
+        }
+        misses.increment();
+        PreparedStatement delegate = autoGeneratedKeys == Statement.NO_GENERATED_KEYS
+                ? physical.prepareStatement(sql)
+                : physical.prepareStatement(sql, autoGeneratedKeys);
+        return new CachedPreparedStatement(delegate, key, this).open(logical);
+    }
+
+    void release(CachedPreparedStatement statement) {
+        if (closed || !statement.reset() || statements.containsKey(statement.key())) {
+            closeQuietly(statement.delegate());
+            return;
+        }
+        statements.put(statement.key(), statement);
+    }
+
+    void close() {
+        closed = true;
+        for (CachedPreparedStatement statement : statements.values()) {
+            closeQuietly(statement.delegate());
+        }
+        statements.clear();
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            System.err.println("Failed to close cached statement: " + e.getMessage());
+        }
+    }
+}
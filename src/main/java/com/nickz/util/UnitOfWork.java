@@ -0,0 +1,146 @@
+package com.nickz.util;
+
+import com.nickz.exception.DatabaseOperationException;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.function.Supplier;
+
+/**
+ * One connection and one transaction shared by every repository call of a service operation.
+ * While a unit is active on the current thread, {@link ConnectionManager#getConnect()} hands out the same
+ * pooled connection each time (borrowed lazily on first use, with auto-commit off), and the repositories'
+ * {@code close()} calls only give back their hold on it. When the operation returns the transaction is
+ * committed, when it throws it is rolled back, and the connection goes back to the pool either way.
+ * <p>
+ * Read units go to a replica if one is configured, unless started with {@link #readPrimary(Supplier)};
+ * write units always use the primary. A unit started inside another one joins it.
+ */
+public final class UnitOfWork {
+
+    private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<>();
+
+    private final boolean readOnly;
+    private final boolean replicaAllowed;
+    private PooledConnection connection;
+
+    private UnitOfWork(boolean readOnly, boolean replicaAllowed) {
+        this.readOnly = readOnly;
+        this.replicaAllowed = replicaAllowed;
+    }
+
+    public static <T> T read(Supplier<T> work) {
+        return execute(true, true, work);
+    }
+
+    /**
+     * A read that must not lag behind writes committed on the primary, for example one whose result is cached
+     * as current. Joined into an outer unit it uses that unit's connection.
+     */
+    public static <T> T readPrimary(Supplier<T> work) {
+        return execute(true, false, work);
+    }
+
+    public static <T> T write(Supplier<T> work) {
+        return execute(false, false, work);
+    }
+
+    public static void write(Runnable work) {
+        execute(false, false, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * The unit active on the current thread, or {@code null}.
+     */
+    public static UnitOfWork current() {
+        return CURRENT.get();
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Whether the unit's connection may come from a replica.
+     */
+    public boolean isReplicaAllowed() {
+        return replicaAllowed;
+    }
+
+    /**
+     * Returns the unit's connection, borrowing it from {@code source} on first use. Every call adds a hold
+     * that the caller gives back with {@code close()}.
+     */
+    public Connection connection(Supplier<Connection> source) {
+        if (connection == null) {
+            Connection acquired = source.get();
+            if (!(acquired instanceof PooledConnection)) {
+                return acquired;
+            }
+            PooledConnection pooled = (PooledConnection) acquired;
+            try {
+                pooled.setAutoCommit(false);
+            } catch (SQLException e) {
+                pooled.close();
+                throw new DatabaseOperationException("Failed to begin transaction", e);
+            }
+            connection = pooled;
+        }
+        return connection.retain();
+    }
+
+    private static <T> T execute(boolean readOnly, boolean replicaAllowed, Supplier<T> work) {
+        UnitOfWork outer = CURRENT.get();
+        if (outer != null) {
+            if (outer.readOnly && !readOnly) {
+                throw new IllegalStateException("Cannot start a write inside a read-only unit of work");
+            }
+            return work.get();
+        }
+        UnitOfWork unit = new UnitOfWork(readOnly, replicaAllowed);
+        CURRENT.set(unit);
+        try {
+            T result = work.get();
+            unit.commit();
+            return result;
+        } catch (RuntimeException | Error e) {
+            unit.rollback(e);
+            throw e;
+        } finally {
+            CURRENT.remove();
+            unit.release();
+        }
+    }
+
+    private void commit() {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.commit();
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Failed to commit transaction", e);
+        }
+    }
+
+    private void rollback(Throwable cause) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    private void release() {
+        if (connection != null) {
+            connection.close();
+            connection = null;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+--liquibase formatted sql
+
+--changeset nickz:1 splitStatements:false
+-- Оповещение об изменённых заказах: id через запятую в канале order_changes, не больше 500 id на сообщение.
+-- При изменении больше 1000 заказов одним запросом отправляется '*' (сбросить всё).
+CREATE OR REPLACE FUNCTION notify_order_changes() RETURNS trigger AS
+$$
+DECLARE
+    ids INT[];
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        SELECT array_agg(DISTINCT order_id) INTO ids FROM new_rows;
+    ELSIF TG_OP = 'UPDATE' THEN
+        SELECT array_agg(DISTINCT order_id) INTO ids
+        FROM (SELECT order_id FROM old_rows UNION SELECT order_id FROM new_rows) changed;
+    ELSE
+        SELECT array_agg(DISTINCT order_id) INTO ids FROM old_rows;
+    END IF;
+    IF ids IS NULL THEN
+        RETURN NULL;
+    END IF;
+    IF cardinality(ids) > 1000 THEN
+        PERFORM pg_notify('order_changes', '*');
+    ELSE
+        FOR i IN 1 .. cardinality(ids) BY 500 LOOP
+            PERFORM pg_notify('order_changes', array_to_string(ids[i:i + 499], ','));
+        END LOOP;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+--changeset nickz:2
+-- Триггеры уровня запроса: одно оповещение на запрос, а не на строку. Вставка в orders не оповещает,
+-- так как новых заказов ещё нет в кэшах.
+CREATE TRIGGER orders_notify_update AFTER UPDATE ON orders
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_order_changes();
+CREATE TRIGGER orders_notify_delete AFTER DELETE ON orders
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_order_changes();
+
+CREATE TRIGGER order_details_notify_insert AFTER INSERT ON order_details
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_order_changes();
+CREATE TRIGGER order_details_notify_update AFTER UPDATE ON order_details
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_order_changes();
+CREATE TRIGGER order_details_notify_delete AFTER DELETE ON order_details
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_order_changes();
+
+CREATE TRIGGER products_notify_insert AFTER INSERT ON products
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_order_changes();
+CREATE TRIGGER products_notify_update AFTER UPDATE ON products
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_order_changes();
+CREATE TRIGGER products_notify_delete AFTER DELETE ON products
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_order_changes();
+
+--changeset nickz:3 splitStatements:false
+-- Версия заказа для ETag: растёт при любом изменении заказа, его деталей или товаров.
+ALTER TABLE orders ADD COLUMN version BIGINT NOT NULL DEFAULT 1;
+
+CREATE OR REPLACE FUNCTION bump_order_version() RETURNS trigger AS
+$$
+BEGIN
+    NEW.version := OLD.version + 1;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Изменения order_details и products поднимают версию заказов одним UPDATE на запрос.
+CREATE OR REPLACE FUNCTION bump_parent_order_versions() RETURNS trigger AS
+$$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        UPDATE orders SET version = version + 1 WHERE order_id IN (SELECT order_id FROM new_rows);
+    ELSIF TG_OP = 'UPDATE' THEN
+        UPDATE orders SET version = version + 1
+        WHERE order_id IN (SELECT order_id FROM old_rows UNION SELECT order_id FROM new_rows);
+    ELSE
+        UPDATE orders SET version = version + 1 WHERE order_id IN (SELECT order_id FROM old_rows);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+--changeset nickz:4
+CREATE TRIGGER orders_bump_version BEFORE UPDATE ON orders
+    FOR EACH ROW EXECUTE FUNCTION bump_order_version();
+
+CREATE TRIGGER order_details_version_insert AFTER INSERT ON order_details
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_parent_order_versions();
+CREATE TRIGGER order_details_version_update AFTER UPDATE ON order_details
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_parent_order_versions();
+CREATE TRIGGER order_details_version_delete AFTER DELETE ON order_details
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_parent_order_versions();
+
+CREATE TRIGGER products_version_insert AFTER INSERT ON products
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_parent_order_versions();
+CREATE TRIGGER products_version_update AFTER UPDATE ON products
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_parent_order_versions();
+CREATE TRIGGER products_version_delete AFTER DELETE ON products
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_parent_order_versions();
+
+--changeset nickz:5 splitStatements:false
+-- Оповещение о новых заказах: '+' и id через запятую в том же канале order_changes, чтобы узлы могли
+-- отметить их как существующие. Больше 1000 заказов одним запросом - '*'.
+CREATE OR REPLACE FUNCTION notify_order_inserts() RETURNS trigger AS
+$$
+DECLARE
+    ids INT[];
+BEGIN
+    SELECT array_agg(order_id) INTO ids FROM new_rows;
+    IF ids IS NULL THEN
+        RETURN NULL;
+    END IF;
+    IF cardinality(ids) > 1000 THEN
+        PERFORM pg_notify('order_changes', '*');
+    ELSE
+        FOR i IN 1 .. cardinality(ids) BY 500 LOOP
+            PERFORM pg_notify('order_changes', '+' || array_to_string(ids[i:i + 499], ','));
+        END LOOP;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+--changeset nickz:6
+CREATE TRIGGER orders_notify_insert AFTER INSERT ON orders
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_order_inserts();
@@ -0,0 +1,14 @@
+--liquibase formatted sql
+
+--changeset nickz:1 runInTransaction:false
+-- Индекс по внешнему ключу products.order_id: выборка и удаление товаров заказа, а также ON DELETE CASCADE
+-- из orders без последовательного сканирования products. CONCURRENTLY не блокирует запись в таблицу.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS products_order_id_idx ON products (order_id);
+
+--changeset nickz:2 runInTransaction:false
+-- Отбор заказов по статусу и диапазону дат (POST /orders/batch с filter).
+CREATE INDEX CONCURRENTLY IF NOT EXISTS orders_status_order_date_idx ON orders (status, order_date);
+
+--changeset nickz:3 runInTransaction:false
+-- Отбор только по диапазону дат: индекс (status, order_date) для него не подходит.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS orders_order_date_idx ON orders (order_date);
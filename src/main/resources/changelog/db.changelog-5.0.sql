@@ -0,0 +1,240 @@
+--liquibase formatted sql
+
+--changeset nickz:1 splitStatements:false
+-- Месячные секции orders, order_details и products по order_date: с месяца first_month по месяц через
+-- months_ahead от текущего. Существующие секции пропускаются, поэтому функцию можно вызывать повторно и с
+-- нескольких узлов. Секция создаётся отдельной таблицей и присоединяется через ATTACH PARTITION, которому
+-- не нужна эксклюзивная блокировка родительской таблицы. Если строки этого месяца уже попали в секцию
+-- по умолчанию, секция не создаётся (ATTACH не прошёл бы проверку) и выдаётся предупреждение.
+CREATE OR REPLACE FUNCTION create_order_partitions(months_ahead INT, first_month TIMESTAMP DEFAULT localtimestamp)
+    RETURNS INT AS
+$$
+DECLARE
+    month_start    TIMESTAMP := date_trunc('month', first_month);
+    last_month     TIMESTAMP := date_trunc('month', localtimestamp) + make_interval(months => months_ahead);
+    parent         TEXT;
+    partition_name TEXT;
+    occupied       BOOLEAN;
+    created        INT       := 0;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('create_order_partitions'));
+    WHILE month_start <= last_month LOOP
+        FOREACH parent IN ARRAY ARRAY ['orders', 'order_details', 'products'] LOOP
+            partition_name := parent || to_char(month_start, '"_y"YYYY"m"MM');
+            CONTINUE WHEN to_regclass(partition_name) IS NOT NULL;
+            EXECUTE format('SELECT EXISTS (SELECT 1 FROM %I WHERE order_date >= $1 AND order_date < $2)',
+                           parent || '_default')
+                INTO occupied USING month_start, month_start + interval '1 month';
+            IF occupied THEN
+                RAISE WARNING 'partition % not created: % already holds rows for that month',
+                    partition_name, parent || '_default';
+                CONTINUE;
+            END IF;
+            EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS)', partition_name, parent);
+            EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                           parent, partition_name, month_start, month_start + interval '1 month');
+            created := created + 1;
+        END LOOP;
+        month_start := month_start + interval '1 month';
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Отсоединяет секции месяца: сначала products и order_details, затем orders, на секцию которой они ссылаются.
+-- Это изменение только метаданных; отсоединённые таблицы можно выгрузить и удалить DROP TABLE вместо DELETE.
+CREATE OR REPLACE FUNCTION detach_order_partitions(month_start TIMESTAMP) RETURNS INT AS
+$$
+DECLARE
+    parent         TEXT;
+    partition_name TEXT;
+    detached       INT := 0;
+BEGIN
+    FOREACH parent IN ARRAY ARRAY ['products', 'order_details', 'orders'] LOOP
+        partition_name := parent || to_char(date_trunc('month', month_start), '"_y"YYYY"m"MM');
+        IF EXISTS (SELECT 1 FROM pg_inherits
+                   WHERE inhrelid = to_regclass(partition_name) AND inhparent = parent::regclass) THEN
+            EXECUTE format('ALTER TABLE %I DETACH PARTITION %I', parent, partition_name);
+            detached := detached + 1;
+        END IF;
+    END LOOP;
+    RETURN detached;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Перенос заказа на другую дату вместе с деталями и товарами. UPDATE order_date, переносящий строку в другую
+-- секцию, в PostgreSQL 14 выполняется как DELETE + INSERT, и ON DELETE CASCADE удалил бы детали и товары.
+-- Поэтому строка заказа вставляется заново с той же id, детали и товары переводятся на новую дату, а старая
+-- строка удаляется. Версия заказа растёт. FALSE, если заказа нет.
+CREATE OR REPLACE FUNCTION move_order(moved_id INT, new_date TIMESTAMP) RETURNS BOOLEAN AS
+$$
+DECLARE
+    old_date TIMESTAMP;
+BEGIN
+    SELECT order_date INTO old_date FROM orders WHERE order_id = moved_id FOR UPDATE;
+    IF NOT FOUND THEN
+        RETURN FALSE;
+    END IF;
+    IF old_date = new_date THEN
+        RETURN TRUE;
+    END IF;
+    INSERT INTO orders (order_id, order_date, status, version)
+    SELECT order_id, new_date, status, version + 1 FROM orders WHERE order_id = moved_id AND order_date = old_date;
+    UPDATE order_details SET order_date = new_date WHERE order_id = moved_id AND order_date = old_date;
+    UPDATE products SET order_date = new_date WHERE order_id = moved_id AND order_date = old_date;
+    DELETE FROM orders WHERE order_id = moved_id AND order_date = old_date;
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION reject_order_date_change() RETURNS trigger AS
+$$
+BEGIN
+    RAISE EXCEPTION 'order_date of order % cannot be updated in place, use move_order()', OLD.order_id;
+END;
+$$ LANGUAGE plpgsql;
+
+--changeset nickz:2
+-- Перевод таблиц на секционирование по месяцам order_date. Секционированную таблицу нельзя получить из
+-- обычной, поэтому старые таблицы переименовываются, данные копируются в новые и старые удаляются. Первичные
+-- и уникальные ключи включают order_date (ключ секционирования), order_details и products получают копию
+-- order_date заказа, чтобы лежать в секциях того же месяца. Последовательности id переходят к новым таблицам.
+-- Секции по умолчанию принимают строки с датами вне созданных месяцев (например, импорт старых заказов).
+ALTER SEQUENCE orders_order_id_seq OWNED BY NONE;
+ALTER SEQUENCE order_details_detail_id_seq OWNED BY NONE;
+ALTER SEQUENCE products_product_id_seq OWNED BY NONE;
+
+ALTER TABLE products RENAME TO products_unpartitioned;
+ALTER TABLE order_details RENAME TO order_details_unpartitioned;
+ALTER TABLE orders RENAME TO orders_unpartitioned;
+ALTER INDEX orders_pkey RENAME TO orders_unpartitioned_pkey;
+ALTER INDEX orders_status_order_date_idx RENAME TO orders_unpartitioned_status_order_date_idx;
+ALTER INDEX orders_order_date_idx RENAME TO orders_unpartitioned_order_date_idx;
+ALTER INDEX order_details_pkey RENAME TO order_details_unpartitioned_pkey;
+ALTER INDEX order_details_order_id_key RENAME TO order_details_unpartitioned_order_id_key;
+ALTER INDEX products_pkey RENAME TO products_unpartitioned_pkey;
+ALTER INDEX products_order_id_idx RENAME TO products_unpartitioned_order_id_idx;
+
+CREATE TABLE orders
+(
+    order_id   INT         NOT NULL DEFAULT nextval('orders_order_id_seq'),
+    order_date TIMESTAMP   NOT NULL,
+    status     VARCHAR(32) NOT NULL,
+    version    BIGINT      NOT NULL DEFAULT 1,
+    PRIMARY KEY (order_id, order_date)
+) PARTITION BY RANGE (order_date);
+
+CREATE TABLE order_details
+(
+    detail_id         INT          NOT NULL DEFAULT nextval('order_details_detail_id_seq'),
+    order_id          INT          NOT NULL,
+    order_date        TIMESTAMP    NOT NULL,
+    customer_name     VARCHAR(64)  NOT NULL,
+    order_description VARCHAR(255),
+    customer_contact  VARCHAR(64),
+    PRIMARY KEY (detail_id, order_date),
+    UNIQUE (order_id, order_date),
+    FOREIGN KEY (order_id, order_date) REFERENCES orders (order_id, order_date) ON DELETE CASCADE
+) PARTITION BY RANGE (order_date);
+
+CREATE TABLE products
+(
+    product_id  INT            NOT NULL DEFAULT nextval('products_product_id_seq'),
+    order_id    INT            NOT NULL,
+    order_date  TIMESTAMP      NOT NULL,
+    name        VARCHAR(64)    NOT NULL,
+    description TEXT,
+    price       DECIMAL(10, 2) NOT NULL,
+    quantity    INT            NOT NULL,
+    PRIMARY KEY (product_id, order_date),
+    FOREIGN KEY (order_id, order_date) REFERENCES orders (order_id, order_date) ON DELETE CASCADE
+) PARTITION BY RANGE (order_date);
+
+CREATE INDEX orders_status_order_date_idx ON orders (status, order_date);
+CREATE INDEX orders_order_date_idx ON orders (order_date);
+CREATE INDEX products_order_id_idx ON products (order_id);
+
+ALTER SEQUENCE orders_order_id_seq OWNED BY orders.order_id;
+ALTER SEQUENCE order_details_detail_id_seq OWNED BY order_details.detail_id;
+ALTER SEQUENCE products_product_id_seq OWNED BY products.product_id;
+
+CREATE TABLE orders_default PARTITION OF orders DEFAULT;
+CREATE TABLE order_details_default PARTITION OF order_details DEFAULT;
+CREATE TABLE products_default PARTITION OF products DEFAULT;
+
+SELECT create_order_partitions(3, (SELECT coalesce(min(order_date), localtimestamp) FROM orders_unpartitioned));
+
+INSERT INTO orders (order_id, order_date, status, version)
+SELECT order_id, order_date, status, version
+FROM orders_unpartitioned;
+
+INSERT INTO order_details (detail_id, order_id, order_date, customer_name, order_description, customer_contact)
+SELECT d.detail_id, d.order_id, o.order_date, d.customer_name, d.order_description, d.customer_contact
+FROM order_details_unpartitioned d
+         JOIN orders_unpartitioned o ON o.order_id = d.order_id;
+
+INSERT INTO products (product_id, order_id, order_date, name, description, price, quantity)
+SELECT p.product_id, p.order_id, o.order_date, p.name, p.description, p.price, p.quantity
+FROM products_unpartitioned p
+         JOIN orders_unpartitioned o ON o.order_id = p.order_id;
+
+DROP TABLE products_unpartitioned, order_details_unpartitioned, orders_unpartitioned;
+
+ANALYZE orders, order_details, products;
+
+--changeset nickz:3
+-- Триггеры старых таблиц удалены вместе с ними. Триггеры уровня запроса с таблицами переходов на
+-- секционированной таблице видят строки всех секций.
+CREATE TRIGGER orders_bump_version BEFORE UPDATE ON orders
+    FOR EACH ROW EXECUTE FUNCTION bump_order_version();
+CREATE TRIGGER orders_order_date_immutable BEFORE UPDATE OF order_date ON orders
+    FOR EACH ROW WHEN (NEW.order_date IS DISTINCT FROM OLD.order_date)
+    EXECUTE FUNCTION reject_order_date_change();
+
+CREATE TRIGGER orders_notify_insert AFTER INSERT ON orders
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_order_inserts();
+CREATE TRIGGER orders_notify_update AFTER UPDATE ON orders
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_order_changes();
+CREATE TRIGGER orders_notify_delete AFTER DELETE ON orders
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_order_changes();
+
+CREATE TRIGGER order_details_notify_insert AFTER INSERT ON order_details
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_order_changes();
+CREATE TRIGGER order_details_notify_update AFTER UPDATE ON order_details
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_order_changes();
+CREATE TRIGGER order_details_notify_delete AFTER DELETE ON order_details
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_order_changes();
+CREATE TRIGGER order_details_version_insert AFTER INSERT ON order_details
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_parent_order_versions();
+CREATE TRIGGER order_details_version_update AFTER UPDATE ON order_details
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_parent_order_versions();
+CREATE TRIGGER order_details_version_delete AFTER DELETE ON order_details
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_parent_order_versions();
+
+CREATE TRIGGER products_notify_insert AFTER INSERT ON products
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_order_changes();
+CREATE TRIGGER products_notify_update AFTER UPDATE ON products
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_order_changes();
+CREATE TRIGGER products_notify_delete AFTER DELETE ON products
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_order_changes();
+CREATE TRIGGER products_version_insert AFTER INSERT ON products
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_parent_order_versions();
+CREATE TRIGGER products_version_update AFTER UPDATE ON products
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_parent_order_versions();
+CREATE TRIGGER products_version_delete AFTER DELETE ON products
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_parent_order_versions();
@@ -0,0 +1,235 @@
+--liquibase formatted sql
+
+--changeset nickz:1 splitStatements:false
+-- Версия поднимается только у заказов, которые эта транзакция ещё не записывала (xmin строки - чужая
+-- транзакция). Созданный или уже изменённый в ней заказ и так получит при фиксации новую версию, поэтому
+-- вставка деталей и товаров при createOrder и импорте COPY не перезаписывает только что вставленные заказы, а
+-- несколько запросов к деталям и товарам одного заказа поднимают версию один раз. Строки, записанные внутри
+-- SAVEPOINT, имеют xid подтранзакции и получают лишнее, но безвредное повышение.
+CREATE OR REPLACE FUNCTION bump_parent_order_versions() RETURNS trigger AS
+$$
+DECLARE
+    current_xid BIGINT := txid_current() % 4294967296;
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        UPDATE orders SET version = version + 1
+        WHERE (order_id, order_date) IN (SELECT order_id, order_date FROM new_rows)
+          AND xmin::text::bigint <> current_xid;
+    ELSIF TG_OP = 'UPDATE' THEN
+        UPDATE orders SET version = version + 1
+        WHERE (order_id, order_date) IN (SELECT order_id, order_date FROM old_rows
+                                         UNION SELECT order_id, order_date FROM new_rows)
+          AND xmin::text::bigint <> current_xid;
+    ELSE
+        UPDATE orders SET version = version + 1
+        WHERE (order_id, order_date) IN (SELECT order_id, order_date FROM old_rows)
+          AND xmin::text::bigint <> current_xid;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+--changeset nickz:2
+-- Один источник оповещений - триггеры orders. Любое изменение деталей или товаров либо поднимает версию заказа
+-- (UPDATE orders и orders_notify_update), либо касается заказа, который эта транзакция уже создала или
+-- изменила и о котором оповестит сама. Триггеры деталей и товаров только дублировали оповещения.
+DROP TRIGGER order_details_notify_insert ON order_details;
+DROP TRIGGER order_details_notify_update ON order_details;
+DROP TRIGGER order_details_notify_delete ON order_details;
+DROP TRIGGER products_notify_insert ON products;
+DROP TRIGGER products_notify_update ON products;
+DROP TRIGGER products_notify_delete ON products;
+
+--changeset nickz:3 splitStatements:false
+-- Первичный ключ orders (order_id, order_date) не мешает двум строкам с одной id и разными датами, а детали,
+-- товары, кэш и фильтр id считают id заказа уникальной. id выдаёт последовательность (createOrder, а импорт
+-- резервирует её блоки), явную id вставляет только move_order. Проверка - одним запросом на оператор, поэтому
+-- COPY не платит за каждую строку. move_order на время своей вставки разрешает дубль только переносимой id.
+-- Две параллельные транзакции с одной явной id проверка не ловит: каждая не видит незафиксированную строку другой.
+CREATE OR REPLACE FUNCTION reject_duplicate_order_ids() RETURNS trigger AS
+$$
+DECLARE
+    duplicate_id INT;
+BEGIN
+    SELECT n.order_id INTO duplicate_id
+    FROM new_rows n
+    JOIN orders o ON o.order_id = n.order_id AND o.order_date <> n.order_date
+    WHERE n.order_id::text IS DISTINCT FROM current_setting('orders.moving_id', true)
+    LIMIT 1;
+    IF FOUND THEN
+        RAISE EXCEPTION 'order % already exists with another order_date', duplicate_id
+            USING ERRCODE = 'unique_violation';
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION move_order(moved_id INT, new_date TIMESTAMP) RETURNS BOOLEAN AS
+$$
+DECLARE
+    old_date TIMESTAMP;
+BEGIN
+    SELECT order_date INTO old_date FROM orders WHERE order_id = moved_id FOR UPDATE;
+    IF NOT FOUND THEN
+        RETURN FALSE;
+    END IF;
+    IF old_date = new_date THEN
+        RETURN TRUE;
+    END IF;
+    PERFORM set_config('orders.moving_id', moved_id::text, true);
+    INSERT INTO orders (order_id, order_date, status, version)
+    SELECT order_id, new_date, status, version + 1 FROM orders WHERE order_id = moved_id AND order_date = old_date;
+    PERFORM set_config('orders.moving_id', '', true);
+    UPDATE order_details SET order_date = new_date WHERE order_id = moved_id AND order_date = old_date;
+    UPDATE products SET order_date = new_date WHERE order_id = moved_id AND order_date = old_date;
+    DELETE FROM orders WHERE order_id = moved_id AND order_date = old_date;
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER orders_unique_order_id AFTER INSERT ON orders
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION reject_duplicate_order_ids();
+
+--changeset nickz:4 splitStatements:false
+-- Больше 1000 новых заказов одним запросом - '+*' вместо '*': узлам нужно перечитать только множество id,
+-- кэш заказов новые заказы не затрагивают. '*' остаётся за большими изменениями и удалениями.
+CREATE OR REPLACE FUNCTION notify_order_inserts() RETURNS trigger AS
+$$
+DECLARE
+    ids INT[];
+BEGIN
+    SELECT array_agg(order_id) INTO ids FROM new_rows;
+    IF ids IS NULL THEN
+        RETURN NULL;
+    END IF;
+    IF cardinality(ids) > 1000 THEN
+        PERFORM pg_notify('order_changes', '+*');
+    ELSE
+        FOR i IN 1 .. cardinality(ids) BY 500 LOOP
+            PERFORM pg_notify('order_changes', '+' || array_to_string(ids[i:i + 499], ','));
+        END LOOP;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+--changeset nickz:5 splitStatements:false
+-- Уникальность order_id по всем секциям держит отдельная таблица order_ids с первичным ключом вместо проверки
+-- запросом из nickz:3: две транзакции, вставляющие одну id в разные секции, не видели строк друг друга и обе
+-- проходили проверку. Уникальный индекс order_ids заставляет вторую дождаться фиксации первой и получить
+-- unique_violation при любом уровне изоляции. Триггеры на оператор добавляют и удаляют id одним запросом, так что
+-- COPY платит одну вставку в индекс на заказ. move_order на время переноса помечает id в orders.moving_id, и её
+-- вставка и удаление строки заказа order_ids не трогают. id отсоединённых секций (detach_order_partitions)
+-- остаются в order_ids занятыми; последовательность их всё равно не выдаёт повторно.
+DROP TRIGGER orders_unique_order_id ON orders;
+DROP FUNCTION reject_duplicate_order_ids();
+
+CREATE TABLE order_ids
+(
+    order_id INT PRIMARY KEY
+);
+
+INSERT INTO order_ids (order_id)
+SELECT order_id FROM orders;
+
+CREATE OR REPLACE FUNCTION register_order_ids() RETURNS trigger AS
+$$
+BEGIN
+    INSERT INTO order_ids (order_id)
+    SELECT order_id FROM new_rows
+    WHERE order_id::text IS DISTINCT FROM nullif(current_setting('orders.moving_id', true), '');
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION release_order_ids() RETURNS trigger AS
+$$
+BEGIN
+    DELETE FROM order_ids
+    WHERE order_id IN (SELECT order_id FROM old_rows
+                       WHERE order_id::text IS DISTINCT FROM nullif(current_setting('orders.moving_id', true), ''));
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION move_order(moved_id INT, new_date TIMESTAMP) RETURNS BOOLEAN AS
+$$
+DECLARE
+    old_date TIMESTAMP;
+BEGIN
+    SELECT order_date INTO old_date FROM orders WHERE order_id = moved_id FOR UPDATE;
+    IF NOT FOUND THEN
+        RETURN FALSE;
+    END IF;
+    IF old_date = new_date THEN
+        RETURN TRUE;
+    END IF;
+    PERFORM set_config('orders.moving_id', moved_id::text, true);
+    INSERT INTO orders (order_id, order_date, status, version)
+    SELECT order_id, new_date, status, version + 1 FROM orders WHERE order_id = moved_id AND order_date = old_date;
+    UPDATE order_details SET order_date = new_date WHERE order_id = moved_id AND order_date = old_date;
+    UPDATE products SET order_date = new_date WHERE order_id = moved_id AND order_date = old_date;
+    DELETE FROM orders WHERE order_id = moved_id AND order_date = old_date;
+    PERFORM set_config('orders.moving_id', '', true);
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER orders_register_order_ids AFTER INSERT ON orders
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION register_order_ids();
+
+CREATE TRIGGER orders_release_order_ids AFTER DELETE ON orders
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION release_order_ids();
+
+--changeset nickz:6 splitStatements:false
+-- order_ids хранит и дату заказа: запросы по id сначала берут её одним поиском по первичному ключу order_ids, а
+-- затем добавляют order_date = ? и читают только секцию этого месяца, не проверяя индекс каждой секции.
+-- move_order меняет дату в order_ids вместе со строкой заказа и берёт блокировку строки order_ids, как и
+-- изменения по id в приложении, поэтому дата, прочитанная в транзакции записи под блокировкой, не устаревает.
+-- У id отсоединённых секций строки orders для даты нет, поиск по ним пуст, как и раньше.
+ALTER TABLE order_ids ADD COLUMN order_date TIMESTAMP;
+
+UPDATE order_ids i SET order_date = o.order_date
+FROM orders o
+WHERE o.order_id = i.order_id;
+
+CREATE OR REPLACE FUNCTION register_order_ids() RETURNS trigger AS
+$$
+BEGIN
+    INSERT INTO order_ids (order_id, order_date)
+    SELECT order_id, order_date FROM new_rows
+    WHERE order_id::text IS DISTINCT FROM nullif(current_setting('orders.moving_id', true), '');
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION move_order(moved_id INT, new_date TIMESTAMP) RETURNS BOOLEAN AS
+$$
+DECLARE
+    old_date TIMESTAMP;
+BEGIN
+    SELECT order_date INTO old_date FROM order_ids WHERE order_id = moved_id FOR NO KEY UPDATE;
+    IF old_date IS NULL THEN
+        RETURN FALSE;
+    END IF;
+    PERFORM 1 FROM orders WHERE order_id = moved_id AND order_date = old_date FOR UPDATE;
+    IF NOT FOUND THEN
+        RETURN FALSE;
+    END IF;
+    IF old_date = new_date THEN
+        RETURN TRUE;
+    END IF;
+    PERFORM set_config('orders.moving_id', moved_id::text, true);
+    INSERT INTO orders (order_id, order_date, status, version)
+    SELECT order_id, new_date, status, version + 1 FROM orders WHERE order_id = moved_id AND order_date = old_date;
+    UPDATE order_details SET order_date = new_date WHERE order_id = moved_id AND order_date = old_date;
+    UPDATE products SET order_date = new_date WHERE order_id = moved_id AND order_date = old_date;
+    DELETE FROM orders WHERE order_id = moved_id AND order_date = old_date;
+    PERFORM set_config('orders.moving_id', '', true);
+    UPDATE order_ids SET order_date = new_date WHERE order_id = moved_id;
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,143 @@
+package com.nickz.benchmark;
+
+import com.nickz.util.ConnectionPool;
+import com.nickz.util.PoolConfig;
+import com.nickz.util.RequestExecutor;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test for {@code server.executor}: starts N concurrent "requests" that all need a connection from a
+ * 10-connection pool, waits until every one of them is either holding a connection or parked in the pool's
+ * admission queue, and reports process RSS and heap at that plateau. Then lets them drain and reports the time.
+ * Platform mode uses one platform thread per request, as a container with an unbounded thread pool would;
+ * virtual mode uses one virtual thread per request and needs a Java 21 runtime.
+ *
+ * <pre>mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.nickz.benchmark.ConcurrentRequestsLoad -Dbenchmark=virtual</pre>
+ *
+ * The argument is {@code platform}, {@code virtual} or {@code both}; optional further arguments are the
+ * concurrency levels to try.
+ */
+public class ConcurrentRequestsLoad {
+    private static final int POOL_SIZE = 10;
+    private static final int[] DEFAULT_LEVELS = {1_000, 5_000, 10_000, 20_000, 50_000};
+
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "both";
+        int[] levels = DEFAULT_LEVELS;
+        if (args.length > 1) {
+            levels = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                levels[i - 1] = Integer.parseInt(args[i]);
+            }
+        }
+        System.out.printf("%-9s %9s %12s %12s %14s %10s%n", "mode", "requests", "rss MB", "heap MB", "rss KB/req", "drain ms");
+        if (!"virtual".equals(mode)) {
+            run("platform", levels);
+        }
+        if (!"platform".equals(mode)) {
+            if (RequestExecutor.newVirtualThreadPerTaskExecutor() == null) {
+                System.out.println("virtual   skipped: requires Java 21, running on " + Runtime.version());
+            } else {
+                run("virtual", levels);
+            }
+        }
+    }
+
+    private static void run(String mode, int[] levels) throws Exception {
+        for (int requests : levels) {
+            try {
+                if (!runLevel(mode, requests)) {
+                    return;
+                }
+            } catch (OutOfMemoryError e) {
+                System.out.printf("%-9s %9d  failed: %s%n", mode, requests, e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private static boolean runLevel(String mode, int requests) throws Exception {
+        long baselineRss = settleAndReadRss();
+        ConnectionPool pool = new ConnectionPool(PoolConfig.builder()
+                .minSize(POOL_SIZE).maxSize(POOL_SIZE)
+                .acquireTimeoutMs(TimeUnit.MINUTES.toMillis(10))
+                .threadAffinity(false)
+                .build(), StubConnection::new);
+        pool.awaitReady(10, TimeUnit.SECONDS);
+
+        ExecutorService executor = "virtual".equals(mode)
+                ? RequestExecutor.newVirtualThreadPerTaskExecutor()
+                : Executors.newCachedThreadPool();
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(requests);
+        try {
+            for (int i = 0; i < requests; i++) {
+                executor.execute(() -> {
+                    try {
+                        handle(pool, gate);
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(2);
+            while (pool.getPendingThreads() < requests - POOL_SIZE) {
+                if (System.nanoTime() > deadline) {
+                    System.out.printf("%-9s %9d  did not reach the plateau in time%n", mode, requests);
+                    return false;
+                }
+                Thread.sleep(10);
+            }
+            long rss = settleAndReadRss();
+            long heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+
+            long start = System.nanoTime();
+            gate.countDown();
+            done.await();
+            long drainMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            System.out.printf("%-9s %9d %12d %12d %14.1f %10d%n", mode, requests,
+                    rss >> 20, heap >> 20, (rss - baselineRss) / 1024.0 / requests, drainMs);
+            return true;
+        } finally {
+            gate.countDown();
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+            pool.close();
+        }
+    }
+
+    private static void handle(ConnectionPool pool, CountDownLatch gate) {
+        try (Connection connection = pool.acquire();
+             PreparedStatement statement = connection.prepareStatement("SELECT 1")) {
+            gate.await();
+            statement.executeQuery();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long settleAndReadRss() throws IOException, InterruptedException {
+        System.gc();
+        Thread.sleep(100);
+        for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("\\D", "")) * 1024;
+            }
+        }
+        return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+    }
+}
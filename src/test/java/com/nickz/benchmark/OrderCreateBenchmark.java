@@ -0,0 +1,108 @@
+package com.nickz.benchmark;
+
+import com.nickz.dto.OrderCreateDto;
+import com.nickz.entity.Order;
+import com.nickz.entity.OrderDetail;
+import com.nickz.entity.OrderStatus;
+import com.nickz.entity.Product;
+import com.nickz.repository.OrderDetailRepository;
+import com.nickz.repository.OrderRepository;
+import com.nickz.repository.ProductRepository;
+import com.nickz.service.OrderService;
+import com.nickz.util.ConnectionManager;
+import com.nickz.util.UnitOfWork;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Orders created per second with 1, 10 and 500 products: {@link OrderService#createOrder} (one transaction,
+ * products in one JDBC batch) against the same transaction with one {@code INSERT} per product. Needs the
+ * database from {@code application.properties} (or {@code -jvmArgs -Ddb.url=...}); every iteration inserts
+ * real rows, so run it against a scratch database.
+ *
+ * <pre>mvn -Pbenchmark test-compile exec:exec -Dbenchmark=OrderCreateBenchmark</pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderCreateBenchmark {
+
+    @Param({"1", "10", "500"})
+    public int products;
+
+    private OrderService orderService;
+    private OrderRepository orderRepository;
+    private OrderDetailRepository orderDetailRepository;
+    private ProductRepository productRepository;
+    private OrderCreateDto order;
+
+    @Setup
+    public void setUp() {
+        orderRepository = new OrderRepository();
+        orderDetailRepository = new OrderDetailRepository();
+        productRepository = new ProductRepository();
+        orderService = new OrderService(orderRepository, orderDetailRepository, productRepository);
+        OrderDetail detail = new OrderDetail();
+        detail.setCustomerName("Benchmark");
+        detail.setOrderDescription("Created by OrderCreateBenchmark");
+        detail.setCustomerContact("benchmark@example.com");
+        List<Product> lines = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            Product product = new Product();
+            product.setName("Product " + i);
+            product.setDescription("Line " + i);
+            product.setPrice(new BigDecimal("9.99"));
+            product.setQuantity(1);
+            lines.add(product);
+        }
+        order = new OrderCreateDto(OrderStatus.processing, detail, lines);
+    }
+
+    @TearDown
+    public void tearDown() {
+        ConnectionManager.closePool();
+    }
+
+    @Benchmark
+    public void batched() {
+        orderService.createOrder(order);
+    }
+
+    @Benchmark
+    public void rowByRow() {
+        UnitOfWork.write(() -> {
+            try {
+                Order created = orderRepository.create(order);
+                order.getOrderDetail().setOrderId(created.getOrderId());
+                order.getOrderDetail().setOrderDate(created.getOrderDate());
+                orderDetailRepository.create(order.getOrderDetail());
+                for (Product product : order.getProducts()) {
+                    product.setOrderId(created.getOrderId());
+                    product.setOrderDate(created.getOrderDate());
+                    productRepository.create(product);
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,69 @@
+package com.nickz.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.nickz.repository.OrderDetailRepository;
+import com.nickz.repository.OrderRepository;
+import com.nickz.repository.ProductRepository;
+import com.nickz.service.OrderService;
+import com.nickz.util.ConnectionManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code GET /orders/{id}} body produced two ways against a real database: three queries, entities and Jackson,
+ * versus one {@code json_build_object} query whose bytes are used as they are. Needs the database from
+ * {@code application.properties} (or {@code -jvmArgs -Ddb.url=...}) with the seed data loaded; run with
+ * {@code -prof gc} to compare allocation per operation.
+ *
+ * <pre>mvn -Pbenchmark test-compile exec:exec -Dbenchmark="OrderDocumentBenchmark -prof gc"</pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderDocumentBenchmark {
+
+    @Param("1")
+    public int orderId;
+
+    private OrderService orderService;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        orderService = new OrderService(new OrderRepository(), new OrderDetailRepository(), new ProductRepository());
+        objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+    }
+
+    @TearDown
+    public void tearDown() {
+        ConnectionManager.closePool();
+    }
+
+    @Benchmark
+    public byte[] entitiesAndJackson() throws IOException {
+        return objectMapper.writeValueAsBytes(orderService.getOrderById(orderId));
+    }
+
+    @Benchmark
+    public byte[] databaseJson() {
+        return orderService.getOrderDocument(orderId);
+    }
+}
@@ -0,0 +1,114 @@
+package com.nickz.benchmark;
+
+import com.nickz.util.ConnectionPool;
+import com.nickz.util.PoolConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Borrow/return throughput of {@link ConnectionPool} under 8, 32 and 128 threads, compared with the
+ * ArrayBlockingQueue take()/offer() pool that {@code ConnectionManager.getConnect()} used before.
+ * Both pools hold 10 connections and each borrow does a small amount of work while holding the connection.
+ *
+ * <pre>mvn -Pbenchmark test-compile exec:exec -Dbenchmark=PoolContentionBenchmark</pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PoolContentionBenchmark {
+    private static final int POOL_SIZE = 10;
+    private static final int WORK_TOKENS = 200;
+
+    private ConnectionPool pool;
+    private BlockingQueue<Connection> queue;
+
+    @Setup
+    public void setUp() {
+        pool = new ConnectionPool(PoolConfig.builder()
+                .minSize(POOL_SIZE)
+                .maxSize(POOL_SIZE)
+                .acquireTimeoutMs(60_000)
+                .build(), StubConnection::new);
+        queue = new ArrayBlockingQueue<>(POOL_SIZE);
+        for (int i = 0; i < POOL_SIZE; i++) {
+            queue.add(new StubConnection());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void concurrentBag_8(Blackhole blackhole) throws Exception {
+        borrowFromPool(blackhole);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void concurrentBag_32(Blackhole blackhole) throws Exception {
+        borrowFromPool(blackhole);
+    }
+
+    @Benchmark
+    @Threads(128)
+    public void concurrentBag_128(Blackhole blackhole) throws Exception {
+        borrowFromPool(blackhole);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void blockingQueue_8(Blackhole blackhole) throws Exception {
+        borrowFromQueue(blackhole);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void blockingQueue_32(Blackhole blackhole) throws Exception {
+        borrowFromQueue(blackhole);
+    }
+
+    @Benchmark
+    @Threads(128)
+    public void blockingQueue_128(Blackhole blackhole) throws Exception {
+        borrowFromQueue(blackhole);
+    }
+
+    private void borrowFromPool(Blackhole blackhole) throws Exception {
+        try (Connection connection = pool.acquire()) {
+            blackhole.consume(connection);
+            Blackhole.consumeCPU(WORK_TOKENS);
+        }
+    }
+
+    private void borrowFromQueue(Blackhole blackhole) throws InterruptedException {
+        Connection connection = queue.take();
+        try {
+            blackhole.consume(connection);
+            Blackhole.consumeCPU(WORK_TOKENS);
+        } finally {
+            queue.offer(connection);
+        }
+    }
+}
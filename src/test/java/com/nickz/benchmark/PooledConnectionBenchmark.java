@@ -0,0 +1,85 @@
+package com.nickz.benchmark;
+
+import com.nickz.util.ConnectionPool;
+import com.nickz.util.PoolConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Acquire - prepare - execute - close cycle through {@link com.nickz.util.PooledConnection}, compared with the same
+ * cycle behind the reflective {@link Proxy} wrapper the pool used before.
+ *
+ * <pre>mvn -Pbenchmark test-compile exec:exec -Dbenchmark=PooledConnectionBenchmark</pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PooledConnectionBenchmark {
+    private static final String SQL = "SELECT * FROM orders WHERE order_id = ?";
+
+    private ConnectionPool pool;
+
+    @Setup
+    public void setUp() {
+        pool = new ConnectionPool(PoolConfig.builder().minSize(1).maxSize(1).build(), StubConnection::new);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Benchmark
+    public void pooledConnection(Blackhole blackhole) throws SQLException {
+        try (Connection connection = pool.acquire()) {
+            cycle(connection, blackhole);
+        }
+    }
+
+    @Benchmark
+    public void reflectiveProxy(Blackhole blackhole) throws SQLException {
+        try (Connection connection = reflectiveProxy(pool.acquire())) {
+            cycle(connection, blackhole);
+        }
+    }
+
+    private static void cycle(Connection connection, Blackhole blackhole) throws SQLException {
+        connection.setAutoCommit(false);
+        try (PreparedStatement statement = connection.prepareStatement(SQL)) {
+            statement.setInt(1, 42);
+            blackhole.consume(statement.executeQuery());
+        }
+        connection.commit();
+    }
+
+    private static Connection reflectiveProxy(Connection target) {
+        return (Connection) Proxy.newProxyInstance(PooledConnectionBenchmark.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
@@ -0,0 +1,61 @@
+package com.nickz.integration;
+
+import com.nickz.util.OrderChangeListener;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class OrderChangeListenerTestIT extends IntegrationTestBase {
+
+    @Test
+    void triggers_NotifyChangedOrderIdsOnCommit() throws Exception {
+        BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+        try (OrderChangeListener listener = new OrderChangeListener(
+                () -> DriverManager.getConnection(getJdbcUrl(), getUsername(), getPassword()), 50)) {
+            listener.subscribe(new OrderChangeListener.Subscriber() {
+                @Override
+                public void ordersChanged(Collection<Integer> orderIds) {
+                    events.add(Set.copyOf(orderIds));
+                }
+
+                @Override
+                public void allOrdersChanged() {
+                    events.add("all");
+                }
+
+                @Override
+                public void ordersCreated(Collection<Integer> orderIds) {
+                    events.add("created");
+                }
+            });
+            listener.start();
+            assertEquals("all", events.poll(10, TimeUnit.SECONDS));
+
+            execute("UPDATE orders SET status = 'completed' WHERE order_id IN (1, 2)");
+            assertEquals(Set.of(1, 2), events.poll(10, TimeUnit.SECONDS));
+
+            execute("UPDATE products SET quantity = quantity + 1 WHERE order_id = 3");
+            assertEquals(Set.of(3), events.poll(10, TimeUnit.SECONDS));
+
+            execute("INSERT INTO orders (order_date, status) VALUES (now(), 'processing')");
+            assertEquals("created", events.poll(10, TimeUnit.SECONDS));
+        }
+    }
+
+    private static void execute(String sql) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(getJdbcUrl(), getUsername(), getPassword());
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
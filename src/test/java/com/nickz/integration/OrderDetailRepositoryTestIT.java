@@ -1,6 +1,7 @@
 package com.nickz.integration;
 
 import com.nickz.dto.OrderCreateDto;
+import com.nickz.entity.Order;
 import com.nickz.entity.OrderDetail;
 import com.nickz.entity.OrderStatus;
 import com.nickz.repository.OrderDetailRepository;
@@ -63,9 +64,10 @@ public class OrderDetailRepositoryTestIT extends IntegrationTestBase {
 
         OrderCreateDto newOrder = new OrderCreateDto();
         newOrder.setStatus(OrderStatus.processing);
-        int newOrderId = orderRepository.create(newOrder);
+        Order newOrderRow = orderRepository.create(newOrder);
         OrderDetail newDetail = new OrderDetail();
-        newDetail.setOrderId(newOrderId);
+        newDetail.setOrderId(newOrderRow.getOrderId());
+        newDetail.setOrderDate(newOrderRow.getOrderDate());
         newDetail.setCustomerName("Test Customer");
         newDetail.setOrderDescription("Test Description");
         newDetail.setCustomerContact("Test Contact");
@@ -95,10 +97,12 @@ public class OrderDetailRepositoryTestIT extends IntegrationTestBase {
     void testDeleteOrderDetail() throws SQLException {
         OrderCreateDto newOrder = new OrderCreateDto();
         newOrder.setStatus(OrderStatus.processing);
-        int newOrderId = orderRepository.create(newOrder);
+        Order newOrderRow = orderRepository.create(newOrder);
+        int newOrderId = newOrderRow.getOrderId();
 
         OrderDetail newDetail = new OrderDetail();
         newDetail.setOrderId(newOrderId);
+        newDetail.setOrderDate(newOrderRow.getOrderDate());
         newDetail.setCustomerName("Test Customer");
         newDetail.setOrderDescription("Test Description");
         newDetail.setCustomerContact("Test Contact");
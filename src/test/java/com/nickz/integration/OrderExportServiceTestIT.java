@@ -0,0 +1,81 @@
+package com.nickz.integration;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.nickz.dto.OrderDto;
+import com.nickz.repository.OrderCopyRepository;
+import com.nickz.repository.OrderDetailRepository;
+import com.nickz.repository.OrderRepository;
+import com.nickz.repository.ProductRepository;
+import com.nickz.service.OrderExportService;
+import com.nickz.service.OrderService;
+import com.nickz.util.ConnectionManager;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OrderExportServiceTestIT extends IntegrationTestBase {
+
+    private static MockedStatic<ConnectionManager> mockedConnectionManager;
+    private static OrderExportService exportService;
+    private static OrderService orderService;
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        mockedConnectionManager = Mockito.mockStatic(ConnectionManager.class);
+        Connection realConnection = DriverManager.getConnection(getJdbcUrl(), getUsername(), getPassword());
+        Connection connection = (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> "close".equals(method.getName()) ? null : method.invoke(realConnection, args));
+        mockedConnectionManager.when(ConnectionManager::getConnect).thenReturn(connection);
+        exportService = new OrderExportService(new OrderCopyRepository());
+        orderService = new OrderService(new OrderRepository(), new OrderDetailRepository(), new ProductRepository());
+    }
+
+    @AfterAll
+    static void tearDown() {
+        mockedConnectionManager.close();
+    }
+
+    @Test
+    void exportNdjson_MatchesOrdersReadThroughService() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = exportService.exportOrders(OrderExportService.Format.NDJSON, out);
+
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        List<OrderDto> exported;
+        try (MappingIterator<OrderDto> orders = objectMapper.readerFor(OrderDto.class).readValues(out.toByteArray())) {
+            exported = orders.readAll();
+        }
+        assertEquals(rows, exported.size());
+        for (OrderDto order : exported) {
+            assertEquals(objectMapper.valueToTree(orderService.getOrderById(order.getOrderId())),
+                    objectMapper.valueToTree(order));
+        }
+    }
+
+    @Test
+    void exportCsv_WritesHeaderAndOneLinePerProduct() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = exportService.exportOrders(OrderExportService.Format.CSV, out);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertTrue(lines[0].startsWith("order_id,order_date,status,"));
+        assertTrue(rows > 0);
+    }
+}
@@ -0,0 +1,86 @@
+package com.nickz.integration;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.nickz.dto.BulkImportResultDto;
+import com.nickz.dto.OrderDto;
+import com.nickz.repository.OrderCopyRepository;
+import com.nickz.repository.OrderDetailRepository;
+import com.nickz.repository.OrderRepository;
+import com.nickz.repository.ProductRepository;
+import com.nickz.service.OrderImportService;
+import com.nickz.service.OrderService;
+import com.nickz.util.ConnectionManager;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class OrderImportServiceTestIT extends IntegrationTestBase {
+
+    private static final String NDJSON = """
+            {"status":"processing","orderDetail":{"customerName":"Bulk\\tOne","orderDescription":"first"},"products":[{"name":"Pen","description":"blue","price":1.50,"quantity":2}]}
+            {"orderDate":[2024,1,2,3,4,5],"status":"completed","orderDetail":{"customerName":"Bulk Two"},"products":[]}
+            {"status":"cancelled","orderDetail":{"customerName":"Bulk Three"},"products":[{"name":"Cup","price":3.00,"quantity":1},{"name":"Lid","price":0.10,"quantity":1}]}
+            """;
+
+    private static MockedStatic<ConnectionManager> mockedConnectionManager;
+    private static OrderImportService importService;
+    private static OrderService orderService;
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        mockedConnectionManager = Mockito.mockStatic(ConnectionManager.class);
+        Connection realConnection = DriverManager.getConnection(getJdbcUrl(), getUsername(), getPassword());
+        Connection connection = (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> "close".equals(method.getName()) ? null : method.invoke(realConnection, args));
+        mockedConnectionManager.when(ConnectionManager::getConnect).thenReturn(connection);
+        importService = new OrderImportService(new OrderCopyRepository(), 2);
+        orderService = new OrderService(new OrderRepository(), new OrderDetailRepository(), new ProductRepository());
+    }
+
+    @AfterAll
+    static void tearDown() {
+        mockedConnectionManager.close();
+    }
+
+    @Test
+    void importOrders_StoresOrdersDetailsAndProducts() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        int before = orderService.getAllOrders().size();
+        BulkImportResultDto result;
+        try (MappingIterator<OrderDto> orders = objectMapper.readerFor(OrderDto.class).readValues(NDJSON)) {
+            result = importService.importOrders(orders);
+        }
+        assertEquals(3, result.getOrders());
+        assertEquals(3, result.getOrderDetails());
+        assertEquals(3, result.getProducts());
+
+        List<OrderDto> all = orderService.getAllOrders();
+        assertEquals(before + 3, all.size());
+        assertEquals(1, imported(all, "Bulk\tOne").getProducts().size());
+        assertEquals(0, imported(all, "Bulk Two").getProducts().size());
+        assertEquals(2, imported(all, "Bulk Three").getProducts().size());
+    }
+
+    private static OrderDto imported(List<OrderDto> orders, String customerName) {
+        return orders.stream()
+                .filter(order -> order.getOrderDetail() != null
+                        && customerName.equals(order.getOrderDetail().getCustomerName()))
+                .findFirst()
+                .orElseThrow();
+    }
+}
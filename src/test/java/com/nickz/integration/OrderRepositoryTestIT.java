@@ -19,8 +19,13 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
 
 
 @Testcontainers
@@ -76,17 +81,17 @@ public class OrderRepositoryTestIT extends IntegrationTestBase {
 
     @Test
     void testFindOrderById()  {
-        orderRepository.findById(1).ifPresent(order -> {
+        orderRepository.findById(1, dateOf(1)).ifPresent(order -> {
             Assertions.assertEquals(1, order.getOrderId());
         });
     }
 
     @Test
     void testUpdateOrder(){
-        orderRepository.findById(1).ifPresent(order -> {
+        orderRepository.findById(1, dateOf(1)).ifPresent(order -> {
                 order.setStatus(OrderStatus.completed);
                 orderRepository.update(order);
-                Order updatedOrder = orderRepository.findById(1).get();
+                Order updatedOrder = orderRepository.findById(1, order.getOrderDate()).get();
                 Assertions.assertEquals(OrderStatus.completed, updatedOrder.getStatus());
 
         });
@@ -96,10 +101,143 @@ public class OrderRepositoryTestIT extends IntegrationTestBase {
     void testDeleteOrder() throws SQLException {
         OrderCreateDto newOrder = new OrderCreateDto();
         newOrder.setStatus(OrderStatus.processing);
-        int newOrderId = orderRepository.create(newOrder);
+        Order created = orderRepository.create(newOrder);
 
-        orderRepository.delete(newOrderId);
-        Assertions.assertTrue(orderRepository.findById(newOrderId).isEmpty());
+        orderRepository.delete(created.getOrderId(), created.getOrderDate());
+        Assertions.assertTrue(orderRepository.findById(created.getOrderId(), created.getOrderDate()).isEmpty());
+        Assertions.assertTrue(orderRepository.findDate(created.getOrderId()).isEmpty());
+    }
+
+    @Test
+    void testVersionNotRaisedByProductsInsertedWithTheirOrder() throws SQLException {
+        String insertProduct = "INSERT INTO products (order_id, order_date, name, description, price, quantity) "
+                + "SELECT order_id, order_date, 'p', 'd', 1, 1 FROM orders WHERE order_id = ";
+        Connection conn = ConnectionManager.getConnect();
+        int orderId;
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery(
+                    "INSERT INTO orders (order_date, status) VALUES (localtimestamp, 'processing') RETURNING order_id")) {
+                rs.next();
+                orderId = rs.getInt(1);
+            }
+            stmt.executeUpdate(insertProduct + orderId);
+            stmt.executeUpdate(insertProduct + orderId);
+            conn.commit();
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        Assertions.assertEquals(1, orderRepository.findVersion(orderId, dateOf(orderId)).orElseThrow());
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(insertProduct + orderId);
+        }
+        Assertions.assertEquals(2, orderRepository.findVersion(orderId, dateOf(orderId)).orElseThrow());
+    }
+
+    @Test
+    void testVersionRaisedByOrderAndProductChanges() throws SQLException {
+        LocalDateTime date = dateOf(2);
+        long initial = orderRepository.findVersion(2, date).orElseThrow();
+        orderRepository.updateStatus(List.of(2), OrderStatus.cancelled);
+        long afterStatus = orderRepository.findVersion(2, date).orElseThrow();
+        Assertions.assertTrue(afterStatus > initial);
+
+        try (Connection conn = ConnectionManager.getConnect();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE products SET quantity = quantity + 1 WHERE order_id = 2");
+        }
+        Assertions.assertTrue(orderRepository.findVersion(2, date).orElseThrow() > afterStatus);
+        Assertions.assertTrue(orderRepository.findDate(Integer.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    void testNewOrderStoredInPartitionOfItsMonth() throws SQLException {
+        OrderCreateDto newOrder = new OrderCreateDto();
+        newOrder.setStatus(OrderStatus.processing);
+        int orderId = orderRepository.create(newOrder).getOrderId();
+        Assertions.assertEquals(partition("orders", LocalDateTime.now()), partitionOf("orders", orderId));
+    }
+
+    @Test
+    void testMoveToAnotherMonthKeepsDetailAndProducts() throws SQLException {
+        LocalDateTime nextMonth = LocalDateTime.now().plusMonths(1).withNano(0);
+        LocalDateTime date = dateOf(15);
+        long version = orderRepository.findVersion(15, date).orElseThrow();
+        long products = count("SELECT count(*) FROM products WHERE order_id = 15");
+
+        Assertions.assertTrue(orderRepository.patch(15, date, Map.of("order_date", nextMonth, "status", "completed")));
+
+        Assertions.assertEquals(nextMonth, dateOf(15));
+        Assertions.assertTrue(orderRepository.findById(15, date).isEmpty());
+        Order moved = orderRepository.findById(15, nextMonth).orElseThrow();
+        Assertions.assertEquals(nextMonth, moved.getOrderDate());
+        Assertions.assertEquals(OrderStatus.completed, moved.getStatus());
+        Assertions.assertTrue(orderRepository.findVersion(15, nextMonth).orElseThrow() > version);
+        Assertions.assertEquals(1, count("SELECT count(*) FROM orders WHERE order_id = 15"));
+        Assertions.assertEquals(1, count("SELECT count(*) FROM order_details WHERE order_id = 15"));
+        Assertions.assertEquals(products, count("SELECT count(*) FROM products WHERE order_id = 15"));
+        Assertions.assertEquals(partition("orders", nextMonth), partitionOf("orders", 15));
+        Assertions.assertEquals(partition("order_details", nextMonth), partitionOf("order_details", 15));
+        Assertions.assertFalse(orderRepository.patch(Integer.MAX_VALUE, nextMonth, Map.of("order_date", nextMonth)));
+    }
+
+    @Test
+    void testInPlaceOrderDateUpdateRejected() throws SQLException {
+        try (Connection conn = ConnectionManager.getConnect();
+             Statement stmt = conn.createStatement()) {
+            Assertions.assertThrows(SQLException.class,
+                    () -> stmt.executeUpdate("UPDATE orders SET order_date = order_date - interval '1 day' WHERE order_id = 16"));
+        }
+        Assertions.assertEquals(1, count("SELECT count(*) FROM order_details WHERE order_id = 16"));
+    }
+
+    @Test
+    void testDetachedMonthLeavesOrders() throws SQLException {
+        LocalDateTime month = LocalDateTime.now().plusMonths(3).withDayOfMonth(1).withHour(12).withMinute(0)
+                .withSecond(0).withNano(0);
+        Assertions.assertTrue(orderRepository.move(17, month));
+
+        Assertions.assertEquals(3, count("SELECT detach_order_partitions('" + month + "')"));
+
+        Assertions.assertTrue(orderRepository.findById(17, month).isEmpty());
+        Assertions.assertEquals(1, count("SELECT count(*) FROM " + partition("orders", month) + " WHERE order_id = 17"));
+        Assertions.assertEquals(0, count("SELECT count(*) FROM products WHERE order_id = 17"));
+    }
+
+    @Test
+    void testEstimateCountSumsPartitions() throws SQLException {
+        try (Connection conn = ConnectionManager.getConnect();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("ANALYZE orders");
+        }
+        Assertions.assertTrue(orderRepository.estimateCount().orElseThrow() > 0);
+    }
+
+    private static LocalDateTime dateOf(int orderId) {
+        return orderRepository.findDate(orderId).orElseThrow();
+    }
+
+    private static String partition(String table, LocalDateTime date) {
+        return table + date.format(DateTimeFormatter.ofPattern("'_y'yyyy'm'MM"));
+    }
+
+    private static String partitionOf(String table, int orderId) throws SQLException {
+        try (Connection conn = ConnectionManager.getConnect();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT tableoid::regclass FROM " + table + " WHERE order_id = " + orderId)) {
+            Assertions.assertTrue(rs.next());
+            return rs.getString(1);
+        }
+    }
+
+    private static long count(String sql) throws SQLException {
+        try (Connection conn = ConnectionManager.getConnect();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
     }
 
 
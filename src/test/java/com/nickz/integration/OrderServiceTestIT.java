@@ -1,5 +1,8 @@
 package com.nickz.integration;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.nickz.dto.OrderCreateDto;
 import com.nickz.dto.OrderDto;
 import com.nickz.entity.OrderDetail;
@@ -124,6 +127,16 @@ public class OrderServiceTestIT extends IntegrationTestBase{
         assertEquals("Updated Product Name", updatedOrder.getProducts().get(0).getName());
     }
 
+    @Test
+    void getOrderDocument_ShouldMatchJacksonSerializationOfGetOrderById() throws Exception {
+        int orderId = 2;
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        JsonNode expected = objectMapper.readTree(objectMapper.writeValueAsBytes(orderService.getOrderById(orderId)));
+        JsonNode actual = objectMapper.readTree(orderService.getOrderDocument(orderId));
+        assertEquals(expected, actual);
+        Assertions.assertThrows(OrderNotFoundException.class, () -> orderService.getOrderDocument(999));
+    }
+
     @Test
     void deleteOrder_ShouldRemoveOrderAndItsDetailsAndProducts() {
         int orderId = 5;
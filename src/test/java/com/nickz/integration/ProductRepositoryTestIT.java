@@ -1,6 +1,7 @@
 package com.nickz.integration;
 
 import com.nickz.dto.OrderCreateDto;
+import com.nickz.entity.Order;
 import com.nickz.entity.OrderStatus;
 import com.nickz.entity.Product;
 import com.nickz.repository.OrderRepository;
@@ -63,9 +64,10 @@ public class ProductRepositoryTestIT extends IntegrationTestBase {
     void testCreateProduct() throws SQLException {
         OrderCreateDto newOrder = new OrderCreateDto();
         newOrder.setStatus(OrderStatus.processing);
-        int newOrderId = orderRepository.create(newOrder);
+        Order newOrderRow = orderRepository.create(newOrder);
         Product newProduct = new Product();
-        newProduct.setOrderId(newOrderId);
+        newProduct.setOrderId(newOrderRow.getOrderId());
+        newProduct.setOrderDate(newOrderRow.getOrderDate());
         newProduct.setName("Test Product");
         newProduct.setDescription("Test Description");
         newProduct.setPrice(new BigDecimal("19.99"));
@@ -97,9 +99,10 @@ public class ProductRepositoryTestIT extends IntegrationTestBase {
     void testDeleteProduct() throws SQLException {
         OrderCreateDto newOrder = new OrderCreateDto();
         newOrder.setStatus(OrderStatus.processing);
-        int newOrderId = orderRepository.create(newOrder);
+        Order newOrderRow = orderRepository.create(newOrder);
         Product newProduct = new Product();
-        newProduct.setOrderId(newOrderId);
+        newProduct.setOrderId(newOrderRow.getOrderId());
+        newProduct.setOrderDate(newOrderRow.getOrderDate());
         newProduct.setName("Test Product");
         newProduct.setDescription("Test Description");
         newProduct.setPrice(new BigDecimal("19.99"));
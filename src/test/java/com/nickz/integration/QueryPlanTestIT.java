@@ -0,0 +1,343 @@
+package com.nickz.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nickz.dto.OrderCreateDto;
+import com.nickz.dto.OrderFilterDto;
+import com.nickz.entity.Order;
+import com.nickz.entity.OrderDetail;
+import com.nickz.entity.OrderStatus;
+import com.nickz.entity.Product;
+import com.nickz.repository.OrderDetailRepository;
+import com.nickz.repository.OrderRepository;
+import com.nickz.repository.ProductRepository;
+import com.nickz.util.ConnectionManager;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Runs the repositories' single-order and batch queries against a dataset large enough for the planner to
+ * prefer indexes, records every statement they prepare together with its parameters, and fails if
+ * {@code EXPLAIN} shows a sequential scan of a non-empty partition of one of the order tables. Full listings
+ * and exports ({@code findAll}, {@code streamAll}, {@code streamIds}, COPY) read whole tables on purpose and
+ * are not covered. Everything runs in one transaction that is rolled back at the end.
+ */
+public class QueryPlanTestIT extends IntegrationTestBase {
+
+    private static final int ORDERS = 100_000;
+    private static final Pattern PARTITION = Pattern.compile("(orders|order_details|products)(_y\\d{4}m\\d{2}|_default)?");
+
+    private static final class Recorded {
+        final String sql;
+        final List<Object[]> parameters;
+
+        Recorded(String sql, List<Object[]> parameters) {
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+    }
+
+    private static final List<Recorded> recorded = new ArrayList<>();
+    private static MockedStatic<ConnectionManager> mockedConnectionManager;
+    private static Connection realConnection;
+    private static OrderRepository orderRepository;
+    private static OrderDetailRepository orderDetailRepository;
+    private static ProductRepository productRepository;
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        realConnection = DriverManager.getConnection(getJdbcUrl(), getUsername(), getPassword());
+        seed();
+        realConnection.setAutoCommit(false);
+        Connection connection = (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName())) {
+                        return null;
+                    }
+                    Object result = invoke(method, realConnection, args);
+                    if ("prepareStatement".equals(method.getName())) {
+                        return recording((PreparedStatement) result, (String) args[0]);
+                    }
+                    return result;
+                });
+        mockedConnectionManager = Mockito.mockStatic(ConnectionManager.class);
+        mockedConnectionManager.when(ConnectionManager::getConnect).thenReturn(connection);
+        orderRepository = new OrderRepository();
+        orderDetailRepository = new OrderDetailRepository();
+        productRepository = new ProductRepository();
+    }
+
+    @AfterAll
+    static void rollbackAndClose() throws SQLException {
+        mockedConnectionManager.close();
+        realConnection.rollback();
+        realConnection.close();
+    }
+
+    @Test
+    void orderQueries_UseIndexes() throws Exception {
+        int orderId = ORDERS / 2;
+        List<Integer> ids = IntStream.range(orderId, orderId + 1000).boxed().collect(Collectors.toList());
+        assertNoSequentialScans(() -> {
+            LocalDateTime date = orderRepository.findDate(orderId).orElseThrow();
+            orderRepository.lockDate(orderId);
+            orderRepository.findById(orderId, date);
+            orderRepository.findDocumentById(orderId, date);
+            orderRepository.findVersion(orderId, date);
+            orderRepository.findPage(orderId, 50);
+            orderRepository.lock(orderId, date);
+            orderRepository.patch(orderId, date, Map.of("status", OrderStatus.completed.name()));
+            Order order = orderRepository.findById(orderId, date).orElseThrow();
+            orderRepository.update(order);
+            OrderCreateDto created = new OrderCreateDto();
+            created.setStatus(OrderStatus.processing);
+            orderRepository.create(created);
+            orderRepository.updateStatus(ids, OrderStatus.cancelled);
+            orderRepository.deleteAll(ids.subList(0, 10));
+            orderRepository.delete(orderId + 2000, orderRepository.findDate(orderId + 2000).orElseThrow());
+        });
+    }
+
+    @Test
+    void singleOrderQueries_ReadOnlyPartitionsOfTheOrdersMonth() throws Exception {
+        int orderId = ORDERS / 5;
+        LocalDateTime date = orderRepository.findDate(orderId).orElseThrow();
+        String suffix = date.format(DateTimeFormatter.ofPattern("'_y'yyyy'm'MM"));
+        recorded.clear();
+        orderRepository.findById(orderId, date);
+        orderRepository.findDocumentById(orderId, date);
+        orderRepository.findVersion(orderId, date);
+        orderRepository.lock(orderId, date);
+        orderDetailRepository.findByOrderId(orderId, date);
+        productRepository.findByOrderId(orderId, date);
+        orderRepository.updateStatus(List.of(orderId), OrderStatus.cancelled);
+        for (Recorded statement : List.copyOf(recorded)) {
+            Set<String> relations = new TreeSet<>();
+            collectRelations(explain(statement), relations);
+            relations.removeIf(relation -> !PARTITION.matcher(relation).matches());
+            for (String relation : relations) {
+                assertTrue(relation.endsWith(suffix), relation + " read by: " + statement.sql);
+            }
+        }
+    }
+
+    @Test
+    void orderFilter_UsesIndexes() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        assertNoSequentialScans(() -> {
+            orderRepository.findIds(new OrderFilterDto(OrderStatus.cancelled, now.minusHours(20), now.minusHours(10)),
+                    0, 1000);
+            orderRepository.findIds(new OrderFilterDto(OrderStatus.processing, null, null), ORDERS / 3, 1000);
+            orderRepository.findIds(new OrderFilterDto(null, now.minusHours(5), null), 0, 1000);
+        });
+    }
+
+    @Test
+    void orderFilter_ByDate_ReadsOnlyPartitionsOfThatRange() throws Exception {
+        LocalDateTime monthStart = LocalDateTime.now().withDayOfMonth(1).toLocalDate().atStartOfDay();
+        recorded.clear();
+        orderRepository.findIds(new OrderFilterDto(null, monthStart, monthStart.plusDays(1)), 0, 1000);
+        orderRepository.findIds(new OrderFilterDto(OrderStatus.cancelled, monthStart.plusDays(1), monthStart.plusDays(2)),
+                0, 1000);
+        String partition = "orders_" + monthStart.format(DateTimeFormatter.ofPattern("'y'yyyy'm'MM"));
+        for (Recorded statement : List.copyOf(recorded)) {
+            Set<String> relations = new TreeSet<>();
+            collectRelations(explain(statement), relations);
+            assertEquals(Set.of(partition), relations, statement.sql);
+        }
+    }
+
+    @Test
+    void orderDetailQueries_UseIndexes() throws Exception {
+        int orderId = ORDERS / 3;
+        assertNoSequentialScans(() -> {
+            LocalDateTime date = orderRepository.findDate(orderId).orElseThrow();
+            OrderDetail detail = orderDetailRepository.findByOrderId(orderId, date);
+            orderDetailRepository.findById(detail.getDetailId());
+            orderDetailRepository.findByOrderIds(List.of(orderId, orderId + 1, orderId + 2));
+            orderDetailRepository.patchByOrderId(orderId, date, Map.of("customer_name", "renamed"));
+            orderDetailRepository.update(detail);
+            orderDetailRepository.delete(detail.getDetailId());
+            orderDetailRepository.deleteByOrderId(orderId + 1, orderRepository.findDate(orderId + 1).orElseThrow());
+        });
+    }
+
+    @Test
+    void productQueries_UseIndexes() throws Exception {
+        int orderId = ORDERS / 4;
+        List<Integer> ids = IntStream.range(orderId, orderId + 1000).boxed().collect(Collectors.toList());
+        assertNoSequentialScans(() -> {
+            LocalDateTime date = orderRepository.findDate(orderId).orElseThrow();
+            List<Product> products = productRepository.findByOrderId(orderId, date);
+            Product product = products.get(0);
+            productRepository.findById(product.getProductId());
+            productRepository.findByOrderIds(ids);
+            Map<Integer, Map<String, Object>> changes = new LinkedHashMap<>();
+            changes.put(product.getProductId(), Map.of("quantity", 42));
+            productRepository.patchAll(orderId, date, changes);
+            productRepository.update(product);
+            productRepository.create(product);
+            productRepository.createAll(products);
+            productRepository.delete(product.getProductId());
+            productRepository.deleteByOrderId(orderId + 1, orderRepository.findDate(orderId + 1).orElseThrow());
+        });
+    }
+
+    @FunctionalInterface
+    private interface Queries {
+        void run() throws Exception;
+    }
+
+    private static void assertNoSequentialScans(Queries queries) throws Exception {
+        recorded.clear();
+        queries.run();
+        List<String> failures = new ArrayList<>();
+        for (Recorded statement : List.copyOf(recorded)) {
+            JsonNode plan = explain(statement);
+            List<String> scanned = new ArrayList<>();
+            collectSequentialScans(plan, scanned);
+            if (!scanned.isEmpty()) {
+                failures.add("Sequential scan of " + scanned + " in: " + statement.sql + "\n" + plan.toPrettyString());
+            }
+        }
+        if (!failures.isEmpty()) {
+            fail(String.join("\n\n", failures));
+        }
+    }
+
+    private static JsonNode explain(Recorded statement) throws Exception {
+        try (PreparedStatement explain = realConnection.prepareStatement("EXPLAIN (FORMAT JSON) " + statement.sql)) {
+            for (Object[] call : statement.parameters) {
+                invoke((Method) call[0], explain, (Object[]) call[1]);
+            }
+            try (ResultSet rs = explain.executeQuery()) {
+                rs.next();
+                return objectMapper.readTree(rs.getString(1)).get(0).get("Plan");
+            }
+        }
+    }
+
+    private static void collectSequentialScans(JsonNode node, List<String> scanned) throws SQLException {
+        String relation = node.path("Relation Name").asText();
+        if ("Seq Scan".equals(node.path("Node Type").asText()) && PARTITION.matcher(relation).matches()
+                && !isEmpty(relation)) {
+            scanned.add(relation);
+        }
+        for (JsonNode child : node.path("Plans")) {
+            collectSequentialScans(child, scanned);
+        }
+    }
+
+    private static void collectRelations(JsonNode node, Set<String> relations) {
+        if (node.has("Relation Name")) {
+            relations.add(node.get("Relation Name").asText());
+        }
+        for (JsonNode child : node.path("Plans")) {
+            collectRelations(child, relations);
+        }
+    }
+
+    /**
+     * Partitions of months without orders are empty, and scanning them sequentially costs nothing.
+     */
+    private static boolean isEmpty(String relation) throws SQLException {
+        try (PreparedStatement stmt = realConnection.prepareStatement(
+                "SELECT reltuples <= 0 FROM pg_class WHERE oid = ?::regclass")) {
+            stmt.setString(1, relation);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    /**
+     * Passes every call through, remembering parameter setters and recording the statement with its current
+     * parameters each time it is executed or added to a batch.
+     */
+    private static PreparedStatement recording(PreparedStatement statement, String sql) {
+        Map<Integer, Object[]> parameters = new LinkedHashMap<>();
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        parameters.put((Integer) args[0], new Object[]{method, args});
+                    } else if ("clearParameters".equals(name)) {
+                        parameters.clear();
+                    } else if (args == null && ("addBatch".equals(name) || "execute".equals(name)
+                            || "executeQuery".equals(name) || "executeUpdate".equals(name))) {
+                        recorded.add(new Recorded(sql, List.copyOf(parameters.values())));
+                    }
+                    return invoke(method, statement, args);
+                });
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Exception {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw (Exception) e.getCause();
+        }
+    }
+
+    private static void seed() throws SQLException {
+        try (Statement stmt = realConnection.createStatement()) {
+            stmt.execute("SELECT create_order_partitions(1, localtimestamp - interval '2 months')");
+            stmt.execute("""
+                    INSERT INTO orders (order_date, status)
+                    SELECT now() - (g % 1000) * interval '1 hour',
+                           (ARRAY['processing', 'completed', 'cancelled'])[1 + g % 3]
+                    FROM generate_series(1, %d) g
+                    """.formatted(ORDERS));
+            stmt.execute("""
+                    INSERT INTO order_details (order_id, order_date, customer_name, order_description, customer_contact)
+                    SELECT o.order_id, o.order_date, 'customer' || o.order_id, 'description', 'contact'
+                    FROM orders o
+                    WHERE NOT EXISTS (SELECT 1 FROM order_details d WHERE d.order_id = o.order_id)
+                    """);
+            stmt.execute("""
+                    INSERT INTO products (order_id, order_date, name, description, price, quantity)
+                    SELECT o.order_id, o.order_date, 'product' || p, 'description', 10.00, p
+                    FROM orders o CROSS JOIN generate_series(1, 3) p
+                    WHERE NOT EXISTS (SELECT 1 FROM products x WHERE x.order_id = o.order_id)
+                    """);
+            stmt.execute("ANALYZE orders, order_details, products, order_ids");
+        }
+    }
+}
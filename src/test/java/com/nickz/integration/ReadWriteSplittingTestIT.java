@@ -0,0 +1,106 @@
+package com.nickz.integration;
+
+import com.nickz.util.ConnectionPool;
+import com.nickz.util.LiquibaseInitializer;
+import com.nickz.util.PoolConfig;
+import com.nickz.util.RoutingConnectionPool;
+import com.nickz.util.RoutingContext;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Two independent Postgres instances stand in for a primary and a replica. Without replication between them,
+ * a row written through the primary is visible to a read only if the read was routed to the primary.
+ */
+@Testcontainers
+public class ReadWriteSplittingTestIT {
+
+    @Container
+    private static final PostgreSQLContainer<?> primaryContainer = new PostgreSQLContainer<>("postgres:14.1")
+            .withDatabaseName("postgres")
+            .withUsername("test")
+            .withPassword("test");
+
+    @Container
+    private static final PostgreSQLContainer<?> replicaContainer = new PostgreSQLContainer<>("postgres:14.1")
+            .withDatabaseName("postgres")
+            .withUsername("test")
+            .withPassword("test");
+
+    private static RoutingConnectionPool pool;
+
+    @BeforeAll
+    static void setUp() {
+        primaryContainer.start();
+        replicaContainer.start();
+        LiquibaseInitializer.runLiquibaseTest(primaryContainer.getJdbcUrl(), "test", "test");
+        LiquibaseInitializer.runLiquibaseTest(replicaContainer.getJdbcUrl(), "test", "test");
+        pool = new RoutingConnectionPool(newPool(primaryContainer), List.of(newPool(replicaContainer)),
+                RoutingConnectionPool.Balancing.ROUND_ROBIN, true);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        pool.close();
+        primaryContainer.stop();
+        replicaContainer.stop();
+    }
+
+    @Test
+    void writesGoToPrimary_ReadsGoToReplica_UnlessTheRequestHasWritten() throws SQLException {
+        int before = countOrders(replicaContainer);
+        try (RoutingContext.Scope request = RoutingContext.request()) {
+            try (Connection conn = pool.acquire();
+                 PreparedStatement stmt = conn.prepareStatement(
+                         "INSERT INTO orders (order_date, status) VALUES (now(), 'processing'::order_status)")) {
+                stmt.executeUpdate();
+            }
+            assertEquals(countOrders(primaryContainer), countRouted());
+        }
+        assertEquals(before, countRouted());
+    }
+
+    private static int countRouted() throws SQLException {
+        try (RoutingContext.Scope readOnly = RoutingContext.readOnly();
+             Connection conn = pool.acquire();
+             PreparedStatement stmt = conn.prepareStatement("SELECT count(*) FROM orders");
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static int countOrders(PostgreSQLContainer<?> container) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(container.getJdbcUrl(), "test", "test");
+             PreparedStatement stmt = conn.prepareStatement("SELECT count(*) FROM orders");
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static ConnectionPool newPool(PostgreSQLContainer<?> container) {
+        PoolConfig config = PoolConfig.builder()
+                .url(container.getJdbcUrl())
+                .user(container.getUsername())
+                .password(container.getPassword())
+                .minSize(1)
+                .maxSize(2)
+                .build();
+        return new ConnectionPool(config,
+                () -> DriverManager.getConnection(config.getUrl(), config.getUser(), config.getPassword()));
+    }
+}
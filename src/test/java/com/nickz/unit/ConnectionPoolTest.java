@@ -0,0 +1,332 @@
+package com.nickz.unit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.nickz.exception.ConnectionPoolTimeoutException;
+import com.nickz.util.ConnectionPool;
+import com.nickz.util.PoolConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+public class ConnectionPoolTest {
+
+    private final List<Connection> opened = new CopyOnWriteArrayList<>();
+    private ConnectionPool pool;
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    void acquire_AfterClose_ReusesPhysicalConnection() throws SQLException {
+        pool = newPool(PoolConfig.builder().minSize(1).maxSize(1).build());
+        Connection first = pool.acquire();
+        first.close();
+        Connection second = pool.acquire();
+        second.close();
+        assertEquals(1, opened.size());
+        verify(opened.get(0), never()).close();
+    }
+
+    @Test
+    void constructor_WarmsUpInBackground_AndServesFirstReadyConnection() throws Exception {
+        CountDownLatch slowDatabase = new CountDownLatch(1);
+        AtomicInteger attempts = new AtomicInteger();
+        Thread caller = Thread.currentThread();
+        pool = new ConnectionPool(PoolConfig.builder().minSize(3).maxSize(3).build(), () -> {
+            if (Thread.currentThread() != caller && attempts.incrementAndGet() > 1) {
+                awaitUninterruptibly(slowDatabase);
+            }
+            return newConnection();
+        });
+        assertEquals(ConnectionPool.State.STARTING, pool.getState());
+        assertNotNull(pool.acquire());
+        assertFalse(pool.isReady());
+        slowDatabase.countDown();
+        assertTrue(pool.awaitReady(2, TimeUnit.SECONDS));
+        assertEquals(ConnectionPool.State.READY, pool.getState());
+    }
+
+    @Test
+    void constructor_OpensMinimumConnectionsInParallel() throws Exception {
+        pool = new ConnectionPool(PoolConfig.builder().minSize(4).maxSize(4).warmupParallelism(4).build(), () -> {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(300));
+            return newConnection();
+        });
+        assertTrue(pool.awaitReady(900, TimeUnit.MILLISECONDS));
+        assertEquals(4, pool.getIdleConnections());
+    }
+
+    @Test
+    void acquire_WhenIdleEmpty_GrowsUpToMaxSize() {
+        pool = newPool(PoolConfig.builder().minSize(0).maxSize(3).acquireTimeoutMs(50).build());
+        pool.acquire();
+        pool.acquire();
+        pool.acquire();
+        assertEquals(3, pool.getTotalConnections());
+        assertEquals(3, pool.getActiveConnections());
+        assertThrows(ConnectionPoolTimeoutException.class, () -> pool.acquire());
+    }
+
+    @Test
+    void acquire_WhenAllBusy_ReceivesConnectionReturnedByAnotherThread() throws Exception {
+        pool = newPool(PoolConfig.builder().minSize(1).maxSize(1).acquireTimeoutMs(2_000).build());
+        Connection held = pool.acquire();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Connection> waiting = executor.submit(() -> pool.acquire());
+            Thread.sleep(100);
+            assertFalse(waiting.isDone());
+            held.close();
+            assertNotNull(waiting.get(1, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void acquire_WhenSaturated_QueuesBorrowersInArrivalOrder() throws Exception {
+        pool = newPool(PoolConfig.builder().minSize(1).maxSize(1).acquireTimeoutMs(5_000).build());
+        Connection held = pool.acquire();
+        List<Integer> served = new CopyOnWriteArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<?>> futures = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                int borrower = i;
+                futures.add(executor.submit(() -> {
+                    try (Connection connection = pool.acquire()) {
+                        served.add(borrower);
+                    }
+                    return null;
+                }));
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+                while (pool.getPendingThreads() < i + 1 && System.nanoTime() < deadline) {
+                    Thread.sleep(5);
+                }
+            }
+            assertEquals(3, pool.getPendingThreads());
+            held.close();
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(List.of(0, 1, 2), served);
+        assertEquals(1, opened.size());
+        assertEquals(0, pool.getPendingThreads());
+    }
+
+    @Test
+    void acquire_ManyThreads_NeverHandsOutSameConnectionTwice() throws Exception {
+        pool = newPool(PoolConfig.builder().minSize(0).maxSize(4).acquireTimeoutMs(5_000).build());
+        Set<String> inUse = ConcurrentHashMap.newKeySet();
+        AtomicInteger collisions = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> futures = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 500; j++) {
+                        try (Connection connection = pool.acquire()) {
+                            String physical = connection.toString();
+                            if (!inUse.add(physical)) {
+                                collisions.incrementAndGet();
+                            }
+                            Thread.yield();
+                            inUse.remove(physical);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, collisions.get());
+        assertTrue(opened.size() <= 4);
+        assertEquals(0, pool.getActiveConnections());
+    }
+
+    @Test
+    void close_Twice_ReturnsConnectionOnlyOnce() throws SQLException {
+        pool = newPool(PoolConfig.builder().minSize(1).maxSize(1).build());
+        Connection connection = pool.acquire();
+        connection.close();
+        connection.close();
+        assertEquals(1, pool.getIdleConnections());
+        assertTrue(connection.isClosed());
+        assertThrows(SQLException.class, connection::createStatement);
+    }
+
+    @Test
+    void acquire_BrokenIdleConnection_IsReplaced() throws Exception {
+        pool = newPool(PoolConfig.builder().minSize(1).maxSize(1).build());
+        assertTrue(pool.awaitReady(5, TimeUnit.SECONDS));
+        Thread.sleep(600);
+        when(opened.get(0).isValid(anyInt())).thenReturn(false);
+        Connection connection = pool.acquire();
+        assertNotNull(connection);
+        assertEquals(2, opened.size());
+        verify(opened.get(0)).close();
+    }
+
+    @Test
+    void housekeeping_EvictsIdleConnectionsAboveMinimum() throws Exception {
+        pool = newPool(PoolConfig.builder().minSize(1).maxSize(3).idleTimeoutMs(10).housekeepingPeriodMs(20).build());
+        Connection a = pool.acquire();
+        Connection b = pool.acquire();
+        Connection c = pool.acquire();
+        a.close();
+        b.close();
+        c.close();
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (pool.getTotalConnections() > 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, pool.getTotalConnections());
+    }
+
+    @Test
+    void prepareStatement_SameSql_ReusesCachedStatement() throws SQLException {
+        pool = newPool(PoolConfig.builder().minSize(1).maxSize(1).build());
+        PreparedStatement physical;
+        try (Connection connection = pool.acquire();
+             PreparedStatement statement = connection.prepareStatement("SELECT 1")) {
+            physical = statement.unwrap(PreparedStatement.class);
+        }
+        try (Connection connection = pool.acquire();
+             PreparedStatement statement = connection.prepareStatement("SELECT 1")) {
+            assertSame(physical, statement.unwrap(PreparedStatement.class));
+        }
+        verify(opened.get(0), times(1)).prepareStatement("SELECT 1");
+        verify(physical, never()).close();
+        verify(physical, times(2)).clearParameters();
+        assertEquals(1, pool.getStatementCacheHits());
+        assertEquals(1, pool.getStatementCacheMisses());
+    }
+
+    @Test
+    void executeQuery_ResultSetStatement_IsTheCachedStatement() throws SQLException {
+        pool = newPool(PoolConfig.builder().minSize(1).maxSize(1).build());
+        try (Connection connection = pool.acquire()) {
+            PreparedStatement statement = connection.prepareStatement("SELECT 1");
+            PreparedStatement physical = statement.unwrap(PreparedStatement.class);
+            ResultSet physicalResult = mock(ResultSet.class);
+            when(physical.executeQuery()).thenReturn(physicalResult);
+            when(physicalResult.next()).thenReturn(true);
+
+            ResultSet rs = statement.executeQuery();
+            assertTrue(rs.next());
+            assertSame(statement, rs.getStatement());
+            rs.getStatement().close();
+            verify(physical, never()).close();
+            verify(physicalResult).close();
+        }
+        assertEquals(1, pool.getStatementCacheMisses());
+    }
+
+    @Test
+    void prepareStatement_GeneratedKeysMode_IsPartOfCacheKey() throws SQLException {
+        pool = newPool(PoolConfig.builder().minSize(1).maxSize(1).build());
+        try (Connection connection = pool.acquire()) {
+            connection.prepareStatement("INSERT 1").close();
+            connection.prepareStatement("INSERT 1", Statement.RETURN_GENERATED_KEYS).close();
+        }
+        assertEquals(0, pool.getStatementCacheHits());
+        assertEquals(2, pool.getStatementCacheMisses());
+    }
+
+    @Test
+    void prepareStatement_ChangedFetchSize_IsNotReturnedToCache() throws SQLException {
+        pool = newPool(PoolConfig.builder().minSize(1).maxSize(1).build());
+        try (Connection connection = pool.acquire()) {
+            PreparedStatement statement = connection.prepareStatement("SELECT 1");
+            statement.setFetchSize(100);
+            statement.close();
+            verify(statement.unwrap(PreparedStatement.class)).close();
+            connection.prepareStatement("SELECT 1").close();
+        }
+        assertEquals(0, pool.getStatementCacheHits());
+    }
+
+    @Test
+    void prepareStatement_CacheFull_ClosesLeastRecentlyUsed() throws SQLException {
+        pool = newPool(PoolConfig.builder().minSize(1).maxSize(1).statementCacheSize(1).build());
+        try (Connection connection = pool.acquire()) {
+            PreparedStatement first = connection.prepareStatement("SELECT 1");
+            PreparedStatement second = connection.prepareStatement("SELECT 2");
+            first.close();
+            second.close();
+            verify(first.unwrap(PreparedStatement.class)).close();
+            verify(second.unwrap(PreparedStatement.class), never()).close();
+        }
+    }
+
+    @Test
+    void acquireAndRelease_RecordWaitHoldAndTimeouts() throws SQLException {
+        pool = newPool(PoolConfig.builder().minSize(0).maxSize(1).acquireTimeoutMs(50).build());
+        Connection connection = pool.acquire();
+        assertThrows(ConnectionPoolTimeoutException.class, () -> pool.acquire());
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(20));
+        connection.close();
+        assertEquals(2, pool.getAcquireWait().getCount());
+        assertTrue(pool.getAcquireWait().getSumNanos() >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(1, pool.getHoldTime().getCount());
+        assertTrue(pool.getHoldTime().getSumNanos() >= TimeUnit.MILLISECONDS.toNanos(20));
+        assertEquals(1, pool.getAcquireTimeouts());
+    }
+
+    private ConnectionPool newPool(PoolConfig config) {
+        return new ConnectionPool(config, this::newConnection);
+    }
+
+    private Connection newConnection() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(connection.isValid(anyInt())).thenReturn(true);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.prepareStatement(anyString())).thenAnswer(invocation -> newStatement());
+        when(connection.prepareStatement(anyString(), anyInt())).thenAnswer(invocation -> newStatement());
+        opened.add(connection);
+        return connection;
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static PreparedStatement newStatement() throws SQLException {
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(statement.unwrap(PreparedStatement.class)).thenReturn(statement);
+        return statement;
+    }
+}
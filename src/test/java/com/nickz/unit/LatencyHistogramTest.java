@@ -0,0 +1,48 @@
+package com.nickz.unit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.nickz.util.LatencyHistogram;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class LatencyHistogramTest {
+
+    @Test
+    void record_CountsAndSumsValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(3));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(5));
+        assertEquals(2, histogram.getCount());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(5_003), histogram.getSumNanos());
+    }
+
+    @Test
+    void writePrometheus_WritesCumulativeBucketsInSeconds() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(3));
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(4));
+        histogram.record(TimeUnit.MINUTES.toNanos(10));
+        StringBuilder out = new StringBuilder();
+        histogram.writePrometheus(out, "wait_seconds", "pool=\"primary\",");
+        String text = out.toString();
+        assertTrue(text.contains("wait_seconds_bucket{pool=\"primary\",le=\"0.000002\"} 0\n"));
+        assertTrue(text.contains("wait_seconds_bucket{pool=\"primary\",le=\"0.000004\"} 2\n"));
+        assertTrue(text.contains("wait_seconds_bucket{pool=\"primary\",le=\"+Inf\"} 3\n"));
+        assertTrue(text.contains("wait_seconds_count{pool=\"primary\"} 3\n"));
+    }
+
+    @Test
+    void record_PartialMicrosecond_GoesToNextBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(4_001);
+        histogram.record(0);
+        StringBuilder out = new StringBuilder();
+        histogram.writePrometheus(out, "wait_seconds", "");
+        String text = out.toString();
+        assertTrue(text.contains("wait_seconds_bucket{le=\"0.000001\"} 1\n"), text);
+        assertTrue(text.contains("wait_seconds_bucket{le=\"0.000004\"} 1\n"), text);
+        assertTrue(text.contains("wait_seconds_bucket{le=\"0.000008\"} 2\n"), text);
+    }
+}
@@ -0,0 +1,204 @@
+package com.nickz.unit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.nickz.service.OrderCache;
+import com.nickz.service.Versioned;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+public class OrderCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void get_SecondLookup_IsServedFromCache() {
+        OrderCache cache = new OrderCache(10, 0, false);
+        OrderCache.Entry first = cache.get(1, () -> load(1, 3));
+        OrderCache.Entry second = cache.get(1, () -> load(1, 4));
+        assertEquals(1, loads.get());
+        assertSame(first, second);
+        assertEquals(3, second.getVersion());
+        assertEquals(0.5, cache.getHitRatio());
+        assertEquals(first.getBody().length, cache.getBytes());
+    }
+
+    @Test
+    void get_OverMaxSize_EvictsLeastRecentlyUsed() {
+        OrderCache cache = new OrderCache(2, 0, false);
+        cache.get(1, () -> load(1, 1));
+        cache.get(2, () -> load(2, 1));
+        cache.get(1, () -> load(1, 1));
+        cache.get(3, () -> load(3, 1));
+        assertEquals(1, cache.getEvictions());
+        cache.get(1, () -> load(1, 1));
+        assertEquals(3, loads.get());
+        cache.get(2, () -> load(2, 1));
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void get_AfterTtl_Reloads() {
+        AtomicLong now = new AtomicLong();
+        OrderCache cache = new OrderCache(10, 5, false, now::get);
+        cache.get(1, () -> load(1, 1));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(4));
+        cache.get(1, () -> load(1, 1));
+        assertEquals(1, loads.get());
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        cache.get(1, () -> load(1, 1));
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.getExpirations());
+    }
+
+    @Test
+    void get_InvalidatedWhileLoading_DoesNotCacheStaleValue() {
+        OrderCache cache = new OrderCache(10, 0, false);
+        OrderCache.Entry stale = cache.get(1, () -> {
+            Versioned<byte[]> loaded = load(1, 1);
+            cache.invalidate(1);
+            return loaded;
+        });
+        assertNotNull(stale);
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getDiscardedLoads());
+        cache.get(1, () -> load(1, 2));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_ChangedWhileLoading_ReturnsBodyWithoutCachingIt() {
+        OrderCache cache = new OrderCache(10, 0, false);
+        OrderCache.Entry entry = cache.get(1, () -> new Versioned<>(body(10), 1, false));
+        assertFalse(entry.isStable());
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getDiscardedLoads());
+    }
+
+    @Test
+    void get_LoaderFails_CachesNothing() {
+        OrderCache cache = new OrderCache(10, 0, false);
+        assertThrows(IllegalStateException.class, () -> cache.get(1, () -> {
+            throw new IllegalStateException("boom");
+        }));
+        assertEquals(0, cache.size());
+        cache.get(1, () -> load(1, 1));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void get_Disabled_AlwaysLoads() {
+        OrderCache cache = new OrderCache(0, 0, false);
+        cache.get(1, () -> load(1, 1));
+        cache.get(1, () -> load(1, 1));
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void get_LargeBody_StoresGzippedCopy() throws IOException {
+        OrderCache cache = new OrderCache(10, 0, true);
+        byte[] body = body(4096);
+        OrderCache.Entry entry = cache.get(1, () -> new Versioned<>(body, 1, true));
+        assertNotNull(entry.getGzipped());
+        assertTrue(entry.getGzipped().length < body.length);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(entry.getGzipped()))) {
+            assertArrayEquals(body, in.readAllBytes());
+        }
+        assertEquals(body.length + entry.getGzipped().length, cache.getBytes());
+        assertNull(cache.get(2, () -> new Versioned<>(body(10), 1, true)).getGzipped());
+    }
+
+    @Test
+    void get_AfterInvalidateDuringLoad_DoesNotJoinStaleLoad() throws Exception {
+        OrderCache cache = new OrderCache(10, 0, false);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<OrderCache.Entry> stale = executor.submit(() -> cache.get(1, () -> {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return load(1, 1);
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            cache.invalidate(1);
+            assertEquals(2, cache.get(1, () -> load(1, 2)).getVersion());
+            release.countDown();
+            assertEquals(1, stale.get(5, TimeUnit.SECONDS).getVersion());
+            assertEquals(0, cache.getCoalescedLoads());
+            assertEquals(2, cache.get(1, () -> load(1, 3)).getVersion());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void getVersion_CachedOrder_IsAnsweredWithoutLookup() {
+        OrderCache cache = new OrderCache(10, 0, false);
+        cache.get(1, () -> load(1, 7));
+        assertEquals(7, cache.getVersion(1, () -> {
+            throw new IllegalStateException("not cached");
+        }));
+        cache.invalidate(1);
+        assertEquals(8, cache.getVersion(1, () -> 8));
+    }
+
+    @Test
+    void getVersion_ConcurrentLookups_ShareOneRead() throws Exception {
+        OrderCache cache = new OrderCache(0, 0, false);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Long> first = executor.submit(() -> cache.getVersion(1, () -> {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                loads.incrementAndGet();
+                return 3;
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<Long> second = executor.submit(() -> cache.getVersion(1, () -> {
+                loads.incrementAndGet();
+                return 4;
+            }));
+            while (cache.getCoalescedLoads() == 0) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+            assertEquals(3, first.get(5, TimeUnit.SECONDS));
+            assertEquals(3, second.get(5, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Versioned<byte[]> load(int orderId, long version) {
+        loads.incrementAndGet();
+        return new Versioned<>(("{\"orderId\":" + orderId + "}").getBytes(StandardCharsets.UTF_8), version, true);
+    }
+
+    private static byte[] body(int length) {
+        return "x".repeat(length).getBytes(StandardCharsets.UTF_8);
+    }
+}
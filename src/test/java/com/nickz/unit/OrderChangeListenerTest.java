@@ -0,0 +1,187 @@
+package com.nickz.unit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.nickz.util.OrderChangeListener;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class OrderChangeListenerTest {
+
+    private final BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+
+    private final OrderChangeListener.Subscriber subscriber = new OrderChangeListener.Subscriber() {
+        @Override
+        public void ordersChanged(Collection<Integer> orderIds) {
+            events.add(Set.copyOf(orderIds));
+        }
+
+        @Override
+        public void allOrdersChanged() {
+            events.add("all");
+        }
+
+        @Override
+        public void ordersCreated(Collection<Integer> orderIds) {
+            events.add("created " + Set.copyOf(orderIds));
+        }
+
+        @Override
+        public void unlistedOrdersCreated() {
+            events.add("unlisted");
+        }
+
+        @Override
+        public void listeningStopped() {
+            events.add("stopped");
+        }
+    };
+
+    @Test
+    void listen_BatchesNotifiedIdsAndResetsOnConnect() throws Exception {
+        PGNotification[] first = {notification("1,2"), notification("2")};
+        PGNotification[] second = {notification("7")};
+        PGConnection pgConnection = mock(PGConnection.class);
+        when(pgConnection.getNotifications(anyInt())).thenReturn(first).thenAnswer(invocation -> idle());
+        when(pgConnection.getNotifications()).thenReturn(second);
+        Connection connection = connection(pgConnection);
+
+        try (OrderChangeListener listener = new OrderChangeListener(() -> connection, 10)) {
+            listener.subscribe(subscriber);
+            listener.start();
+            assertConnected();
+            assertEquals(Set.of(1, 2, 7), events.poll(5, TimeUnit.SECONDS));
+        }
+        verify(connection.createStatement()).execute("LISTEN " + OrderChangeListener.CHANNEL);
+    }
+
+    @Test
+    void listen_AfterReconnect_InvalidatesEverything() throws Exception {
+        PGConnection pgConnection = mock(PGConnection.class);
+        when(pgConnection.getNotifications(anyInt()))
+                .thenThrow(new SQLException("connection reset"))
+                .thenAnswer(invocation -> idle());
+        Connection connection = connection(pgConnection);
+        AtomicInteger connects = new AtomicInteger();
+
+        try (OrderChangeListener listener = new OrderChangeListener(() -> {
+            connects.incrementAndGet();
+            return connection;
+        }, 0)) {
+            listener.subscribe(subscriber);
+            listener.start();
+            assertConnected();
+            assertEquals("stopped", events.poll(5, TimeUnit.SECONDS));
+            assertConnected();
+        }
+        assertEquals(2, connects.get());
+    }
+
+    @Test
+    void listen_WildcardPayload_InvalidatesEverything() throws Exception {
+        PGNotification[] received = {notification("3"), notification("*")};
+        PGConnection pgConnection = mock(PGConnection.class);
+        when(pgConnection.getNotifications(anyInt()))
+                .thenReturn(received)
+                .thenAnswer(invocation -> idle());
+        Connection connection = connection(pgConnection);
+
+        try (OrderChangeListener listener = new OrderChangeListener(() -> connection, 0)) {
+            listener.subscribe(subscriber);
+            listener.start();
+            assertConnected();
+            assertEquals("all", events.poll(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void listen_PlusWildcardPayload_ReportsUnlistedInsertsAndKeepsOtherIds() throws Exception {
+        PGNotification[] received = {notification("+*"), notification("+6"), notification("*"), notification("5")};
+        PGConnection pgConnection = mock(PGConnection.class);
+        when(pgConnection.getNotifications(anyInt()))
+                .thenReturn(received)
+                .thenAnswer(invocation -> idle());
+        Connection connection = connection(pgConnection);
+
+        try (OrderChangeListener listener = new OrderChangeListener(() -> connection, 0)) {
+            listener.subscribe(subscriber);
+            listener.start();
+            assertConnected();
+            assertEquals("unlisted", events.poll(5, TimeUnit.SECONDS));
+            assertEquals("all", events.poll(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void listen_WildcardPayload_StillReportsCreatedOrders() throws Exception {
+        PGNotification[] received = {notification("+6"), notification("*")};
+        PGConnection pgConnection = mock(PGConnection.class);
+        when(pgConnection.getNotifications(anyInt()))
+                .thenReturn(received)
+                .thenAnswer(invocation -> idle());
+        Connection connection = connection(pgConnection);
+
+        try (OrderChangeListener listener = new OrderChangeListener(() -> connection, 0)) {
+            listener.subscribe(subscriber);
+            listener.start();
+            assertConnected();
+            assertEquals("created " + Set.of(6), events.poll(5, TimeUnit.SECONDS));
+            assertEquals("all", events.poll(5, TimeUnit.SECONDS));
+        }
+    }
+
+    private void assertConnected() throws InterruptedException {
+        assertEquals("unlisted", events.poll(5, TimeUnit.SECONDS));
+        assertEquals("all", events.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void listen_PlusPayload_ReportsCreatedOrdersSeparately() throws Exception {
+        PGNotification[] received = {notification("+8,9"), notification("4")};
+        PGConnection pgConnection = mock(PGConnection.class);
+        when(pgConnection.getNotifications(anyInt()))
+                .thenReturn(received)
+                .thenAnswer(invocation -> idle());
+        Connection connection = connection(pgConnection);
+
+        try (OrderChangeListener listener = new OrderChangeListener(() -> connection, 0)) {
+            listener.subscribe(subscriber);
+            listener.start();
+            assertConnected();
+            assertEquals("created " + Set.of(8, 9), events.poll(5, TimeUnit.SECONDS));
+            assertEquals(Set.of(4), events.poll(5, TimeUnit.SECONDS));
+        }
+    }
+
+    private static Connection connection(PGConnection pgConnection) throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        when(connection.isValid(anyInt())).thenReturn(true);
+        return connection;
+    }
+
+    private static PGNotification[] idle() throws InterruptedException {
+        Thread.sleep(10);
+        return new PGNotification[0];
+    }
+
+    private static PGNotification notification(String payload) {
+        PGNotification notification = mock(PGNotification.class);
+        when(notification.getParameter()).thenReturn(payload);
+        return notification;
+    }
+}
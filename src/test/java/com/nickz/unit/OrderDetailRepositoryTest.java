@@ -4,6 +4,8 @@ import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
 
 import com.nickz.entity.OrderDetail;
+import com.nickz.exception.OrderNotFoundException;
+import com.nickz.exception.OrderUpdateException;
 import com.nickz.repository.OrderDetailRepository;
 import com.nickz.util.ConnectionManager;
 import org.junit.jupiter.api.AfterEach;
@@ -18,6 +20,12 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @ExtendWith(MockitoExtension.class)
 public class OrderDetailRepositoryTest {
@@ -68,6 +76,26 @@ public class OrderDetailRepositoryTest {
         assertNull(result);
     }
 
+    @Test
+    void findByOrderIds_ReturnsDetailsOfAllOrdersInOneQuery() throws SQLException {
+        when(connection.prepareStatement(contains("= ANY(?)"))).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+        lenient().when(resultSet.getInt("order_id")).thenReturn(1, 2);
+
+        List<OrderDetail> result = repository.findByOrderIds(List.of(1, 2));
+
+        assertEquals(2, result.size());
+        assertEquals(2, result.get(1).getOrderId());
+        verify(connection).createArrayOf("integer", new Object[]{1, 2});
+    }
+
+    @Test
+    void findByOrderIds_EmptyIds_DoesNotQuery() throws SQLException {
+        assertTrue(repository.findByOrderIds(List.of()).isEmpty());
+        verifyNoInteractions(connection);
+    }
+
     @Test
     void create_OrderDetail_SuccessfullyCreates() throws SQLException {
         when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
@@ -77,14 +105,17 @@ public class OrderDetailRepositoryTest {
         detail.setCustomerName("test name");
         detail.setOrderDescription("New order");
         detail.setCustomerContact("test@example.com");
+        detail.setOrderDate(LocalDateTime.of(2026, 10, 18, 12, 0));
 
         assertDoesNotThrow(() -> repository.create(detail));
+        verify(preparedStatement).setTimestamp(5, Timestamp.valueOf(detail.getOrderDate()));
         verify(preparedStatement).executeUpdate();
     }
 
     @Test
     void update_ExistingOrderDetail_SuccessfullyUpdates() throws SQLException {
         when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeUpdate()).thenReturn(1);
 
         OrderDetail detail = new OrderDetail();
         detail.setDetailId(1);
@@ -97,6 +128,18 @@ public class OrderDetailRepositoryTest {
         verify(preparedStatement).executeUpdate();
     }
 
+    @Test
+    void update_MissingDetailOrOrder_ThrowsOrderUpdateException() throws SQLException {
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeUpdate()).thenReturn(0);
+
+        OrderDetail detail = new OrderDetail();
+        detail.setDetailId(1);
+        detail.setOrderId(99);
+
+        assertThrows(OrderUpdateException.class, () -> repository.update(detail));
+    }
+
     @Test
     void delete_ExistingOrderDetail_SuccessfullyDeletes() throws SQLException {
         when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
@@ -105,6 +148,48 @@ public class OrderDetailRepositoryTest {
         verify(preparedStatement).executeUpdate();
     }
 
+    @Test
+    void patchByOrderId_SkipsRowWhenValuesAreUnchanged() throws SQLException {
+        when(connection.prepareStatement("UPDATE order_details SET customer_name = ?, customer_contact = ?"
+                + " WHERE order_id = ? AND order_date = ?"
+                + " AND (customer_name IS DISTINCT FROM ? OR customer_contact IS DISTINCT FROM ?)"))
+                .thenReturn(preparedStatement);
+        when(preparedStatement.executeUpdate()).thenReturn(0);
+        stubDetailExists(true);
+        Map<String, Object> changes = new LinkedHashMap<>();
+        changes.put("customer_name", "Ann");
+        changes.put("customer_contact", null);
+
+        LocalDateTime date = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+        assertEquals(0, repository.patchByOrderId(4, date, changes));
+
+        verify(preparedStatement).setObject(1, "Ann");
+        verify(preparedStatement).setNull(2, Types.OTHER);
+        verify(preparedStatement).setInt(3, 4);
+        verify(preparedStatement).setTimestamp(4, Timestamp.valueOf(date));
+        verify(preparedStatement).setObject(5, "Ann");
+        verify(preparedStatement).setNull(6, Types.OTHER);
+    }
+
+    @Test
+    void patchByOrderId_MissingDetail_ThrowsOrderNotFound() throws SQLException {
+        when(connection.prepareStatement(startsWith("UPDATE order_details"))).thenReturn(preparedStatement);
+        when(preparedStatement.executeUpdate()).thenReturn(0);
+        stubDetailExists(false);
+
+        assertThrows(OrderNotFoundException.class, () -> repository.patchByOrderId(4, LocalDateTime.now(),
+                Map.of("customer_name", "Ann")));
+    }
+
+    private void stubDetailExists(boolean exists) throws SQLException {
+        PreparedStatement existing = mock(PreparedStatement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(connection.prepareStatement("SELECT 1 FROM order_details WHERE order_id = ? AND order_date = ?")).thenReturn(existing);
+        when(existing.executeQuery()).thenReturn(rs);
+        when(rs.next()).thenReturn(exists);
+    }
+
     @AfterEach
     void tearDown() {
         mockedConnectionManager.close();
@@ -0,0 +1,45 @@
+package com.nickz.unit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.nickz.repository.OrderCopyRepository;
+import com.nickz.service.OrderExportService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
+
+@ExtendWith(MockitoExtension.class)
+public class OrderExportServiceTest {
+
+    @Mock
+    private OrderCopyRepository copyRepository;
+
+    @Test
+    void exportOrders_UsesCopyForRequestedFormat() throws Exception {
+        OutputStream out = new ByteArrayOutputStream();
+        when(copyRepository.exportNdjson(out)).thenReturn(3L);
+        OrderExportService service = new OrderExportService(copyRepository);
+        assertEquals(3, service.exportOrders(OrderExportService.Format.of("ndjson"), out));
+        verify(copyRepository, never()).exportCsv(any());
+    }
+
+    @Test
+    void exportOrders_ClientGone_RethrowsIOException() throws Exception {
+        OutputStream out = new ByteArrayOutputStream();
+        when(copyRepository.exportCsv(out)).thenThrow(new IOException("Broken pipe"));
+        OrderExportService service = new OrderExportService(copyRepository);
+        assertThrows(IOException.class, () -> service.exportOrders(OrderExportService.Format.CSV, out));
+    }
+
+    @Test
+    void format_Unknown_IsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> OrderExportService.Format.of("xml"));
+    }
+}
@@ -0,0 +1,135 @@
+package com.nickz.unit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.nickz.service.OrderIdFilter;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+public class OrderIdFilterTest {
+
+    @Test
+    void mightExist_BeforeRebuild_LetsEverythingThrough() {
+        OrderIdFilter filter = new OrderIdFilter(true, sink -> sink.accept(1));
+        assertTrue(filter.mightExist(2));
+        assertFalse(filter.isComplete());
+    }
+
+    @Test
+    void mightExist_AfterRebuild_RejectsUnknownIdsBelowSlack() {
+        OrderIdFilter filter = new OrderIdFilter(true, 10, sink -> List.of(1, 3, 130).forEach(sink::accept));
+        filter.rebuild();
+        assertTrue(filter.mightExist(1));
+        assertTrue(filter.mightExist(130));
+        assertFalse(filter.mightExist(2));
+        assertFalse(filter.mightExist(0));
+        assertTrue(filter.mightExist(121));
+        assertFalse(filter.mightExist(119));
+        assertTrue(filter.mightExist(141));
+        assertTrue(filter.mightExist(Integer.MAX_VALUE));
+        assertEquals(3, filter.getRejections());
+    }
+
+    @Test
+    void addAndRemove_TrackCreatesAndDeletes() {
+        OrderIdFilter filter = new OrderIdFilter(true, 0, sink -> sink.accept(1));
+        filter.rebuild();
+        filter.ordersCreated(List.of(5000));
+        assertTrue(filter.mightExist(5000));
+        assertFalse(filter.mightExist(4999));
+        filter.remove(1);
+        assertFalse(filter.mightExist(1));
+    }
+
+    @Test
+    void rebuild_KeepsIdsAddedWhileScanning() {
+        AtomicReference<OrderIdFilter> self = new AtomicReference<>();
+        OrderIdFilter filter = new OrderIdFilter(true, 0, sink -> {
+            sink.accept(1);
+            self.get().add(7);
+            sink.accept(10);
+        });
+        self.set(filter);
+        filter.rebuild();
+        assertTrue(filter.mightExist(7));
+        assertFalse(filter.mightExist(8));
+    }
+
+    @Test
+    void listeningStopped_OrFailedRebuild_LetsEverythingThrough() {
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        OrderIdFilter filter = new OrderIdFilter(true, 0, sink -> {
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+            sink.accept(10);
+        });
+        filter.unlistedOrdersCreated();
+        assertFalse(filter.mightExist(5));
+        filter.listeningStopped();
+        assertTrue(filter.mightExist(5));
+
+        failure.set(new IllegalStateException("database down"));
+        assertThrows(IllegalStateException.class, filter::rebuild);
+        assertTrue(filter.mightExist(5));
+    }
+
+    @Test
+    void rebuild_AfterFailedScan_IsRetriedUntilItSucceeds() {
+        AtomicInteger scans = new AtomicInteger();
+        OrderIdFilter filter = new OrderIdFilter(true, 0, 10, sink -> {
+            if (scans.incrementAndGet() < 3) {
+                throw new IllegalStateException("database down");
+            }
+            sink.accept(10);
+        });
+        assertThrows(IllegalStateException.class, filter::unlistedOrdersCreated);
+        assertTrue(filter.mightExist(5));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!filter.isComplete() && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+        }
+        assertTrue(filter.isComplete());
+        assertEquals(3, scans.get());
+        assertFalse(filter.mightExist(5));
+    }
+
+    @Test
+    void rebuild_FailedWhileDisconnected_IsNotRetried() {
+        AtomicInteger scans = new AtomicInteger();
+        OrderIdFilter filter = new OrderIdFilter(true, 0, 10, sink -> {
+            scans.incrementAndGet();
+            throw new IllegalStateException("database down");
+        });
+        filter.listeningStopped();
+        assertThrows(IllegalStateException.class, filter::rebuild);
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(1, scans.get());
+    }
+
+    @Test
+    void allOrdersChanged_DoesNotRescan() {
+        AtomicInteger scans = new AtomicInteger();
+        OrderIdFilter filter = new OrderIdFilter(true, 0, sink -> {
+            scans.incrementAndGet();
+            sink.accept(10);
+        });
+        filter.unlistedOrdersCreated();
+        filter.allOrdersChanged();
+        assertEquals(1, scans.get());
+        assertTrue(filter.isComplete());
+    }
+
+    @Test
+    void disabled_NeverRejects() {
+        OrderIdFilter filter = new OrderIdFilter(false, sink -> sink.accept(10));
+        filter.rebuild();
+        assertTrue(filter.mightExist(5));
+    }
+}
@@ -0,0 +1,100 @@
+package com.nickz.unit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.nickz.dto.BulkImportResultDto;
+import com.nickz.dto.OrderDto;
+import com.nickz.entity.OrderDetail;
+import com.nickz.entity.OrderStatus;
+import com.nickz.entity.Product;
+import com.nickz.repository.OrderCopyRepository;
+import com.nickz.service.OrderImportService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@ExtendWith(MockitoExtension.class)
+public class OrderImportServiceTest {
+
+    @Mock
+    private OrderCopyRepository copyRepository;
+
+    @Test
+    void importOrders_CopiesEachChunkWithReservedIds() throws SQLException {
+        List<String> orders = new ArrayList<>();
+        List<String> details = new ArrayList<>();
+        List<String> products = new ArrayList<>();
+        when(copyRepository.reserveOrderIds(2)).thenReturn(List.of(10, 11));
+        when(copyRepository.reserveOrderIds(1)).thenReturn(List.of(12));
+        when(copyRepository.copyOrders(any())).thenAnswer(invocation -> capture(invocation.getArgument(0), orders));
+        when(copyRepository.copyOrderDetails(any())).thenAnswer(invocation -> capture(invocation.getArgument(0), details));
+        when(copyRepository.copyProducts(any())).thenAnswer(invocation -> capture(invocation.getArgument(0), products));
+
+        LocalDateTime date = LocalDateTime.of(2024, 1, 2, 3, 4, 5);
+        List<OrderDto> input = List.of(
+                order(date, "Ann\tLee", product("Pen", "blue\nink", "1.50", 2)),
+                order(date, "Bob", product("Cup", null, "3.00", 1), product("Lid", "a\\b", "0.10", 1)),
+                order(date, "Cy"));
+
+        BulkImportResultDto result = new OrderImportService(copyRepository, 2).importOrders(input.iterator());
+
+        assertEquals(3, result.getOrders());
+        assertEquals(3, result.getOrderDetails());
+        assertEquals(3, result.getProducts());
+        assertEquals(List.of("10\t2024-01-02T03:04:05\tprocessing\n11\t2024-01-02T03:04:05\tprocessing\n",
+                "12\t2024-01-02T03:04:05\tprocessing\n"), orders);
+        assertEquals("10\t2024-01-02T03:04:05\tAnn\\tLee\t\\N\t\\N\n11\t2024-01-02T03:04:05\tBob\t\\N\t\\N\n",
+                details.get(0));
+        assertEquals(List.of("10\t2024-01-02T03:04:05\tPen\tblue\\nink\t1.50\t2\n"
+                + "11\t2024-01-02T03:04:05\tCup\t\\N\t3.00\t1\n"
+                + "11\t2024-01-02T03:04:05\tLid\ta\\\\b\t0.10\t1\n"), products);
+    }
+
+    @Test
+    void importOrders_MissingStatus_IsRejected() throws SQLException {
+        when(copyRepository.reserveOrderIds(1)).thenReturn(List.of(1));
+        OrderDto order = order(null, "Ann");
+        order.setStatus(null);
+        OrderImportService service = new OrderImportService(copyRepository, 10);
+        assertThrows(IllegalArgumentException.class, () -> service.importOrders(List.of(order).iterator()));
+        verify(copyRepository, never()).copyOrders(any());
+    }
+
+    private static long capture(Reader reader, List<String> into) {
+        StringWriter text = new StringWriter();
+        try {
+            reader.transferTo(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        into.add(text.toString());
+        return text.toString().chars().filter(c -> c == '\n').count();
+    }
+
+    private static OrderDto order(LocalDateTime date, String customer, Product... products) {
+        OrderDetail detail = new OrderDetail();
+        detail.setCustomerName(customer);
+        return new OrderDto(0, date, OrderStatus.processing, detail, List.of(products));
+    }
+
+    private static Product product(String name, String description, String price, int quantity) {
+        Product product = new Product();
+        product.setName(name);
+        product.setDescription(description);
+        product.setPrice(new BigDecimal(price));
+        product.setQuantity(quantity);
+        return product;
+    }
+}
@@ -0,0 +1,40 @@
+package com.nickz.unit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.nickz.repository.OrderRepository;
+import com.nickz.service.OrderPartitionMaintenance;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+
+public class OrderPartitionMaintenanceTest {
+
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+
+    @Test
+    void createPartitions_PassesMonthsAhead() throws SQLException {
+        when(orderRepository.createPartitions(3)).thenReturn(9);
+        assertEquals(9, new OrderPartitionMaintenance(orderRepository, 3, 1000).createPartitions());
+    }
+
+    @Test
+    void createPartitions_Failure_IsReportedAsNothingCreated() throws SQLException {
+        when(orderRepository.createPartitions(anyInt())).thenThrow(new SQLException("lock timeout"));
+        assertEquals(0, new OrderPartitionMaintenance(orderRepository, 3, 1000).createPartitions());
+    }
+
+    @Test
+    void start_RunsImmediatelyUnlessDisabled() throws SQLException {
+        try (OrderPartitionMaintenance disabled = new OrderPartitionMaintenance(orderRepository, 3, 0)) {
+            disabled.start();
+        }
+        verifyNoInteractions(orderRepository);
+
+        try (OrderPartitionMaintenance maintenance = new OrderPartitionMaintenance(orderRepository, 2, 60_000)) {
+            maintenance.start();
+            verify(orderRepository, timeout(5000)).createPartitions(2);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.nickz.unit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.nickz.dto.OrderPatchDto;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class OrderPatchDtoTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    void from_KeepsOnlyPresentFieldsInColumnOrder() throws Exception {
+        OrderPatchDto patch = parse("{\"status\":\"completed\",\"orderDate\":[2024,1,2,3,4],"
+                + "\"orderDetail\":{\"orderDescription\":null},"
+                + "\"products\":[{\"productId\":3,\"quantity\":4,\"price\":\"1.50\"}]}");
+        assertEquals(List.of("order_date", "status"), List.copyOf(patch.getOrderChanges().keySet()));
+        assertEquals(LocalDateTime.of(2024, 1, 2, 3, 4), patch.getOrderChanges().get("order_date"));
+        assertEquals("completed", patch.getOrderChanges().get("status"));
+        assertEquals(Arrays.asList("order_description"), List.copyOf(patch.getDetailChanges().keySet()));
+        assertNull(patch.getDetailChanges().get("order_description"));
+        Map<String, Object> product = patch.getProductChanges().get(3);
+        assertEquals(List.of("price", "quantity"), List.copyOf(product.keySet()));
+        assertEquals(new BigDecimal("1.50"), product.get("price"));
+    }
+
+    @Test
+    void from_InvalidPatches_AreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> parse("[]"));
+        assertThrows(IllegalArgumentException.class, () -> parse("{\"colour\":\"red\"}"));
+        assertThrows(IllegalArgumentException.class, () -> parse("{\"status\":null}"));
+        assertThrows(IllegalArgumentException.class, () -> parse("{\"status\":\"lost\"}"));
+        assertThrows(IllegalArgumentException.class, () -> parse("{\"products\":[{\"quantity\":1}]}"));
+        assertThrows(IllegalArgumentException.class, () -> parse("{\"products\":[{\"productId\":1,\"name\":5}]}"));
+    }
+
+    private OrderPatchDto parse(String json) throws Exception {
+        return OrderPatchDto.from(objectMapper.readTree(json), objectMapper);
+    }
+}
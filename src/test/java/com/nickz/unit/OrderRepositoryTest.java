@@ -4,6 +4,7 @@ import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
 
 import com.nickz.dto.OrderCreateDto;
+import com.nickz.dto.OrderFilterDto;
 import com.nickz.entity.Order;
 import com.nickz.entity.OrderStatus;
 import com.nickz.repository.OrderRepository;
@@ -18,8 +19,12 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.sql.*;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 @ExtendWith(MockitoExtension.class)
 public class OrderRepositoryTest {
@@ -40,16 +45,19 @@ public class OrderRepositoryTest {
     }
 
     @Test
-    void create_Order_ShouldReturnGeneratedId() throws Exception {
+    void create_Order_ShouldReturnGeneratedIdAndStoredDate() throws Exception {
         when(connection.prepareStatement(anyString(), eq(Statement.RETURN_GENERATED_KEYS))).thenReturn(preparedStatement);
         when(preparedStatement.executeUpdate()).thenReturn(1);
         when(preparedStatement.getGeneratedKeys()).thenReturn(resultSet);
         when(resultSet.next()).thenReturn(true);
         when(resultSet.getInt(1)).thenReturn(100);
+        LocalDateTime stored = LocalDateTime.of(2026, 10, 18, 12, 0);
+        when(resultSet.getTimestamp(2)).thenReturn(Timestamp.valueOf(stored));
         OrderCreateDto orderCreateDto = new OrderCreateDto();
         orderCreateDto.setStatus(OrderStatus.processing);
-        int generatedId = repository.create(orderCreateDto);
-        assertEquals(100, generatedId);
+        Order created = repository.create(orderCreateDto);
+        assertEquals(100, created.getOrderId());
+        assertEquals(stored, created.getOrderDate());
         verify(preparedStatement).setString(2, orderCreateDto.getStatus().name());
     }
 
@@ -65,28 +73,56 @@ public class OrderRepositoryTest {
         verify(preparedStatement).setInt(3, order.getOrderId());
         verify(preparedStatement).setTimestamp(1, Timestamp.valueOf(order.getOrderDate()));
         verify(preparedStatement).setString(2, order.getStatus().name());
+        verify(preparedStatement).setTimestamp(4, Timestamp.valueOf(order.getOrderDate()));
     }
 
     @Test
     void delete_ExistingOrder_ShouldDeleteSuccessfully() throws Exception {
-        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(connection.prepareStatement("DELETE FROM orders WHERE order_id = ? AND order_date = ?"))
+                .thenReturn(preparedStatement);
         when(preparedStatement.executeUpdate()).thenReturn(1);
-        assertDoesNotThrow(() -> repository.delete(1));
+        LocalDateTime date = LocalDateTime.of(2024, 3, 1, 12, 0);
+        assertDoesNotThrow(() -> repository.delete(1, date));
         verify(preparedStatement).setInt(1, 1);
+        verify(preparedStatement).setTimestamp(2, Timestamp.valueOf(date));
+    }
+
+    @Test
+    void findDate_RegisteredOrder_ReturnsDateFromOrderIds() throws Exception {
+        LocalDateTime date = LocalDateTime.of(2024, 3, 1, 12, 0);
+        when(connection.prepareStatement("SELECT order_date FROM order_ids WHERE order_id = ?"))
+                .thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getTimestamp(1)).thenReturn(Timestamp.valueOf(date));
+        assertEquals(Optional.of(date), repository.findDate(5));
+        verify(preparedStatement).setInt(1, 5);
+    }
+
+    @Test
+    void lockDate_IdOfDetachedPartition_ReturnsEmpty() throws Exception {
+        when(connection.prepareStatement(endsWith("FOR NO KEY UPDATE"))).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getTimestamp(1)).thenReturn(null);
+        assertEquals(Optional.empty(), repository.lockDate(5));
     }
 
     @Test
     void findById_ExistingOrder_ReturnsOrder() throws Exception {
-        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(connection.prepareStatement("SELECT * FROM orders WHERE order_id = ? AND order_date = ?"))
+                .thenReturn(preparedStatement);
         when(preparedStatement.executeQuery()).thenReturn(resultSet);
         when(resultSet.next()).thenReturn(true);
         when(resultSet.getInt("order_id")).thenReturn(1);
         when(resultSet.getTimestamp("order_date")).thenReturn(Timestamp.valueOf(LocalDateTime.now()));
         when(resultSet.getString("status")).thenReturn(OrderStatus.processing.name());
-        Optional<Order> result = repository.findById(1);
+        LocalDateTime date = LocalDateTime.of(2024, 3, 1, 12, 0);
+        Optional<Order> result = repository.findById(1, date);
         assertTrue(result.isPresent());
         assertEquals(OrderStatus.processing, result.get().getStatus());
         verify(preparedStatement).setInt(1, 1);
+        verify(preparedStatement).setTimestamp(2, Timestamp.valueOf(date));
         verify(preparedStatement).executeQuery();
     }
 
@@ -95,7 +131,7 @@ public class OrderRepositoryTest {
         when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
         when(preparedStatement.executeQuery()).thenReturn(resultSet);
         when(resultSet.next()).thenReturn(false);
-        Optional<Order> result = repository.findById(999);
+        Optional<Order> result = repository.findById(999, LocalDateTime.now());
         assertFalse(result.isPresent());
     }
 
@@ -111,6 +147,116 @@ public class OrderRepositoryTest {
         assertEquals(2, result.size());
     }
 
+    @Test
+    void streamAll_UsesFetchSizeAndVisitsEveryRow() throws Exception {
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getInt("order_id")).thenReturn(1, 2);
+        when(resultSet.getTimestamp("order_date")).thenReturn(Timestamp.valueOf(LocalDateTime.now()));
+        when(resultSet.getString("status")).thenReturn(OrderStatus.processing.name());
+        List<Order> visited = new ArrayList<>();
+        repository.streamAll(100, visited::add);
+        assertEquals(2, visited.size());
+        verify(preparedStatement).setFetchSize(100);
+        verify(resultSet).close();
+    }
+
+    @Test
+    void updateStatus_UsesOneSetBasedStatementOverTheOrdersDates() throws Exception {
+        Array ids = mock(Array.class);
+        Array dates = mock(Array.class);
+        PreparedStatement lockDates = mock(PreparedStatement.class);
+        Timestamp march = Timestamp.valueOf(LocalDateTime.of(2024, 3, 1, 12, 0));
+        when(connection.createArrayOf(eq("integer"), any(Object[].class))).thenReturn(ids);
+        when(connection.createArrayOf("timestamp", new Timestamp[]{march})).thenReturn(dates);
+        when(connection.prepareStatement(startsWith("SELECT order_date FROM order_ids"))).thenReturn(lockDates);
+        when(lockDates.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getTimestamp(1)).thenReturn(march);
+        when(connection.prepareStatement(startsWith("UPDATE orders"))).thenReturn(preparedStatement);
+        when(preparedStatement.executeUpdate()).thenReturn(2);
+        assertEquals(2, repository.updateStatus(List.of(1, 2, 3), OrderStatus.cancelled));
+        verify(preparedStatement).setArray(2, ids);
+        verify(preparedStatement).setArray(3, dates);
+        verify(preparedStatement).setString(1, "cancelled");
+        verify(preparedStatement).setString(4, "cancelled");
+        verify(lockDates).setArray(1, ids);
+    }
+
+    @Test
+    void findIds_AddsOnlyGivenFilterConditions() throws Exception {
+        when(connection.prepareStatement("SELECT order_id FROM orders WHERE order_id > ? AND order_date >= ?"
+                + " ORDER BY order_id LIMIT ?")).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getInt(1)).thenReturn(42);
+        LocalDateTime from = LocalDateTime.of(2024, 1, 1, 0, 0);
+        assertEquals(List.of(42), repository.findIds(new OrderFilterDto(null, from, null), 10, 100));
+        verify(preparedStatement).setInt(1, 10);
+        verify(preparedStatement).setTimestamp(2, Timestamp.valueOf(from));
+        verify(preparedStatement).setInt(3, 100);
+    }
+
+    @Test
+    void findPage_BindsCursorAndLimit() throws Exception {
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getInt("order_id")).thenReturn(11);
+        when(resultSet.getTimestamp("order_date")).thenReturn(Timestamp.valueOf(LocalDateTime.now()));
+        when(resultSet.getString("status")).thenReturn(OrderStatus.processing.name());
+        List<Order> result = repository.findPage(10, 5);
+        assertEquals(11, result.get(0).getOrderId());
+        verify(preparedStatement).setInt(1, 10);
+        verify(preparedStatement).setInt(2, 5);
+    }
+
+    @Test
+    void estimateCount_NeverAnalyzedTable_ReturnsEmpty() throws Exception {
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getLong(1)).thenReturn(-1L);
+        assertEquals(OptionalLong.empty(), repository.estimateCount());
+    }
+
+
+    @Test
+    void patch_NewOrderDate_MovesOrderThenSetsOtherColumns() throws Exception {
+        PreparedStatement move = mock(PreparedStatement.class);
+        ResultSet moved = mock(ResultSet.class);
+        when(connection.prepareStatement("SELECT move_order(?, ?)")).thenReturn(move);
+        when(move.executeQuery()).thenReturn(moved);
+        when(moved.next()).thenReturn(true);
+        when(moved.getBoolean(1)).thenReturn(true);
+        when(connection.prepareStatement(startsWith("UPDATE orders SET status"))).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        LocalDateTime date = LocalDateTime.of(2024, 3, 1, 12, 0);
+        Map<String, Object> changes = new LinkedHashMap<>();
+        changes.put("order_date", date);
+        changes.put("status", OrderStatus.completed.name());
+
+        assertTrue(repository.patch(7, LocalDateTime.of(2024, 1, 15, 8, 0), changes));
+
+        verify(move).setInt(1, 7);
+        verify(move).setTimestamp(2, Timestamp.valueOf(date));
+        verify(preparedStatement).setObject(1, OrderStatus.completed.name());
+        verify(preparedStatement).setInt(2, 7);
+        verify(preparedStatement).setTimestamp(3, Timestamp.valueOf(date));
+    }
+
+    @Test
+    void patch_OrderDateOfMissingOrder_ReturnsFalse() throws Exception {
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getBoolean(1)).thenReturn(false);
+
+        assertFalse(repository.patch(7, LocalDateTime.now(), Map.of("order_date", LocalDateTime.now())));
+        verify(connection, times(1)).prepareStatement(anyString());
+    }
 
     @AfterEach
     void tearDown() {
@@ -1,15 +1,25 @@
 package com.nickz.unit;
 
+import com.nickz.dto.OrderBatchDto;
+import com.nickz.dto.OrderBatchResultDto;
 import com.nickz.dto.OrderCreateDto;
+import com.nickz.dto.OrderFilterDto;
 import com.nickz.dto.OrderDto;
+import com.nickz.dto.OrderPageDto;
+import com.nickz.dto.OrderPatchDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.nickz.entity.Order;
 import com.nickz.entity.OrderDetail;
 import com.nickz.entity.OrderStatus;
 import com.nickz.entity.Product;
+import com.nickz.exception.OrderDeletionException;
+import com.nickz.exception.OrderNotFoundException;
 import com.nickz.repository.OrderDetailRepository;
 import com.nickz.repository.OrderRepository;
 import com.nickz.repository.ProductRepository;
 import com.nickz.service.OrderService;
+import com.nickz.service.Versioned;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -20,7 +30,13 @@ import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -37,27 +53,140 @@ public class OrderServiceTest {
     @InjectMocks
     private OrderService orderService;
 
+    private static final LocalDateTime DATE = LocalDateTime.of(2024, 5, 10, 12, 0);
+
 
     @Test
     void getOrderById_ExistingOrder_ReturnsOrder() throws SQLException {
         int orderId = 1;
         Order mockOrder = new Order();
         mockOrder.setOrderId(orderId);
-        mockOrder.setOrderDate(LocalDateTime.now());
+        mockOrder.setOrderDate(DATE);
         mockOrder.setStatus(OrderStatus.completed);
         OrderDetail mockOrderDetail = new OrderDetail();
         List<Product> mockProducts = new ArrayList<>();
-        when(orderRepository.findById(orderId)).thenReturn(Optional.of(mockOrder));
-        when(orderDetailRepository.findByOrderId(orderId)).thenReturn(mockOrderDetail);
-        when(productRepository.findByOrderId(orderId)).thenReturn(mockProducts);
+        when(orderRepository.findDate(orderId)).thenReturn(Optional.of(DATE));
+        when(orderRepository.findById(orderId, DATE)).thenReturn(Optional.of(mockOrder));
+        when(orderDetailRepository.findByOrderId(orderId, DATE)).thenReturn(mockOrderDetail);
+        when(productRepository.findByOrderId(orderId, DATE)).thenReturn(mockProducts);
         OrderDto result = orderService.getOrderById(orderId);
         assertNotNull(result);
         assertEquals(orderId, result.getOrderId());
-        verify(orderRepository).findById(orderId);
-        verify(orderDetailRepository).findByOrderId(orderId);
-        verify(productRepository).findByOrderId(orderId);
+        verify(orderRepository).findById(orderId, DATE);
+        verify(orderDetailRepository).findByOrderId(orderId, DATE);
+        verify(productRepository).findByOrderId(orderId, DATE);
+    }
+
+    @Test
+    void getOrderById_MovedAfterDateLookup_RetriesWithNewDate() throws SQLException {
+        LocalDateTime moved = DATE.plusMonths(1);
+        Order order = order(1);
+        order.setOrderDate(moved);
+        when(orderRepository.findDate(1)).thenReturn(Optional.of(DATE), Optional.of(moved));
+        when(orderRepository.findById(1, DATE)).thenReturn(Optional.empty());
+        when(orderRepository.findById(1, moved)).thenReturn(Optional.of(order));
+        when(orderDetailRepository.findByOrderId(1, moved)).thenReturn(new OrderDetail());
+        when(productRepository.findByOrderId(1, moved)).thenReturn(new ArrayList<>());
+        assertEquals(moved, orderService.getOrderById(1).getOrderDate());
+    }
+
+    @Test
+    void getOrderById_UnknownDate_ThrowsWithoutQueryingOrders() {
+        when(orderRepository.findDate(999)).thenReturn(Optional.empty());
+        assertThrows(OrderNotFoundException.class, () -> orderService.getOrderById(999));
+        verify(orderRepository, never()).findById(anyInt(), any());
+    }
+
+
+    @Test
+    void getCache_RepeatedUntilPatched_ServesCachedDocument() throws SQLException {
+        when(orderRepository.findDate(1)).thenReturn(Optional.of(DATE));
+        when(orderRepository.findVersion(1, DATE)).thenReturn(OptionalLong.of(1));
+        when(orderRepository.findDocumentById(1, DATE)).thenReturn(Optional.of("{\"orderId\":1}".getBytes()));
+        orderService.getCache().get(1, () -> orderService.getVersionedOrderDocument(1));
+        orderService.getCache().get(1, () -> orderService.getVersionedOrderDocument(1));
+        verify(orderRepository, times(1)).findDocumentById(1, DATE);
+
+        when(orderRepository.lockDate(1)).thenReturn(Optional.of(DATE));
+        when(orderRepository.patch(1, DATE, Map.of("status", "completed"))).thenReturn(true);
+        orderService.patchOrder(1, OrderPatchDto.from(
+                new ObjectMapper().createObjectNode().put("status", "completed"), new ObjectMapper()));
+        orderService.getCache().get(1, () -> orderService.getVersionedOrderDocument(1));
+        verify(orderRepository, times(2)).findDocumentById(1, DATE);
+        assertEquals(1, orderService.getCache().getHits());
     }
 
+    @Test
+    void getOrderDocument_ExistingOrder_ReturnsDatabaseJson() {
+        byte[] document = "{\"orderId\":1}".getBytes();
+        when(orderRepository.findDate(1)).thenReturn(Optional.of(DATE));
+        when(orderRepository.findDocumentById(1, DATE)).thenReturn(Optional.of(document));
+        assertSame(document, orderService.getOrderDocument(1));
+        verifyNoInteractions(orderDetailRepository, productRepository);
+    }
+
+    @Test
+    void getOrderDocument_MissingOrder_ThrowsOrderNotFound() {
+        when(orderRepository.findDate(999)).thenReturn(Optional.of(DATE));
+        when(orderRepository.findDocumentById(999, DATE)).thenReturn(Optional.empty());
+        assertThrows(OrderNotFoundException.class, () -> orderService.getOrderDocument(999));
+    }
+
+    @Test
+    void getOrdersPage_MoreRowsThanLimit_ReturnsCursorToNextPage() throws SQLException {
+        when(orderRepository.findPage(0, 3)).thenReturn(List.of(order(1), order(2), order(3)));
+        when(orderDetailRepository.findByOrderIds(List.of(1, 2))).thenReturn(List.of());
+        when(productRepository.findByOrderIds(List.of(1, 2))).thenReturn(List.of());
+        OrderPageDto first = orderService.getOrdersPage(null, 2, false);
+        assertEquals(2, first.getItems().size());
+        assertNotNull(first.getNextCursor());
+        assertNull(first.getApproximateTotal());
+        verify(orderRepository, never()).estimateCount();
+
+        when(orderRepository.findPage(2, 3)).thenReturn(List.of(order(3)));
+        when(orderDetailRepository.findByOrderIds(List.of(3))).thenReturn(List.of());
+        when(productRepository.findByOrderIds(List.of(3))).thenReturn(List.of());
+        when(orderRepository.estimateCount()).thenReturn(OptionalLong.of(3));
+        OrderPageDto last = orderService.getOrdersPage(first.getNextCursor(), 2, true);
+        assertEquals(3, last.getItems().get(0).getOrderId());
+        assertNull(last.getNextCursor());
+        assertEquals(3L, last.getApproximateTotal());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamAllOrders_PassesAssembledOrdersToSink() throws SQLException {
+        doAnswer(invocation -> {
+            Consumer<Order> action = invocation.getArgument(1);
+            action.accept(order(1));
+            action.accept(order(2));
+            return null;
+        }).when(orderRepository).streamAll(anyInt(), any(Consumer.class));
+        OrderDetail detail = new OrderDetail();
+        detail.setOrderId(2);
+        when(orderDetailRepository.findByOrderIds(List.of(1, 2))).thenReturn(List.of(detail));
+        when(productRepository.findByOrderIds(List.of(1, 2))).thenReturn(List.of());
+        List<OrderDto> received = new ArrayList<>();
+        orderService.streamAllOrders(received::add);
+        assertEquals(2, received.size());
+        assertNull(received.get(0).getOrderDetail());
+        assertSame(detail, received.get(1).getOrderDetail());
+    }
+
+    @Test
+    void getOrdersPage_InvalidCursor_ThrowsIllegalArgument() {
+        assertThrows(IllegalArgumentException.class, () -> orderService.getOrdersPage("not-a-cursor", 10, false));
+        assertThrows(IllegalArgumentException.class, () -> orderService.getOrdersPage(null, 0, false));
+        verifyNoInteractions(orderRepository);
+    }
+
+    private static Order order(int orderId) {
+        Order order = new Order();
+        order.setOrderId(orderId);
+        order.setOrderDate(LocalDateTime.now());
+        order.setStatus(OrderStatus.processing);
+        return order;
+    }
 
     @Test
     void getAllOrders_WithValidOrders_ReturnsListOfOrders() throws SQLException {
@@ -65,39 +194,186 @@ public class OrderServiceTest {
         mockOrder.setOrderId(1);
         mockOrder.setOrderDate(LocalDateTime.now());
         mockOrder.setStatus(OrderStatus.completed);
-        when(orderRepository.findById(1)).thenReturn(Optional.of(mockOrder));
+        OrderDetail mockOrderDetail = new OrderDetail();
+        mockOrderDetail.setOrderId(1);
+        Product mockProduct = new Product();
+        mockProduct.setOrderId(1);
         when(orderRepository.findAll()).thenReturn(List.of(mockOrder));
+        when(orderDetailRepository.findByOrderIds(List.of(1))).thenReturn(List.of(mockOrderDetail));
+        when(productRepository.findByOrderIds(List.of(1))).thenReturn(List.of(mockProduct));
         List<OrderDto> result = orderService.getAllOrders();
         assertFalse(result.isEmpty());
         assertEquals(1, result.size());
+        assertSame(mockOrderDetail, result.get(0).getOrderDetail());
+        assertEquals(List.of(mockProduct), result.get(0).getProducts());
         verify(orderRepository).findAll();
+        verify(orderRepository, never()).findById(anyInt(), any());
     }
 
     @Test
     void createOrder_WithValidData_CreatesOrder() throws SQLException {
-        OrderCreateDto orderCreateDto = new OrderCreateDto(OrderStatus.processing, new OrderDetail(), new ArrayList<>());
+        OrderCreateDto orderCreateDto = new OrderCreateDto(OrderStatus.processing, new OrderDetail(),
+                new ArrayList<>(List.of(new Product())));
         doNothing().when(orderDetailRepository).create(any(OrderDetail.class));
-        when(orderRepository.create(any(OrderCreateDto.class))).thenReturn(1);
+        Order created = order(1);
+        when(orderRepository.create(any(OrderCreateDto.class))).thenReturn(created);
         assertDoesNotThrow(() -> orderService.createOrder(orderCreateDto));
+        assertEquals(created.getOrderDate(), orderCreateDto.getOrderDetail().getOrderDate());
+        assertEquals(created.getOrderDate(), orderCreateDto.getProducts().get(0).getOrderDate());
         verify(orderRepository).create(any(OrderCreateDto.class));
         verify(orderDetailRepository).create(any(OrderDetail.class));
-        verify(productRepository, times(orderCreateDto.getProducts().size())).create(any(Product.class));
+        verify(productRepository).createAll(orderCreateDto.getProducts());
+        verify(productRepository, never()).create(any(Product.class));
     }
 
     @Test
     void updateOrder_WithValidData_UpdatesOrder() throws SQLException {
         OrderDto orderDto = new OrderDto(1, LocalDateTime.now(), OrderStatus.processing, new OrderDetail(), new ArrayList<>());
-        when(orderRepository.findById(orderDto.getOrderId())).thenReturn(Optional.of(new Order()));
+        Order existing = order(1);
+        existing.setOrderDate(DATE);
+        when(orderRepository.lockDate(1)).thenReturn(Optional.of(DATE));
+        when(orderRepository.findById(1, DATE)).thenReturn(Optional.of(existing));
         assertDoesNotThrow(() -> orderService.updateOrder(orderDto));
-        verify(orderRepository).update(any(Order.class));
+        verify(orderRepository).update(existing);
+    }
+
+    @Test
+    void patchOrder_StatusOnly_UpdatesOrderRowWithoutPreRead() throws Exception {
+        when(orderRepository.lockDate(1)).thenReturn(Optional.of(DATE));
+        when(orderRepository.patch(1, DATE, Map.of("status", "completed"))).thenReturn(true);
+        orderService.patchOrder(1, patch("{\"status\":\"completed\"}"));
+        verify(orderRepository, never()).findById(anyInt(), any());
+        verifyNoInteractions(orderDetailRepository, productRepository);
+    }
+
+    @Test
+    void patchOrder_ProductsOnly_LocksOrderAndPatchesProducts() throws Exception {
+        when(orderRepository.lockDate(1)).thenReturn(Optional.of(DATE));
+        when(orderRepository.lock(1, DATE)).thenReturn(true);
+        orderService.patchOrder(1, patch("{\"products\":[{\"productId\":5,\"quantity\":2}]}"));
+        verify(productRepository).patchAll(1, DATE, Map.of(5, Map.of("quantity", 2)));
+        verify(orderRepository, never()).patch(anyInt(), any(), any());
+        verifyNoInteractions(orderDetailRepository);
+    }
+
+    @Test
+    void patchOrder_NewDate_PatchesDetailInNewPartition() throws Exception {
+        LocalDateTime moved = LocalDateTime.of(2024, 6, 1, 9, 30);
+        when(orderRepository.lockDate(1)).thenReturn(Optional.of(DATE));
+        when(orderRepository.patch(1, DATE, Map.of("order_date", moved))).thenReturn(true);
+        orderService.patchOrder(1, patch("{\"orderDate\":\"2024-06-01T09:30:00\",\"orderDetail\":{\"customerName\":\"Ann\"}}"));
+        verify(orderDetailRepository).patchByOrderId(1, moved, Map.of("customer_name", "Ann"));
+    }
+
+    @Test
+    void patchOrder_MissingOrder_ThrowsOrderNotFound() throws Exception {
+        when(orderRepository.lockDate(9)).thenReturn(Optional.empty());
+        OrderPatchDto patch = patch("{\"status\":\"cancelled\",\"orderDetail\":{\"customerName\":\"Ann\"}}");
+        assertThrows(OrderNotFoundException.class, () -> orderService.patchOrder(9, patch));
+        verify(orderRepository, never()).patch(anyInt(), any(), any());
+        verifyNoInteractions(orderDetailRepository, productRepository);
+    }
+
+    private static OrderPatchDto patch(String json) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        return OrderPatchDto.from(objectMapper.readTree(json), objectMapper);
+    }
+
+    @Test
+    void getOrderById_IdRejectedByFilter_DoesNotQueryDatabase() throws SQLException {
+        doAnswer(invocation -> {
+            IntConsumer sink = invocation.getArgument(1);
+            sink.accept(1);
+            sink.accept(5000);
+            return null;
+        }).when(orderRepository).streamIds(anyInt(), any());
+        orderService.getIdFilter().rebuild();
+        assertThrows(OrderNotFoundException.class, () -> orderService.getOrderById(2));
+        assertThrows(OrderNotFoundException.class, () -> orderService.getOrderVersion(2));
+        verify(orderRepository, never()).findDate(anyInt());
+    }
+
+    @Test
+    void getVersionedOrderDocument_VersionUnchanged_IsStable() {
+        byte[] document = "{}".getBytes();
+        when(orderRepository.findDate(1)).thenReturn(Optional.of(DATE));
+        when(orderRepository.findVersion(1, DATE)).thenReturn(OptionalLong.of(7));
+        when(orderRepository.findDocumentById(1, DATE)).thenReturn(Optional.of(document));
+        Versioned<byte[]> result = orderService.getVersionedOrderDocument(1);
+        assertSame(document, result.getValue());
+        assertEquals(7, result.getVersion());
+        assertTrue(result.isStable());
+    }
+
+    @Test
+    void getVersionedOrder_ChangedWhileLoading_IsNotStable() throws SQLException {
+        Order order = order(1);
+        order.setOrderDate(DATE);
+        when(orderRepository.findDate(1)).thenReturn(Optional.of(DATE));
+        when(orderRepository.findVersion(1, DATE)).thenReturn(OptionalLong.of(7), OptionalLong.of(8));
+        when(orderRepository.findById(1, DATE)).thenReturn(Optional.of(order));
+        when(orderDetailRepository.findByOrderId(1, DATE)).thenReturn(new OrderDetail());
+        when(productRepository.findByOrderId(1, DATE)).thenReturn(new ArrayList<>());
+        Versioned<OrderDto> result = orderService.getVersionedOrder(1);
+        assertEquals(1, result.getValue().getOrderId());
+        assertFalse(result.isStable());
+    }
+
+    @Test
+    void getOrderVersion_MissingOrder_ThrowsOrderNotFound() {
+        when(orderRepository.findDate(1)).thenReturn(Optional.of(DATE));
+        when(orderRepository.findVersion(1, DATE)).thenReturn(OptionalLong.empty());
+        assertThrows(OrderNotFoundException.class, () -> orderService.getOrderVersion(1));
+    }
+
+    @Test
+    void applyBatch_Ids_RunsOneStatementPerChunk() throws SQLException {
+        List<Integer> ids = IntStream.rangeClosed(1, 1500).boxed().collect(Collectors.toList());
+        when(orderRepository.updateStatus(ids.subList(0, 1000), OrderStatus.cancelled)).thenReturn(990);
+        when(orderRepository.updateStatus(ids.subList(1000, 1500), OrderStatus.cancelled)).thenReturn(500);
+        OrderBatchResultDto result = orderService.applyBatch(
+                new OrderBatchDto(OrderBatchDto.Action.setStatus, OrderStatus.cancelled, ids, null));
+        assertEquals(1490, result.getTotal());
+        assertEquals(List.of(990, 500), result.getChunks());
+    }
+
+    @Test
+    void applyBatch_Filter_WalksMatchingIdsByKeyset() throws SQLException {
+        OrderFilterDto filter = new OrderFilterDto(OrderStatus.processing, null, null);
+        when(orderRepository.findIds(filter, 0, 1000)).thenReturn(List.of(3, 8));
+        when(orderRepository.findIds(filter, 8, 1000)).thenReturn(List.of());
+        when(orderRepository.deleteAll(List.of(3, 8))).thenReturn(2);
+        OrderBatchResultDto result = orderService.applyBatch(
+                new OrderBatchDto(OrderBatchDto.Action.delete, null, null, filter));
+        assertEquals(2, result.getTotal());
+        assertEquals(List.of(2), result.getChunks());
+    }
+
+    @Test
+    void applyBatch_InvalidRequest_ThrowsIllegalArgument() {
+        assertThrows(IllegalArgumentException.class, () -> orderService.applyBatch(
+                new OrderBatchDto(OrderBatchDto.Action.delete, null, List.of(1), new OrderFilterDto())));
+        assertThrows(IllegalArgumentException.class, () -> orderService.applyBatch(
+                new OrderBatchDto(OrderBatchDto.Action.delete, null, null, new OrderFilterDto())));
+        assertThrows(IllegalArgumentException.class, () -> orderService.applyBatch(
+                new OrderBatchDto(OrderBatchDto.Action.setStatus, null, List.of(1), null)));
+        verifyNoInteractions(orderRepository);
     }
 
     @Test
     void deleteOrder_WithValidId_DeletesOrder() throws SQLException {
         int orderId = 1;
-        doNothing().when(orderRepository).delete(orderId);
+        when(orderRepository.lockDate(orderId)).thenReturn(Optional.of(DATE));
+        doNothing().when(orderRepository).delete(orderId, DATE);
         assertDoesNotThrow(() -> orderService.deleteOrder(orderId));
-        verify(orderRepository).delete(orderId);
+        verify(orderRepository).delete(orderId, DATE);
+    }
+
+    @Test
+    void deleteOrder_UnknownId_ThrowsOrderDeletion() throws SQLException {
+        when(orderRepository.lockDate(9)).thenReturn(Optional.empty());
+        assertThrows(OrderDeletionException.class, () -> orderService.deleteOrder(9));
+        verify(orderRepository, never()).delete(anyInt(), any());
     }
 
 }
@@ -4,6 +4,8 @@ import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
 
 import com.nickz.entity.Product;
+import com.nickz.exception.OrderNotFoundException;
+import com.nickz.exception.OrderUpdateException;
 import com.nickz.repository.ProductRepository;
 import com.nickz.util.ConnectionManager;
 import org.junit.jupiter.api.AfterEach;
@@ -15,7 +17,10 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
 import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @ExtendWith(MockitoExtension.class)
 public class ProductRepositoryTest {
@@ -68,6 +73,24 @@ public class ProductRepositoryTest {
         assertNull(result);
     }
 
+    @Test
+    void findByOrderIds_ReturnsProductsOfAllOrdersInOneQuery() throws SQLException {
+        Array orderIds = mock(Array.class);
+        when(connection.createArrayOf(eq("integer"), any(Object[].class))).thenReturn(orderIds);
+        when(connection.prepareStatement(contains("= ANY(?)"))).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+        lenient().when(resultSet.getInt("order_id")).thenReturn(1, 2);
+
+        List<Product> result = repository.findByOrderIds(List.of(1, 2));
+
+        assertEquals(2, result.size());
+        assertEquals(1, result.get(0).getOrderId());
+        assertEquals(2, result.get(1).getOrderId());
+        verify(preparedStatement).setArray(1, orderIds);
+        verify(connection).prepareStatement(anyString());
+    }
+
     @Test
     void create_Product_ShouldReturnGeneratedId() throws SQLException {
         when(connection.prepareStatement(anyString(), eq(Statement.RETURN_GENERATED_KEYS))).thenReturn(preparedStatement);
@@ -81,12 +104,100 @@ public class ProductRepositoryTest {
         product.setDescription("New Description");
         product.setPrice(new BigDecimal("29.99"));
         product.setQuantity(5);
+        product.setOrderDate(LocalDateTime.of(2026, 10, 18, 12, 0));
 
         int generatedId = repository.create(product);
 
         assertEquals(100, generatedId);
         verify(preparedStatement).setString(2, product.getName());
         verify(preparedStatement).setString(3, product.getDescription());
+        verify(preparedStatement).setTimestamp(6, Timestamp.valueOf(product.getOrderDate()));
+    }
+
+    @Test
+    void createAll_SendsOneBatch() throws SQLException {
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        Product first = new Product();
+        first.setOrderId(1);
+        first.setName("First");
+        first.setOrderDate(LocalDateTime.now());
+        Product second = new Product();
+        second.setOrderId(1);
+        second.setName("Second");
+        second.setOrderDate(LocalDateTime.now());
+
+        repository.createAll(List.of(first, second));
+
+        verify(connection).prepareStatement(anyString());
+        verify(preparedStatement, times(2)).addBatch();
+        verify(preparedStatement).executeBatch();
+        verify(preparedStatement, never()).executeUpdate();
+    }
+
+    @Test
+    void createAll_Empty_DoesNotQuery() throws SQLException {
+        repository.createAll(List.of());
+        verifyNoInteractions(connection);
+    }
+
+    @Test
+    void patchAll_GroupsProductsBySameColumnsIntoOneBatch() throws SQLException {
+        PreparedStatement quantityOnly = mock(PreparedStatement.class);
+        PreparedStatement nameAndPrice = mock(PreparedStatement.class);
+        when(connection.prepareStatement("UPDATE products SET quantity = ? WHERE product_id = ? AND order_id = ?"
+                + " AND order_date = ? AND (quantity IS DISTINCT FROM ?)")).thenReturn(quantityOnly);
+        when(connection.prepareStatement("UPDATE products SET name = ?, price = ? WHERE product_id = ? AND order_id = ?"
+                + " AND order_date = ? AND (name IS DISTINCT FROM ? OR price IS DISTINCT FROM ?)")).thenReturn(nameAndPrice);
+        when(quantityOnly.executeBatch()).thenReturn(new int[]{1, 0});
+        when(nameAndPrice.executeBatch()).thenReturn(new int[]{1});
+        stubExistingProduct(3);
+        Map<String, Object> renamed = new LinkedHashMap<>();
+        renamed.put("name", "Pen");
+        renamed.put("price", new BigDecimal("2.00"));
+        Map<Integer, Map<String, Object>> changes = new LinkedHashMap<>();
+        changes.put(1, Map.of("quantity", 3));
+        changes.put(2, renamed);
+        changes.put(3, Map.of("quantity", 5));
+
+        LocalDateTime date = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+        assertEquals(2, repository.patchAll(7, date, changes));
+
+        verify(quantityOnly, times(2)).addBatch();
+        verify(quantityOnly).setInt(2, 1);
+        verify(quantityOnly, times(2)).setInt(3, 7);
+        verify(quantityOnly, times(2)).setTimestamp(4, Timestamp.valueOf(date));
+        verify(quantityOnly).setObject(1, 3);
+        verify(quantityOnly).setObject(1, 5);
+        verify(quantityOnly).setObject(5, 3);
+        verify(nameAndPrice).addBatch();
+        verify(nameAndPrice).setObject(6, "Pen");
+    }
+
+    @Test
+    void patchAll_UnknownProductId_ThrowsOrderNotFound() throws SQLException {
+        PreparedStatement quantityOnly = mock(PreparedStatement.class);
+        when(connection.prepareStatement("UPDATE products SET quantity = ? WHERE product_id = ? AND order_id = ?"
+                + " AND order_date = ? AND (quantity IS DISTINCT FROM ?)")).thenReturn(quantityOnly);
+        when(quantityOnly.executeBatch()).thenReturn(new int[]{0, 0});
+        stubExistingProduct(1);
+        Map<Integer, Map<String, Object>> changes = new LinkedHashMap<>();
+        changes.put(1, Map.of("quantity", 3));
+        changes.put(99, Map.of("quantity", 5));
+
+        OrderNotFoundException e = assertThrows(OrderNotFoundException.class, () -> repository.patchAll(7,
+                LocalDateTime.now(), changes));
+        assertTrue(e.getMessage().contains("[99]"));
+    }
+
+    private void stubExistingProduct(int productId) throws SQLException {
+        PreparedStatement existing = mock(PreparedStatement.class);
+        when(connection.prepareStatement("SELECT product_id FROM products WHERE order_id = ? AND order_date = ?"
+                + " AND product_id = ANY(?)"))
+                .thenReturn(existing);
+        when(existing.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getInt(1)).thenReturn(productId);
     }
 
     @Test
@@ -105,6 +216,18 @@ public class ProductRepositoryTest {
         verify(preparedStatement).setInt(6, product.getProductId());
     }
 
+    @Test
+    void update_MissingProductOrOrder_ThrowsOrderUpdateException() throws SQLException {
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeUpdate()).thenReturn(0);
+
+        Product product = new Product();
+        product.setProductId(1);
+        product.setOrderId(99);
+
+        assertThrows(OrderUpdateException.class, () -> repository.update(product));
+    }
+
     @Test
     void delete_ExistingProduct_ShouldDeleteSuccessfully() throws SQLException {
         when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
@@ -126,9 +249,12 @@ public class ProductRepositoryTest {
         when(resultSet.getInt("order_id")).thenReturn(1);
         when(resultSet.getInt("quantity")).thenReturn(10, 20);
 
-        List<Product> result = repository.findByOrderId(1);
+        LocalDateTime date = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+        List<Product> result = repository.findByOrderId(1, date);
 
         assertEquals(2, result.size());
+        verify(preparedStatement).setTimestamp(2, Timestamp.valueOf(date));
         assertEquals("Product 1", result.get(0).getName());
         assertEquals("Product 2", result.get(1).getName());
     }
@@ -0,0 +1,123 @@
+package com.nickz.unit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.nickz.util.ConnectionPool;
+import com.nickz.util.PoolConfig;
+import com.nickz.util.RoutingConnectionPool;
+import com.nickz.util.RoutingContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+public class RoutingConnectionPoolTest {
+
+    private final ConnectionPool primary = newPool();
+    private final ConnectionPool replicaA = newPool();
+    private final ConnectionPool replicaB = newPool();
+    private RoutingConnectionPool pool;
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+        primary.close();
+        replicaA.close();
+        replicaB.close();
+    }
+
+    @Test
+    void acquire_OutsideReadOnlyScope_UsesPrimary() throws SQLException {
+        pool = new RoutingConnectionPool(primary, List.of(replicaA), RoutingConnectionPool.Balancing.ROUND_ROBIN, true);
+        try (Connection connection = pool.acquire()) {
+            assertEquals(1, primary.getActiveConnections());
+            assertEquals(0, replicaA.getActiveConnections());
+        }
+    }
+
+    @Test
+    void acquire_ReadOnly_RoundRobinsAcrossReplicas() throws SQLException {
+        pool = new RoutingConnectionPool(primary, List.of(replicaA, replicaB), RoutingConnectionPool.Balancing.ROUND_ROBIN, true);
+        try (RoutingContext.Scope readOnly = RoutingContext.readOnly();
+             Connection first = pool.acquire();
+             Connection second = pool.acquire()) {
+            assertEquals(1, replicaA.getActiveConnections());
+            assertEquals(1, replicaB.getActiveConnections());
+            assertEquals(0, primary.getActiveConnections());
+        }
+    }
+
+    @Test
+    void acquire_ReadOnly_LeastOutstandingPicksLeastBusyReplica() throws SQLException {
+        pool = new RoutingConnectionPool(primary, List.of(replicaA, replicaB), RoutingConnectionPool.Balancing.LEAST_OUTSTANDING, true);
+        try (Connection busy = replicaA.acquire();
+             RoutingContext.Scope readOnly = RoutingContext.readOnly();
+             Connection connection = pool.acquire()) {
+            assertEquals(1, replicaA.getActiveConnections());
+            assertEquals(1, replicaB.getActiveConnections());
+        }
+    }
+
+    @Test
+    void acquire_ReadAfterWriteInSameRequest_SticksToPrimary() throws SQLException {
+        pool = new RoutingConnectionPool(primary, List.of(replicaA), RoutingConnectionPool.Balancing.ROUND_ROBIN, true);
+        try (RoutingContext.Scope request = RoutingContext.request()) {
+            pool.acquire().close();
+            try (RoutingContext.Scope readOnly = RoutingContext.readOnly();
+                 Connection connection = pool.acquire()) {
+                assertEquals(1, primary.getActiveConnections());
+                assertEquals(0, replicaA.getActiveConnections());
+            }
+        }
+        try (RoutingContext.Scope readOnly = RoutingContext.readOnly();
+             Connection connection = pool.acquire()) {
+            assertEquals(1, replicaA.getActiveConnections());
+        }
+    }
+
+    @Test
+    void acquire_ReadAfterWriteWithoutStickiness_UsesReplica() throws SQLException {
+        pool = new RoutingConnectionPool(primary, List.of(replicaA), RoutingConnectionPool.Balancing.ROUND_ROBIN, false);
+        try (RoutingContext.Scope request = RoutingContext.request()) {
+            pool.acquire().close();
+            try (RoutingContext.Scope readOnly = RoutingContext.readOnly();
+                 Connection connection = pool.acquire()) {
+                assertEquals(1, replicaA.getActiveConnections());
+            }
+        }
+    }
+
+    @Test
+    void acquire_ReadOnlyWhenReplicaFails_FallsBackToPrimary() throws SQLException {
+        ConnectionPool broken = new ConnectionPool(PoolConfig.builder().minSize(0).maxSize(1).build(), () -> {
+            throw new SQLException("replica down");
+        });
+        pool = new RoutingConnectionPool(primary, List.of(broken), RoutingConnectionPool.Balancing.ROUND_ROBIN, true);
+        try (RoutingContext.Scope readOnly = RoutingContext.readOnly();
+             Connection connection = pool.acquire()) {
+            assertEquals(1, primary.getActiveConnections());
+        }
+    }
+
+    @Test
+    void acquire_ReadOnlyWithoutReplicas_UsesPrimary() throws SQLException {
+        pool = new RoutingConnectionPool(primary, List.of(), RoutingConnectionPool.Balancing.ROUND_ROBIN, true);
+        try (RoutingContext.Scope readOnly = RoutingContext.readOnly();
+             Connection connection = pool.acquire()) {
+            assertEquals(1, primary.getActiveConnections());
+        }
+    }
+
+    private static ConnectionPool newPool() {
+        return new ConnectionPool(PoolConfig.builder().minSize(0).maxSize(2).acquireTimeoutMs(500).build(), () -> {
+            Connection connection = mock(Connection.class);
+            when(connection.getAutoCommit()).thenReturn(true);
+            return connection;
+        });
+    }
+}
@@ -0,0 +1,105 @@
+package com.nickz.unit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.nickz.util.SingleFlight;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SingleFlightTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+    private final SingleFlight<Integer, String> flight = new SingleFlight<>();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void run_ConcurrentCallers_ShareOneLoad() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> flight.run(1, () -> blockingLoad(started, release)));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        List<Future<String>> waiters = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            waiters.add(executor.submit(() -> flight.run(1, () -> blockingLoad(started, release))));
+        }
+        awaitCoalesced(5);
+        release.countDown();
+        assertEquals("order", leader.get(5, TimeUnit.SECONDS));
+        for (Future<String> waiter : waiters) {
+            assertEquals("order", waiter.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, flight.getLoads());
+        assertEquals(5, flight.getCoalesced());
+    }
+
+    @Test
+    void run_LoaderFails_WaitersGetExceptionAndKeyIsReleased() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> flight.run(1, () -> {
+            started.countDown();
+            await(release);
+            throw new IllegalStateException("boom");
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<String> waiter = executor.submit(() -> flight.run(1, () -> "unused"));
+        awaitCoalesced(1);
+        release.countDown();
+        assertTrue(assertThrows(ExecutionException.class, leader::get).getCause() instanceof IllegalStateException);
+        assertTrue(assertThrows(ExecutionException.class, waiter::get).getCause() instanceof IllegalStateException);
+        assertEquals("again", flight.run(1, () -> "again"));
+        assertEquals(2, flight.getLoads());
+    }
+
+    @Test
+    void forget_LaterCallersStartNewLoad() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> flight.run(1, () -> blockingLoad(started, release)));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        flight.forget(1);
+        assertEquals("fresh", flight.run(1, () -> "fresh"));
+        release.countDown();
+        assertEquals("order", leader.get(5, TimeUnit.SECONDS));
+        assertEquals(0, flight.getCoalesced());
+    }
+
+    private String blockingLoad(CountDownLatch started, CountDownLatch release) {
+        loads.incrementAndGet();
+        started.countDown();
+        await(release);
+        return "order";
+    }
+
+    private void awaitCoalesced(long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (flight.getCoalesced() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(expected, flight.getCoalesced());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.nickz.unit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.nickz.util.ConnectionPool;
+import com.nickz.util.PoolConfig;
+import com.nickz.util.PooledConnection;
+import com.nickz.util.UnitOfWork;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class UnitOfWorkTest {
+
+    private final List<Connection> opened = new CopyOnWriteArrayList<>();
+    private final ConnectionPool pool = new ConnectionPool(PoolConfig.builder().minSize(0).maxSize(2).build(), () -> {
+        Connection connection = mock(Connection.class);
+        when(connection.getAutoCommit()).thenReturn(true);
+        opened.add(connection);
+        return connection;
+    });
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    void write_SharesOneConnectionAndCommits() throws SQLException {
+        UnitOfWork.write(() -> {
+            try (PooledConnection first = borrow(); PooledConnection second = borrow()) {
+                assertEquals(1, pool.getActiveConnections());
+            }
+            assertEquals(1, pool.getActiveConnections());
+        });
+        assertEquals(0, pool.getActiveConnections());
+        assertEquals(1, opened.size());
+        verify(opened.get(0)).setAutoCommit(false);
+        verify(opened.get(0)).commit();
+        verify(opened.get(0), never()).rollback();
+    }
+
+    @Test
+    void write_WhenWorkThrows_RollsBackAndReleases() throws SQLException {
+        assertThrows(IllegalStateException.class, () -> UnitOfWork.write(() -> {
+            borrow().close();
+            throw new IllegalStateException("boom");
+        }));
+        assertEquals(0, pool.getActiveConnections());
+        verify(opened.get(0)).rollback();
+        verify(opened.get(0), never()).commit();
+        assertNull(UnitOfWork.current());
+    }
+
+    @Test
+    void read_WithoutDatabaseAccess_BorrowsNothing() {
+        assertEquals("result", UnitOfWork.read(() -> "result"));
+        assertTrue(opened.isEmpty());
+    }
+
+    @Test
+    void read_NestedInsideWrite_JoinsOuterUnit() throws SQLException {
+        UnitOfWork.write(() -> {
+            borrow().close();
+            UnitOfWork.read(() -> {
+                borrow().close();
+                return null;
+            });
+        });
+        assertEquals(1, opened.size());
+        verify(opened.get(0)).commit();
+    }
+
+    @Test
+    void write_NestedInsideRead_IsRejected() {
+        assertThrows(IllegalStateException.class, () -> UnitOfWork.read(() -> {
+            UnitOfWork.write(() -> { });
+            return null;
+        }));
+    }
+
+    @Test
+    void readPrimary_DoesNotAllowReplica() {
+        assertTrue(UnitOfWork.read(() -> UnitOfWork.current().isReplicaAllowed()));
+        assertFalse(UnitOfWork.readPrimary(() -> UnitOfWork.current().isReplicaAllowed()));
+        assertThrows(IllegalStateException.class, () -> UnitOfWork.readPrimary(() -> {
+            UnitOfWork.write(() -> { });
+            return null;
+        }));
+    }
+
+    private PooledConnection borrow() {
+        return (PooledConnection) UnitOfWork.current().connection(pool::acquire);
+    }
+}